@@ -0,0 +1,143 @@
+package com.sedesoft.convertorio.cli;
+
+import com.sedesoft.convertorio.ConversionOptions;
+import com.sedesoft.convertorio.ConvertorioClient;
+import com.sedesoft.convertorio.ConvertorioException;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a batch of conversions on a fixed worker pool with live progress
+ */
+class BatchConverter {
+    private static final long REPORT_INTERVAL_MS = 1000;
+
+    private final ConvertorioClient client;
+    private final String targetFormat;
+    private final List<MetadataTemplate> templates;
+    private final int parallelism;
+    private final boolean force;
+    private final PrintStream log;
+
+    private final AtomicInteger converted = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+
+    BatchConverter(ConvertorioClient client, String targetFormat, List<MetadataTemplate> templates,
+                   int parallelism, boolean force, PrintStream log) {
+        this.client = client;
+        this.targetFormat = targetFormat;
+        this.templates = templates;
+        this.parallelism = parallelism;
+        this.force = force;
+        this.log = log;
+    }
+
+    /**
+     * Convert every input and wait for completion
+     *
+     * @return Failure manifest lines ({@code path<TAB>relative path<TAB>error}), empty if all succeeded
+     */
+    List<String> run(List<InputFile> inputs) throws InterruptedException {
+        long startedAt = System.nanoTime();
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism);
+        for (InputFile input : inputs) {
+            workers.submit(() -> convert(input));
+        }
+        workers.shutdown();
+
+        while (!workers.awaitTermination(REPORT_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+            report(inputs.size(), startedAt, false);
+        }
+        report(inputs.size(), startedAt, true);
+
+        return new ArrayList<>(failures);
+    }
+
+    private void convert(InputFile input) {
+        try {
+            if (!force && isUpToDate(input)) {
+                skipped.incrementAndGet();
+                return;
+            }
+
+            client.convertFile(
+                ConversionOptions.builder()
+                    .inputPath(input.source.toString())
+                    .targetFormat(targetFormat)
+                    .outputPath(input.output.toString())
+                    .conversionMetadata(MetadataTemplate.merge(templates, input.relativePath))
+                    .build()
+            );
+            converted.incrementAndGet();
+        } catch (ConvertorioException | IOException | RuntimeException e) {
+            failures.add(manifestLine(input.source, input.relativePath, e.getMessage()));
+        }
+    }
+
+    /**
+     * An output at least as new as its input was produced by an earlier run
+     */
+    private boolean isUpToDate(InputFile input) throws IOException {
+        return Files.exists(input.output)
+            && Files.getLastModifiedTime(input.output).compareTo(Files.getLastModifiedTime(input.source)) >= 0;
+    }
+
+    private void report(int total, long startedAtNanos, boolean last) {
+        int done = converted.get() + skipped.get() + failures.size();
+        double elapsedSeconds = (System.nanoTime() - startedAtNanos) / 1e9;
+        double rate = elapsedSeconds > 0 ? converted.get() / elapsedSeconds : 0;
+        String eta = rate > 0 && done < total ? formatDuration((long) ((total - done) / rate)) : "--:--";
+
+        log.printf("\r%d/%d done (%d converted, %d skipped, %d failed)  %.1f files/s  ETA %s  ",
+            done, total, converted.get(), skipped.get(), failures.size(), rate, eta);
+        if (last) {
+            log.printf("%nFinished in %s%n", formatDuration((long) elapsedSeconds));
+        }
+        log.flush();
+    }
+
+    private static String formatDuration(long seconds) {
+        if (seconds >= 3600) {
+            return String.format("%d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+        }
+        return String.format("%02d:%02d", seconds / 60, seconds % 60);
+    }
+
+    /**
+     * One failure manifest line; tabs and line breaks in the error are replaced so the line stays parseable
+     */
+    static String manifestLine(Path source, Path relativePath, String error) {
+        return source + "\t" + relativePath + "\t" + String.valueOf(error).replaceAll("[\t\r\n]+", " ");
+    }
+
+    static void writeManifest(Path manifest, List<String> failures) throws IOException {
+        Files.write(manifest, failures, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * One input with its path relative to the input root and its output path
+     */
+    static class InputFile {
+        final Path source;
+        final Path relativePath;
+        final Path output;
+
+        InputFile(Path source, Path relativePath, Path output) {
+            this.source = source;
+            this.relativePath = relativePath;
+            this.output = output;
+        }
+    }
+}
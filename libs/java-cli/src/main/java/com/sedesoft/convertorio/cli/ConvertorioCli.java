@@ -0,0 +1,320 @@
+package com.sedesoft.convertorio.cli;
+
+import com.sedesoft.convertorio.ClientConfig;
+import com.sedesoft.convertorio.ConvertorioClient;
+import com.sedesoft.convertorio.ConvertorioException;
+import com.sedesoft.convertorio.SyncResult;
+import com.sedesoft.convertorio.TreeSync;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Command-line batch converter for Convertorio
+ *
+ * Converts files, directory trees, glob patterns and list files in one JVM
+ * with a shared client and a configurable number of parallel conversions.
+ */
+public class ConvertorioCli {
+    private static final int EXIT_FAILURES = 1;
+    private static final int EXIT_USAGE = 2;
+
+    private static final String USAGE = String.join("\n",
+        "Usage: convertorio --to FORMAT [options] INPUT...",
+        "",
+        "Inputs:",
+        "  FILE                 A single file",
+        "  DIR                  Every file below the directory",
+        "  GLOB                 Files matching a glob, e.g. 'photos/**.jpg'",
+        "  @LIST                Paths listed one per line (failure manifests work as lists)",
+        "",
+        "Options:",
+        "  --to FORMAT          Target format (required)",
+        "  --out DIR            Output root, mirroring input paths (default: next to each input)",
+        "  --parallel N         Conversions in flight (default: 4)",
+        "  --meta GLOB:K=V,...  Conversion metadata for matching inputs (repeatable, later wins)",
+        "  --force              Convert even if the output is newer than the input",
+        "  --sync               Mirror one DIR into --out incrementally, deleting outputs of removed files",
+        "  --failures FILE      Failure manifest path (default: convertorio-failures.txt)",
+        "  --api-key KEY        API key (default: CONVERTORIO_API_KEY environment variable)",
+        "  --base-url URL       API base URL");
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    static int run(String[] args) {
+        String targetFormat = null;
+        Path outDir = null;
+        int parallelism = 4;
+        boolean force = false;
+        boolean sync = false;
+        Path manifest = Paths.get("convertorio-failures.txt");
+        String apiKey = System.getenv("CONVERTORIO_API_KEY");
+        String baseUrl = null;
+        List<MetadataTemplate> templates = new ArrayList<>();
+        List<String> inputArgs = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--to":
+                        targetFormat = value(args, ++i).toLowerCase();
+                        break;
+                    case "--out":
+                        outDir = Paths.get(value(args, ++i));
+                        break;
+                    case "--parallel":
+                        parallelism = Integer.parseInt(value(args, ++i));
+                        if (parallelism < 1) {
+                            throw new IllegalArgumentException("--parallel must be at least 1");
+                        }
+                        break;
+                    case "--meta":
+                        templates.add(MetadataTemplate.parse(value(args, ++i)));
+                        break;
+                    case "--force":
+                        force = true;
+                        break;
+                    case "--sync":
+                        sync = true;
+                        break;
+                    case "--failures":
+                        manifest = Paths.get(value(args, ++i));
+                        break;
+                    case "--api-key":
+                        apiKey = value(args, ++i);
+                        break;
+                    case "--base-url":
+                        baseUrl = value(args, ++i);
+                        break;
+                    case "-h":
+                    case "--help":
+                        System.out.println(USAGE);
+                        return 0;
+                    default:
+                        if (args[i].startsWith("--")) {
+                            throw new IllegalArgumentException("Unknown option: " + args[i]);
+                        }
+                        inputArgs.add(args[i]);
+                }
+            }
+
+            if (targetFormat == null) {
+                throw new IllegalArgumentException("--to is required");
+            }
+            if (inputArgs.isEmpty()) {
+                throw new IllegalArgumentException("At least one input is required");
+            }
+            if (apiKey == null || apiKey.isEmpty()) {
+                throw new IllegalArgumentException("API key is required (--api-key or CONVERTORIO_API_KEY)");
+            }
+            if (sync && (outDir == null || inputArgs.size() != 1 || !Files.isDirectory(Paths.get(inputArgs.get(0))))) {
+                throw new IllegalArgumentException("--sync needs --out and a single directory input");
+            }
+            if (sync && force) {
+                throw new IllegalArgumentException("--force cannot be combined with --sync");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.err.println();
+            System.err.println(USAGE);
+            return EXIT_USAGE;
+        }
+
+        ConvertorioClient client = new ConvertorioClient(
+            ClientConfig.builder()
+                .apiKey(apiKey)
+                .baseUrl(baseUrl)
+                .build()
+        );
+
+        try {
+            if (sync) {
+                return sync(client, Paths.get(inputArgs.get(0)), outDir, targetFormat, templates, parallelism, manifest);
+            }
+
+            List<BatchConverter.InputFile> inputs = resolveInputs(inputArgs, targetFormat, outDir);
+            System.err.println("Converting " + inputs.size() + " files to " + targetFormat +
+                " with " + parallelism + " parallel conversions");
+
+            BatchConverter converter = new BatchConverter(client, targetFormat, templates, parallelism, force, System.err);
+            List<String> failures = converter.run(inputs);
+
+            if (!failures.isEmpty()) {
+                BatchConverter.writeManifest(manifest, failures);
+                System.err.println(failures.size() + " conversions failed, see " + manifest +
+                    " (retry with @" + manifest + ")");
+                return EXIT_FAILURES;
+            }
+            return 0;
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            return EXIT_FAILURES;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return EXIT_FAILURES;
+        }
+    }
+
+    /**
+     * Bring a mirror of a directory up to date, using a manifest kept in the output root
+     */
+    private static int sync(ConvertorioClient client, Path sourceRoot, Path outDir, String targetFormat,
+                            List<MetadataTemplate> templates, int parallelism, Path manifest) throws IOException {
+        System.err.println("Syncing " + sourceRoot + " to " + outDir + " as " + targetFormat +
+            " with " + parallelism + " parallel conversions");
+        SyncResult result;
+        try {
+            result = TreeSync.builder()
+                .client(client)
+                .sourceRoot(sourceRoot)
+                .outputRoot(outDir)
+                .targetFormat(targetFormat)
+                .parallelism(parallelism)
+                .metadata(templates.isEmpty() ? null : relativePath -> MetadataTemplate.merge(templates, relativePath))
+                .build()
+                .run();
+        } catch (ConvertorioException e) {
+            System.err.println("Error: " + e.getMessage());
+            return EXIT_FAILURES;
+        }
+
+        System.err.printf("%d files: %d converted, %d unchanged, %d deleted, %d failed in %.1fs%n",
+            result.getScanned(), result.getConverted(), result.getUnchanged(), result.getDeleted(),
+            result.getFailures().size(), result.getElapsed().toMillis() / 1000.0);
+        if (!result.getFailures().isEmpty()) {
+            List<String> failures = new ArrayList<>();
+            Path root = sourceRoot.toAbsolutePath().normalize();
+            result.getFailures().forEach((source, error) -> {
+                Path absolute = source.toAbsolutePath().normalize();
+                failures.add(BatchConverter.manifestLine(source,
+                    absolute.startsWith(root) ? root.relativize(absolute) : source.getFileName(), error));
+            });
+            BatchConverter.writeManifest(manifest, failures);
+            System.err.println(failures.size() + " files failed, see " + manifest + " (the next --sync retries them)");
+            return EXIT_FAILURES;
+        }
+        return 0;
+    }
+
+    /**
+     * Expand input arguments into files, keeping the first occurrence of each path
+     *
+     * Without --out, directory and glob expansion skips files already in the
+     * target format, so outputs written next to their inputs are not picked up
+     * again; with --out it skips the output directory instead. Failure
+     * manifests restore each input's relative path, so a retry writes to the
+     * same place in the output tree as the first run.
+     */
+    static List<BatchConverter.InputFile> resolveInputs(List<String> inputArgs, String targetFormat, Path outDir)
+            throws IOException {
+        Map<Path, BatchConverter.InputFile> inputs = new LinkedHashMap<>();
+
+        for (String arg : inputArgs) {
+            if (arg.startsWith("@")) {
+                for (String line : Files.readAllLines(Paths.get(arg.substring(1)), StandardCharsets.UTF_8)) {
+                    // Failure manifests carry the relative path and the error after tabs
+                    String[] fields = line.split("\t", 3);
+                    String path = fields[0].trim();
+                    if (!path.isEmpty()) {
+                        Path source = Paths.get(path);
+                        add(inputs, source, fields.length == 3 ? manifestRelativePath(fields[1], source) :
+                            source.getFileName(), targetFormat, outDir);
+                    }
+                }
+            } else if (isGlob(arg)) {
+                Path root = globRoot(arg);
+                PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + arg);
+                for (Path source : walk(root, targetFormat, outDir)) {
+                    if (matcher.matches(source)) {
+                        add(inputs, source, root.relativize(source), targetFormat, outDir);
+                    }
+                }
+            } else {
+                Path path = Paths.get(arg);
+                if (Files.isDirectory(path)) {
+                    for (Path source : walk(path, targetFormat, outDir)) {
+                        add(inputs, source, path.relativize(source), targetFormat, outDir);
+                    }
+                } else {
+                    add(inputs, path, path.getFileName(), targetFormat, outDir);
+                }
+            }
+        }
+
+        return new ArrayList<>(inputs.values());
+    }
+
+    private static void add(Map<Path, BatchConverter.InputFile> inputs, Path source, Path relativePath,
+                            String targetFormat, Path outDir) {
+        Path relativeOutput = replaceExtension(relativePath, targetFormat);
+        Path output = outDir != null ? outDir.resolve(relativeOutput) : source.resolveSibling(relativeOutput.getFileName());
+        inputs.putIfAbsent(source.toAbsolutePath().normalize(), new BatchConverter.InputFile(source, relativePath, output));
+    }
+
+    /**
+     * A relative path read back from a failure manifest; anything that would leave the output directory is dropped
+     */
+    private static Path manifestRelativePath(String field, Path source) {
+        Path relativePath = Paths.get(field.trim()).normalize();
+        if (field.trim().isEmpty() || relativePath.isAbsolute() || relativePath.startsWith("..")) {
+            return source.getFileName();
+        }
+        return relativePath;
+    }
+
+    private static List<Path> walk(Path root, String targetFormat, Path outDir) throws IOException {
+        Path outputs = outDir != null ? outDir.toAbsolutePath().normalize() : null;
+        try (Stream<Path> files = Files.walk(root)) {
+            return files
+                .filter(Files::isRegularFile)
+                .filter(path -> outputs != null ? !path.toAbsolutePath().normalize().startsWith(outputs) :
+                    !path.getFileName().toString().toLowerCase().endsWith("." + targetFormat))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    private static boolean isGlob(String arg) {
+        return arg.contains("*") || arg.contains("?") || arg.contains("[") || arg.contains("{");
+    }
+
+    /**
+     * Longest leading directory of a glob that contains no wildcards
+     */
+    private static Path globRoot(String glob) {
+        String[] parts = glob.split("[/\\\\]");
+        StringBuilder root = new StringBuilder();
+        for (int i = 0; i < parts.length - 1 && !isGlob(parts[i]); i++) {
+            root.append(parts[i]).append('/');
+        }
+        // The empty path walks the working directory without a "./" prefix, so plain globs still match
+        return Paths.get(root.toString());
+    }
+
+    private static Path replaceExtension(Path path, String extension) {
+        String name = path.getFileName().toString();
+        int lastDot = name.lastIndexOf('.');
+        String baseName = lastDot > 0 ? name.substring(0, lastDot) : name;
+        return path.resolveSibling(baseName + "." + extension);
+    }
+
+    private static String value(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+        }
+        return args[index];
+    }
+}
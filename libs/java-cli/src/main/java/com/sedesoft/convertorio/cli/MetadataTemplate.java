@@ -0,0 +1,90 @@
+package com.sedesoft.convertorio.cli;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Conversion metadata applied to inputs matching a glob pattern
+ *
+ * Parsed from {@code GLOB:key=value[,key=value...]}, for example
+ * {@code **.png:resize_width=800,quality=90}. Values may contain ':', as in
+ * {@code **.jpg:aspect_ratio=16:9}. Numeric values are sent as numbers.
+ */
+class MetadataTemplate {
+    private static final Pattern METADATA_START = Pattern.compile(":\\s*[A-Za-z_][A-Za-z0-9_]*\\s*=");
+
+    private final String pattern;
+    private final PathMatcher matcher;
+    private final Map<String, Object> metadata;
+
+    private MetadataTemplate(String pattern, Map<String, Object> metadata) {
+        this.pattern = pattern;
+        this.matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        this.metadata = metadata;
+    }
+
+    static MetadataTemplate parse(String spec) {
+        // The first ':' that starts a key=value list, since values such as aspect_ratio=16:9 contain ':' too
+        Matcher start = METADATA_START.matcher(spec);
+        int separator = start.find() ? start.start() : -1;
+        if (separator <= 0) {
+            throw new IllegalArgumentException("Invalid --meta value, expected GLOB:key=value[,key=value]: " + spec);
+        }
+
+        Map<String, Object> metadata = new LinkedHashMap<>();
+        for (String pair : spec.substring(separator + 1).split(",")) {
+            int equals = pair.indexOf('=');
+            if (equals <= 0) {
+                throw new IllegalArgumentException("Invalid metadata entry, expected key=value: " + pair);
+            }
+            metadata.put(pair.substring(0, equals).trim(), parseValue(pair.substring(equals + 1).trim()));
+        }
+        return new MetadataTemplate(spec.substring(0, separator), metadata);
+    }
+
+    /**
+     * Match against the path relative to the input root and, failing that, the file name
+     */
+    boolean matches(Path relativePath) {
+        return matcher.matches(relativePath) || matcher.matches(relativePath.getFileName());
+    }
+
+    Map<String, Object> getMetadata() {
+        return metadata;
+    }
+
+    /**
+     * Merge every matching template in order, so later --meta options override earlier ones
+     *
+     * @return The merged metadata, or null if no template matches
+     */
+    static Map<String, Object> merge(List<MetadataTemplate> templates, Path relativePath) {
+        Map<String, Object> metadata = new HashMap<>();
+        for (MetadataTemplate template : templates) {
+            if (template.matches(relativePath)) {
+                metadata.putAll(template.getMetadata());
+            }
+        }
+        return metadata.isEmpty() ? null : metadata;
+    }
+
+    private static Object parseValue(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return value;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return pattern + ":" + metadata;
+    }
+}
@@ -0,0 +1,76 @@
+package com.sedesoft.convertorio.cli;
+
+import com.sedesoft.convertorio.ClientConfig;
+import com.sedesoft.convertorio.ConvertorioClient;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchConverterTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void manifestLinesKeepOneFailurePerLine() {
+        Path source = Path.of("in", "a.png");
+        assertEquals(source + "\ta.png\tUpload failed: reset by peer",
+            BatchConverter.manifestLine(source, Path.of("a.png"), "Upload failed:\r\n\treset by peer"));
+        assertEquals(source + "\ta.png\tnull", BatchConverter.manifestLine(source, Path.of("a.png"), null));
+    }
+
+    @Test
+    void outputsNewerThanTheirInputAreSkipped() throws Exception {
+        BatchConverter.InputFile fresh = input("fresh", Instant.parse("2024-01-01T00:00:00Z"),
+            Instant.parse("2024-01-02T00:00:00Z"));
+        BatchConverter.InputFile stale = input("stale", Instant.parse("2024-01-02T00:00:00Z"),
+            Instant.parse("2024-01-01T00:00:00Z"));
+        BatchConverter.InputFile missing = new BatchConverter.InputFile(Files.write(dir.resolve("missing.png"),
+            new byte[] {1}), Path.of("missing.png"), dir.resolve("missing.webp"));
+
+        // Nothing listens on the API, so every input that is not skipped fails
+        List<String> failures = converter(false).run(Arrays.asList(fresh, stale, missing));
+
+        assertEquals(2, failures.size());
+        assertTrue(failures.stream().noneMatch(line -> line.startsWith(fresh.source.toString())), failures.toString());
+    }
+
+    @Test
+    void forceConvertsUpToDateOutputsAgain() throws Exception {
+        BatchConverter.InputFile fresh = input("fresh", Instant.parse("2024-01-01T00:00:00Z"),
+            Instant.parse("2024-01-02T00:00:00Z"));
+
+        List<String> failures = converter(true).run(Collections.singletonList(fresh));
+
+        assertEquals(1, failures.size());
+        assertTrue(failures.get(0).startsWith(fresh.source + "\tfresh.png\t"), failures.get(0));
+    }
+
+    private BatchConverter.InputFile input(String name, Instant sourceTime, Instant outputTime) throws Exception {
+        Path source = Files.write(dir.resolve(name + ".png"), new byte[] {1});
+        Path output = Files.write(dir.resolve(name + ".webp"), new byte[] {2});
+        Files.setLastModifiedTime(source, FileTime.from(sourceTime));
+        Files.setLastModifiedTime(output, FileTime.from(outputTime));
+        return new BatchConverter.InputFile(source, Path.of(name + ".png"), output);
+    }
+
+    private static BatchConverter converter(boolean force) {
+        ConvertorioClient client = new ConvertorioClient(ClientConfig.builder()
+            .apiKey("test")
+            .baseUrl("http://127.0.0.1:1")
+            .build());
+        return new BatchConverter(client, "webp", Collections.emptyList(), 2, force,
+            new PrintStream(new ByteArrayOutputStream()));
+    }
+}
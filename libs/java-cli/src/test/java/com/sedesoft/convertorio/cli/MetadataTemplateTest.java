@@ -0,0 +1,50 @@
+package com.sedesoft.convertorio.cli;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MetadataTemplateTest {
+    @Test
+    void parsesNumbersAndValuesContainingColons() {
+        MetadataTemplate template = MetadataTemplate.parse("**.jpg:aspect_ratio=16:9,resize_width=800");
+
+        assertEquals("16:9", template.getMetadata().get("aspect_ratio"));
+        assertEquals(800, template.getMetadata().get("resize_width"));
+    }
+
+    @Test
+    void laterTemplatesOverrideEarlierOnes() {
+        List<MetadataTemplate> templates = Arrays.asList(
+            MetadataTemplate.parse("*.png:quality=80,resize_width=800"),
+            MetadataTemplate.parse("photos/**:quality=90"),
+            MetadataTemplate.parse("*.jpg:quality=70"));
+
+        Map<String, Object> metadata = MetadataTemplate.merge(templates, Path.of("photos", "2024", "cat.png"));
+        assertEquals(90, metadata.get("quality"));
+        assertEquals(800, metadata.get("resize_width"));
+        assertEquals(2, metadata.size());
+    }
+
+    @Test
+    void fileNameMatchesWhenThePathDoesNot() {
+        List<MetadataTemplate> templates = Arrays.asList(MetadataTemplate.parse("*.png:quality=80"));
+
+        assertEquals(80, MetadataTemplate.merge(templates, Path.of("a", "b", "cat.png")).get("quality"));
+        assertNull(MetadataTemplate.merge(templates, Path.of("a", "b", "cat.jpg")));
+    }
+
+    @Test
+    void rejectsSpecsWithoutMetadata() {
+        assertThrows(IllegalArgumentException.class, () -> MetadataTemplate.parse("*.png"));
+        assertThrows(IllegalArgumentException.class, () -> MetadataTemplate.parse(":quality=80"));
+        assertThrows(IllegalArgumentException.class, () -> MetadataTemplate.parse("*.png:quality=80,large"));
+    }
+}
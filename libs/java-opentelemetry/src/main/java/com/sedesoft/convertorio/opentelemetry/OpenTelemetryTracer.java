@@ -0,0 +1,81 @@
+package com.sedesoft.convertorio.opentelemetry;
+
+import com.sedesoft.convertorio.TraceSpan;
+import com.sedesoft.convertorio.Tracer;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanBuilder;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Context;
+
+/**
+ * Reports Convertorio conversion spans to OpenTelemetry
+ *
+ * Conversion root spans become children of whatever span is current on the
+ * calling thread, so conversions show up inside the application's own traces.
+ */
+public final class OpenTelemetryTracer implements Tracer {
+    private static final String INSTRUMENTATION_NAME = "com.sedesoft.convertorio";
+
+    private final io.opentelemetry.api.trace.Tracer tracer;
+
+    public OpenTelemetryTracer(OpenTelemetry openTelemetry) {
+        this(openTelemetry.getTracer(INSTRUMENTATION_NAME));
+    }
+
+    public OpenTelemetryTracer(io.opentelemetry.api.trace.Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    public TraceSpan startSpan(String name, TraceSpan parent) {
+        SpanBuilder builder = tracer.spanBuilder(name);
+        if (parent instanceof OpenTelemetrySpan) {
+            // Stages wrap the HTTP calls made to the API and storage
+            builder.setParent(Context.current().with(((OpenTelemetrySpan) parent).span))
+                .setSpanKind(SpanKind.CLIENT);
+        }
+        return new OpenTelemetrySpan(builder.startSpan());
+    }
+
+    private static final class OpenTelemetrySpan implements TraceSpan {
+        private final Span span;
+
+        OpenTelemetrySpan(Span span) {
+            this.span = span;
+        }
+
+        @Override
+        public void setAttribute(String key, String value) {
+            span.setAttribute(key, value);
+        }
+
+        @Override
+        public void setAttribute(String key, long value) {
+            span.setAttribute(key, value);
+        }
+
+        @Override
+        public void recordError(Throwable error) {
+            span.recordException(error);
+            span.setStatus(StatusCode.ERROR, error.getMessage() != null ? error.getMessage() : "");
+        }
+
+        @Override
+        public void end() {
+            span.end();
+        }
+
+        @Override
+        public String traceparent() {
+            SpanContext context = span.getSpanContext();
+            if (!context.isValid()) {
+                return null;
+            }
+            return "00-" + context.getTraceId() + "-" + context.getSpanId() + "-" +
+                context.getTraceFlags().asHex();
+        }
+    }
+}
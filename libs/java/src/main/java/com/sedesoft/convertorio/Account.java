@@ -1,5 +1,7 @@
 package com.sedesoft.convertorio;
 
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.google.gson.annotations.SerializedName;
 
 /**
@@ -21,6 +23,26 @@ public class Account {
     @SerializedName("created_at")
     private String createdAt;
 
+    /**
+     * Map an API account object without reflection
+     *
+     * @return The account, or null for a missing or null value
+     */
+    static Account fromJson(JsonElement element) {
+        if (element == null || !element.isJsonObject()) {
+            return null;
+        }
+        JsonObject json = element.getAsJsonObject();
+        Account account = new Account();
+        account.id = Json.string(json, "id");
+        account.email = Json.string(json, "email");
+        account.apiKey = Json.string(json, "api_key");
+        account.pointsBalance = Json.intValue(json, "points_balance");
+        account.totalConversions = Json.intValue(json, "total_conversions");
+        account.createdAt = Json.string(json, "created_at");
+        return account;
+    }
+
     // Getters
     public String getId() {
         return id;
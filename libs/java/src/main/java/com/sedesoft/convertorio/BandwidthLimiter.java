@@ -0,0 +1,138 @@
+package com.sedesoft.convertorio;
+
+import okhttp3.Call;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket limiting transfer throughput in bytes per second
+ *
+ * Pass it to {@link ClientConfig.Builder#uploadBandwidth} or
+ * {@link ClientConfig.Builder#downloadBandwidth}; give several clients the same
+ * instance to share one limit between them. Transfers take tokens chunk by
+ * chunk as they stream, queueing behind each other once the bucket runs dry,
+ * so the combined rate holds however many transfers run at once. The rate can
+ * be changed at any time and applies to transfers already in progress.
+ */
+public class BandwidthLimiter {
+    private static final int WINDOW_SECONDS = 5;
+    // Throttled transfers notice cancellation and call timeouts this quickly
+    private static final long CANCEL_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private long bytesPerSecond;
+    private double tokens;
+    // Tokens ever added to the bucket; queued transfers wait for it to reach their target
+    private double credited;
+    private long lastRefill = System.nanoTime();
+
+    private final long[] windowBytes = new long[WINDOW_SECONDS + 1];
+    private final long[] windowSecond = new long[WINDOW_SECONDS + 1];
+    private long totalBytes;
+    private final long createdSecond = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+
+    /**
+     * @param bytesPerSecond Allowed rate, or 0 for unlimited
+     */
+    public BandwidthLimiter(long bytesPerSecond) {
+        setBytesPerSecond(bytesPerSecond);
+    }
+
+    /**
+     * Change the allowed rate, waking up transfers waiting at the old rate
+     *
+     * @param bytesPerSecond Allowed rate, or 0 for unlimited
+     */
+    public synchronized void setBytesPerSecond(long bytesPerSecond) {
+        if (bytesPerSecond < 0) {
+            throw new IllegalArgumentException("bytesPerSecond must not be negative");
+        }
+        refill();
+        this.bytesPerSecond = bytesPerSecond;
+        tokens = Math.min(tokens, burst());
+        notifyAll();
+    }
+
+    public synchronized long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * Throughput actually achieved over the last few seconds
+     */
+    public synchronized long getObservedBytesPerSecond() {
+        long currentSecond = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+        long bytes = 0;
+        for (int i = 0; i < windowBytes.length; i++) {
+            // The current second is still filling up, so only complete seconds count
+            if (windowSecond[i] < currentSecond && windowSecond[i] >= currentSecond - WINDOW_SECONDS) {
+                bytes += windowBytes[i];
+            }
+        }
+        long seconds = Math.max(1, Math.min(WINDOW_SECONDS, currentSecond - createdSecond));
+        return bytes / seconds;
+    }
+
+    /**
+     * Bytes transferred through this limiter since it was created
+     */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Take tokens for a chunk, blocking until the rate allows it
+     *
+     * @param call Call the chunk belongs to; waiting stops once it is cancelled or timed out
+     */
+    synchronized void acquire(int bytes, Call call) throws InterruptedIOException {
+        if (bytesPerSecond > 0) {
+            refill();
+            tokens -= bytes;
+            // Earlier transfers may already have driven the bucket negative, so this one waits behind them
+            double target = credited - Math.min(tokens, 0);
+            try {
+                while (bytesPerSecond > 0 && credited < target) {
+                    if (call.isCanceled()) {
+                        throw new InterruptedIOException("Canceled");
+                    }
+                    long waitNanos = (long) Math.ceil((target - credited) * 1_000_000_000d / bytesPerSecond);
+                    TimeUnit.NANOSECONDS.timedWait(this, Math.max(1, Math.min(waitNanos, CANCEL_CHECK_NANOS)));
+                    refill();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while throttled");
+            }
+        }
+        record(bytes);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        if (bytesPerSecond > 0) {
+            double added = (now - lastRefill) * (double) bytesPerSecond / 1_000_000_000d;
+            credited += added;
+            tokens = Math.min(tokens + added, burst());
+        }
+        lastRefill = now;
+    }
+
+    /**
+     * A tenth of a second worth of tokens may pile up while the link is idle
+     */
+    private double burst() {
+        return bytesPerSecond / 10d;
+    }
+
+    private void record(int bytes) {
+        totalBytes += bytes;
+        long second = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+        int slot = (int) Math.floorMod(second, (long) windowBytes.length);
+        if (windowSecond[slot] != second) {
+            windowSecond[slot] = second;
+            windowBytes[slot] = 0;
+        }
+        windowBytes[slot] += bytes;
+    }
+}
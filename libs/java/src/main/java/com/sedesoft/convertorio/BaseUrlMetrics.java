@@ -0,0 +1,64 @@
+package com.sedesoft.convertorio;
+
+/**
+ * Snapshot of one API base URL's latency and health
+ */
+public class BaseUrlMetrics {
+    private final String baseUrl;
+    private final double latencyMs;
+    private final int inFlight;
+    private final long requests;
+    private final long failures;
+    private final boolean ejected;
+
+    BaseUrlMetrics(String baseUrl, double latencyMs, int inFlight, long requests, long failures, boolean ejected) {
+        this.baseUrl = baseUrl;
+        this.latencyMs = latencyMs;
+        this.inFlight = inFlight;
+        this.requests = requests;
+        this.failures = failures;
+        this.ejected = ejected;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * Peak-sensitive moving average of response latency
+     */
+    public double getLatencyMs() {
+        return latencyMs;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    /**
+     * Whether the base URL is out of rotation until a background probe succeeds
+     */
+    public boolean isEjected() {
+        return ejected;
+    }
+
+    @Override
+    public String toString() {
+        return "BaseUrlMetrics{" +
+                "baseUrl='" + baseUrl + '\'' +
+                ", latencyMs=" + String.format("%.1f", latencyMs) +
+                ", inFlight=" + inFlight +
+                ", requests=" + requests +
+                ", failures=" + failures +
+                ", ejected=" + ejected +
+                '}';
+    }
+}
@@ -0,0 +1,220 @@
+package com.sedesoft.convertorio;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picks an API base URL per request
+ *
+ * Tracks a peak-sensitive, time-decayed EWMA of response latency per base URL
+ * and picks the better of two random candidates, weighing latency by requests
+ * in flight. A base URL that fails repeatedly is ejected and probed in the
+ * background until it answers again. With a single base URL nothing is tracked.
+ */
+final class BaseUrlSelector {
+    private static final double DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final int EJECT_AFTER_FAILURES = 3;
+    private static final long PROBE_INTERVAL_MS = 5000;
+
+    interface Probe {
+        /**
+         * @return Latency in nanoseconds, or -1 if the base URL is still unhealthy
+         */
+        long probe(String baseUrl);
+    }
+
+    static final class Route {
+        final String url;
+        // Guarded by the selector
+        double ewmaNanos;
+        long lastSample;
+        int inFlight;
+        int consecutiveFailures;
+        boolean ejected;
+        long requests;
+        long failures;
+
+        Route(String url) {
+            this.url = url;
+        }
+    }
+
+    private final List<Route> routes = new ArrayList<>();
+    private final Probe probe;
+    private ScheduledExecutorService prober;
+
+    BaseUrlSelector(List<String> baseUrls, Probe probe) {
+        for (String baseUrl : baseUrls) {
+            routes.add(new Route(baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl));
+        }
+        this.probe = probe;
+    }
+
+    boolean isSingle() {
+        return routes.size() == 1;
+    }
+
+    /**
+     * Pick a base URL for a request and count it as in flight until {@link #release}
+     *
+     * @param avoid Route to skip, e.g. one that just failed, or null
+     */
+    Route acquire(Route avoid) {
+        if (isSingle()) {
+            return routes.get(0);
+        }
+
+        synchronized (this) {
+            Route chosen = choose(avoid);
+            chosen.inFlight++;
+            return chosen;
+        }
+    }
+
+    /**
+     * Pick a base URL without tracking the request, for long-lived streams
+     */
+    synchronized String choose() {
+        return choose(null).url;
+    }
+
+    /**
+     * Pick another base URL than a request already uses, without tracking it, for hedges
+     */
+    synchronized String chooseOther(Route avoid) {
+        return isSingle() ? avoid.url : choose(avoid).url;
+    }
+
+    private Route choose(Route avoid) {
+        List<Route> candidates = new ArrayList<>(routes.size());
+        for (Route route : routes) {
+            if (!route.ejected && route != avoid) {
+                candidates.add(route);
+            }
+        }
+        if (candidates.isEmpty()) {
+            // Everything is ejected: keep trying rather than fail outright
+            for (Route route : routes) {
+                if (route != avoid) {
+                    candidates.add(route);
+                }
+            }
+        }
+
+        Route chosen;
+        if (candidates.size() == 1) {
+            chosen = candidates.get(0);
+        } else {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int first = random.nextInt(candidates.size());
+            int second = random.nextInt(candidates.size() - 1);
+            if (second >= first) {
+                second++;
+            }
+            Route a = candidates.get(first);
+            Route b = candidates.get(second);
+            long now = System.nanoTime();
+            chosen = score(a, now) <= score(b, now) ? a : b;
+        }
+        return chosen;
+    }
+
+    /**
+     * Record the outcome of a request
+     *
+     * @param latencyNanos Time to a response, or -1 to leave the latency estimate alone
+     * @param healthy false for I/O errors and 5xx/429 responses
+     */
+    void release(Route route, long latencyNanos, boolean healthy) {
+        if (isSingle()) {
+            return;
+        }
+
+        synchronized (this) {
+            route.inFlight--;
+            route.requests++;
+            if (healthy) {
+                route.consecutiveFailures = 0;
+                if (latencyNanos >= 0) {
+                    sample(route, latencyNanos);
+                }
+            } else {
+                route.failures++;
+                if (++route.consecutiveFailures >= EJECT_AFTER_FAILURES && !route.ejected) {
+                    route.ejected = true;
+                    startProbing();
+                }
+            }
+        }
+    }
+
+    synchronized List<BaseUrlMetrics> metrics() {
+        List<BaseUrlMetrics> metrics = new ArrayList<>();
+        for (Route route : routes) {
+            metrics.add(new BaseUrlMetrics(route.url, route.ewmaNanos / 1_000_000d, route.inFlight,
+                route.requests, route.failures, route.ejected));
+        }
+        return metrics;
+    }
+
+    /**
+     * The estimate fades while a base URL gets no requests, so one that was slow once is tried again
+     */
+    private static double score(Route route, long now) {
+        double weight = route.lastSample == 0 ? 1 : Math.exp(-(now - route.lastSample) / DECAY_NANOS);
+        return route.ewmaNanos * weight * (route.inFlight + 1);
+    }
+
+    /**
+     * Slower responses take effect at once, faster ones fade in over the decay time
+     */
+    private static void sample(Route route, long latencyNanos) {
+        long now = System.nanoTime();
+        if (latencyNanos > route.ewmaNanos || route.lastSample == 0) {
+            route.ewmaNanos = latencyNanos;
+        } else {
+            double weight = Math.exp(-(now - route.lastSample) / DECAY_NANOS);
+            route.ewmaNanos = route.ewmaNanos * weight + latencyNanos * (1 - weight);
+        }
+        route.lastSample = now;
+    }
+
+    private void startProbing() {
+        if (prober == null) {
+            prober = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "convertorio-probe");
+                thread.setDaemon(true);
+                return thread;
+            });
+            prober.scheduleWithFixedDelay(this::probeEjected, PROBE_INTERVAL_MS, PROBE_INTERVAL_MS,
+                TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void probeEjected() {
+        List<Route> ejected = new ArrayList<>();
+        synchronized (this) {
+            for (Route route : routes) {
+                if (route.ejected) {
+                    ejected.add(route);
+                }
+            }
+        }
+
+        for (Route route : ejected) {
+            long latencyNanos = probe.probe(route.url);
+            if (latencyNanos >= 0) {
+                synchronized (this) {
+                    route.ejected = false;
+                    route.consecutiveFailures = 0;
+                    route.ewmaNanos = latencyNanos;
+                    route.lastSample = System.nanoTime();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.sedesoft.convertorio;
+
+/**
+ * Snapshot of a client's points projection, see {@link BudgetPolicy}
+ */
+public class BudgetMetrics {
+    private final long pointsBalance;
+    private final long projectedBalance;
+    private final long reserved;
+    private final int inFlight;
+    private final int waiting;
+    private final long admitted;
+    private final long rejected;
+
+    BudgetMetrics(long pointsBalance, long projectedBalance, long reserved, int inFlight, int waiting,
+                  long admitted, long rejected) {
+        this.pointsBalance = pointsBalance;
+        this.projectedBalance = projectedBalance;
+        this.reserved = reserved;
+        this.inFlight = inFlight;
+        this.waiting = waiting;
+        this.admitted = admitted;
+        this.rejected = rejected;
+    }
+
+    /**
+     * Balance at the last refresh, or -1 before the first one
+     */
+    public long getPointsBalance() {
+        return pointsBalance;
+    }
+
+    /**
+     * Balance less the points spent and reserved since the last refresh, or -1 before the first one
+     */
+    public long getProjectedBalance() {
+        return projectedBalance;
+    }
+
+    /**
+     * Estimated points of conversions admitted but not yet confirmed, which the server has not charged
+     */
+    public long getReserved() {
+        return reserved;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Conversions waiting for points
+     */
+    public int getWaiting() {
+        return waiting;
+    }
+
+    public long getAdmitted() {
+        return admitted;
+    }
+
+    /**
+     * Conversions turned away before their upload
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    @Override
+    public String toString() {
+        return "BudgetMetrics{" +
+                "pointsBalance=" + pointsBalance +
+                ", projectedBalance=" + projectedBalance +
+                ", reserved=" + reserved +
+                ", inFlight=" + inFlight +
+                ", waiting=" + waiting +
+                ", admitted=" + admitted +
+                ", rejected=" + rejected +
+                '}';
+    }
+}
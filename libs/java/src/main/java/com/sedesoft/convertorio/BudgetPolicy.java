@@ -0,0 +1,165 @@
+package com.sedesoft.convertorio;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Admission control against the account's points balance
+ *
+ * Before a conversion asks for an upload URL, its cost is estimated from
+ * the tokens recently used by jobs of the same format pair and reserved
+ * from the projected balance: the last known balance, less the points
+ * spent and reserved since. The balance is refreshed in the background.
+ * A conversion that does not fit waits while other conversions are in
+ * flight, as they may cost less than estimated or fail, and is rejected
+ * once nothing is left in flight, before any upload. Conversions in
+ * low-priority lanes must also leave a reserve for the other lanes.
+ *
+ * Each client keeps its own projection, so clients sharing an account
+ * only see each other's spending at the next refresh.
+ */
+public class BudgetPolicy {
+    private final Duration refreshInterval;
+    private final long minimumBalance;
+    private final Set<String> lowPriorityLanes;
+    private final long lowPriorityReserve;
+    private final int defaultCost;
+    private final Map<String, Integer> costs;
+    private final int learnFromJobs;
+
+    private BudgetPolicy(Builder builder) {
+        this.refreshInterval = builder.refreshInterval;
+        this.minimumBalance = builder.minimumBalance;
+        this.lowPriorityLanes = Collections.unmodifiableSet(new HashSet<>(builder.lowPriorityLanes));
+        this.lowPriorityReserve = builder.lowPriorityReserve;
+        this.defaultCost = builder.defaultCost;
+        this.costs = Collections.unmodifiableMap(new HashMap<>(builder.costs));
+        this.learnFromJobs = builder.learnFromJobs;
+    }
+
+    public Duration getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    public long getMinimumBalance() {
+        return minimumBalance;
+    }
+
+    public Set<String> getLowPriorityLanes() {
+        return lowPriorityLanes;
+    }
+
+    public long getLowPriorityReserve() {
+        return lowPriorityReserve;
+    }
+
+    public int getDefaultCost() {
+        return defaultCost;
+    }
+
+    /**
+     * Fixed costs by format pair, keyed {@code source>target}
+     */
+    public Map<String, Integer> getCosts() {
+        return costs;
+    }
+
+    public int getLearnFromJobs() {
+        return learnFromJobs;
+    }
+
+    static String pairKey(String sourceFormat, String targetFormat) {
+        return String.valueOf(sourceFormat).toLowerCase() + ">" + String.valueOf(targetFormat).toLowerCase();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private Duration refreshInterval = Duration.ofSeconds(30);
+        private long minimumBalance;
+        private final Set<String> lowPriorityLanes = new HashSet<>();
+        private long lowPriorityReserve;
+        private int defaultCost = 1;
+        private final Map<String, Integer> costs = new HashMap<>();
+        private int learnFromJobs = 100;
+
+        /**
+         * How often the balance is fetched from the account (default: 30 s)
+         */
+        public Builder refreshInterval(Duration refreshInterval) {
+            if (refreshInterval.isNegative() || refreshInterval.isZero()) {
+                throw new IllegalArgumentException("refreshInterval must be positive");
+            }
+            this.refreshInterval = refreshInterval;
+            return this;
+        }
+
+        /**
+         * Points never spent (default: 0)
+         */
+        public Builder minimumBalance(long minimumBalance) {
+            this.minimumBalance = minimumBalance;
+            return this;
+        }
+
+        /**
+         * Lanes, see {@link ConversionOptions.Builder#lane}, whose conversions must leave the low-priority reserve
+         */
+        public Builder lowPriorityLanes(String... lanes) {
+            lowPriorityLanes.addAll(Arrays.asList(lanes));
+            return this;
+        }
+
+        /**
+         * Points above the minimum balance kept for lanes that are not low priority (default: 0)
+         */
+        public Builder lowPriorityReserve(long lowPriorityReserve) {
+            this.lowPriorityReserve = lowPriorityReserve;
+            return this;
+        }
+
+        /**
+         * Estimate for format pairs without history or a fixed cost (default: 1)
+         */
+        public Builder defaultCost(int defaultCost) {
+            if (defaultCost < 0) {
+                throw new IllegalArgumentException("defaultCost must not be negative");
+            }
+            this.defaultCost = defaultCost;
+            return this;
+        }
+
+        /**
+         * Fixed cost of a format pair, used instead of learned estimates
+         */
+        public Builder cost(String sourceFormat, String targetFormat, int cost) {
+            if (cost < 0) {
+                throw new IllegalArgumentException("cost must not be negative");
+            }
+            costs.put(pairKey(sourceFormat, targetFormat), cost);
+            return this;
+        }
+
+        /**
+         * Recent completed jobs read once to seed the estimates; 0 learns only from this client's jobs (default: 100)
+         */
+        public Builder learnFromJobs(int learnFromJobs) {
+            if (learnFromJobs < 0 || learnFromJobs > 100) {
+                throw new IllegalArgumentException("learnFromJobs must be between 0 and 100");
+            }
+            this.learnFromJobs = learnFromJobs;
+            return this;
+        }
+
+        public BudgetPolicy build() {
+            return new BudgetPolicy(this);
+        }
+    }
+}
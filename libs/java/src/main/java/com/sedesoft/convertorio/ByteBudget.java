@@ -0,0 +1,94 @@
+package com.sedesoft.convertorio;
+
+import java.util.ArrayDeque;
+
+/**
+ * Client-wide limit on bytes in transit for one direction
+ *
+ * Queued transfers are admitted in arrival order, except that a transfer
+ * that fits the remaining budget may pass larger ones queued ahead of it, so
+ * one large file does not hold back every small one behind it. A queued
+ * transfer can be passed at most {@link #MAX_OVERTAKES} times; after that
+ * nothing behind it starts until it does, so a stream of small files cannot
+ * starve a large one. A transfer larger than the whole budget is admitted alone.
+ */
+final class ByteBudget {
+    // Waiters re-check cancellation and the deadline this often
+    private static final long CHECK_INTERVAL_MS = 100;
+    static final int MAX_OVERTAKES = 8;
+
+    private final String direction;
+    private final long capacity;
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+    private long available;
+
+    ByteBudget(String direction, long capacity) {
+        this.direction = direction;
+        this.capacity = capacity;
+        this.available = capacity;
+    }
+
+    /**
+     * Wait until the transfer fits the budget
+     *
+     * @return Bytes reserved, to pass back to {@link #release}
+     * @throws ConvertorioException if the conversion is cancelled or runs out of time while queued
+     */
+    synchronized long acquire(long bytes, ConversionContext context) throws ConvertorioException {
+        Waiter waiter = new Waiter(Math.min(Math.max(bytes, 1), capacity));
+        waiters.addLast(waiter);
+        try {
+            while (!canAdmit(waiter)) {
+                context.check();
+                wait(Math.max(1, Math.min(CHECK_INTERVAL_MS, context.remainingMillis())));
+            }
+            for (Waiter ahead : waiters) {
+                if (ahead == waiter) {
+                    break;
+                }
+                ahead.overtaken++;
+            }
+            available -= waiter.bytes;
+            return waiter.bytes;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConvertorioException("Interrupted while waiting for " + direction + " budget");
+        } finally {
+            waiters.remove(waiter);
+            // The next waiter may fit into what is left
+            notifyAll();
+        }
+    }
+
+    synchronized void release(long reserved) {
+        available += reserved;
+        notifyAll();
+    }
+
+    /**
+     * The transfer fits and no transfer queued ahead of it has been passed too often
+     */
+    private boolean canAdmit(Waiter waiter) {
+        if (available < waiter.bytes) {
+            return false;
+        }
+        for (Waiter ahead : waiters) {
+            if (ahead == waiter) {
+                return true;
+            }
+            if (ahead.overtaken >= MAX_OVERTAKES) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Waiter {
+        final long bytes;
+        int overtaken;
+
+        Waiter(long bytes) {
+            this.bytes = bytes;
+        }
+    }
+}
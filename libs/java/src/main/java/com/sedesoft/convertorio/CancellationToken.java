@@ -0,0 +1,58 @@
+package com.sedesoft.convertorio;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handle for cancelling conversions from another thread
+ *
+ * Pass it to {@link ConversionOptions.Builder#cancellationToken} and call
+ * {@link #cancel()} to abort the conversion: the HTTP call in flight is
+ * cancelled, polling stops and any partially written output file is deleted.
+ * One token may be shared by several conversions.
+ */
+public class CancellationToken {
+    private final CountDownLatch cancelled = new CountDownLatch(1);
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Cancel every conversion using this token
+     */
+    public void cancel() {
+        if (cancelled.getCount() > 0) {
+            cancelled.countDown();
+            for (Runnable listener : listeners) {
+                listener.run();
+            }
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled.getCount() == 0;
+    }
+
+    /**
+     * Register a callback run on cancellation, or immediately if already cancelled
+     */
+    void register(Runnable listener) {
+        listeners.add(listener);
+        if (isCancelled()) {
+            listener.run();
+        }
+    }
+
+    void unregister(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Wait until cancelled or the timeout elapses
+     *
+     * @return true if cancelled
+     */
+    boolean await(long timeoutMs) throws InterruptedException {
+        return cancelled.await(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+}
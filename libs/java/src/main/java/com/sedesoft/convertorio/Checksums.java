@@ -0,0 +1,85 @@
+package com.sedesoft.convertorio;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.zip.CRC32C;
+
+/**
+ * Running MD5, SHA-256 and CRC32C digests of bytes as they pass through a transfer
+ */
+final class Checksums {
+    private final MessageDigest md5;
+    private final MessageDigest sha256;
+    private final CRC32C crc32c;
+    private Digests digests;
+
+    Checksums() {
+        try {
+            this.md5 = MessageDigest.getInstance("MD5");
+            this.sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to provide both
+            throw new IllegalStateException(e);
+        }
+        this.crc32c = new CRC32C();
+    }
+
+    void update(byte[] data, int offset, int length) {
+        md5.update(data, offset, length);
+        sha256.update(data, offset, length);
+        crc32c.update(data, offset, length);
+    }
+
+    void update(ByteBuffer data) {
+        md5.update(data.duplicate());
+        sha256.update(data.duplicate());
+        crc32c.update(data.duplicate());
+    }
+
+    /**
+     * Digests of a whole buffer, leaving its position unchanged
+     */
+    static Digests of(ByteBuffer data) {
+        Checksums checksums = new Checksums();
+        checksums.update(data);
+        return checksums.finish();
+    }
+
+    /**
+     * Finish the digests; the instance must not be updated afterwards
+     */
+    Digests finish() {
+        if (digests == null) {
+            long crc = crc32c.getValue();
+            byte[] crcBytes = new byte[] {(byte) (crc >>> 24), (byte) (crc >>> 16), (byte) (crc >>> 8), (byte) crc};
+            digests = new Digests(md5.digest(), sha256.digest(), crcBytes);
+        }
+        return digests;
+    }
+
+    static final class Digests {
+        final byte[] md5;
+        final byte[] sha256;
+        final byte[] crc32c;
+
+        private Digests(byte[] md5, byte[] sha256, byte[] crc32c) {
+            this.md5 = md5;
+            this.sha256 = sha256;
+            this.crc32c = crc32c;
+        }
+
+        static String hex(byte[] digest) {
+            StringBuilder builder = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return builder.toString();
+        }
+
+        static String base64(byte[] digest) {
+            return Base64.getEncoder().encodeToString(digest);
+        }
+    }
+}
@@ -1,15 +1,56 @@
 package com.sedesoft.convertorio;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Configuration for Convertorio client
  */
 public class ClientConfig {
     private final String apiKey;
     private final String baseUrl;
+    private final List<String> baseUrls;
+    private final boolean streamJobStatus;
+    private final Long maxFileSize;
+    private final boolean preDownscale;
+    private final boolean computeChecksums;
+    private final HedgingPolicy hedgingPolicy;
+    private final IsolationPolicy isolationPolicy;
+    private final Tracer tracer;
+    private final long maxUploadBytesInFlight;
+    private final long maxDownloadBytesInFlight;
+    private final BandwidthLimiter uploadBandwidth;
+    private final BandwidthLimiter downloadBandwidth;
+    private final TimeoutPolicy timeoutPolicy;
+    private final boolean predictivePolling;
+    private final SchedulingPolicy schedulingPolicy;
+    private final int sinkThreads;
+    private final long sinkBufferBytes;
+    private final long sinkSpillBytes;
+    private final BudgetPolicy budgetPolicy;
 
     private ClientConfig(Builder builder) {
         this.apiKey = builder.apiKey;
         this.baseUrl = builder.baseUrl;
+        this.baseUrls = builder.baseUrls;
+        this.streamJobStatus = builder.streamJobStatus;
+        this.maxFileSize = builder.maxFileSize;
+        this.preDownscale = builder.preDownscale;
+        this.computeChecksums = builder.computeChecksums;
+        this.hedgingPolicy = builder.hedgingPolicy;
+        this.isolationPolicy = builder.isolationPolicy;
+        this.tracer = builder.tracer;
+        this.maxUploadBytesInFlight = builder.maxUploadBytesInFlight;
+        this.maxDownloadBytesInFlight = builder.maxDownloadBytesInFlight;
+        this.uploadBandwidth = builder.uploadBandwidth;
+        this.downloadBandwidth = builder.downloadBandwidth;
+        this.timeoutPolicy = builder.timeoutPolicy;
+        this.predictivePolling = builder.predictivePolling;
+        this.schedulingPolicy = builder.schedulingPolicy;
+        this.sinkThreads = builder.sinkThreads;
+        this.sinkBufferBytes = builder.sinkBufferBytes;
+        this.sinkSpillBytes = builder.sinkSpillBytes;
+        this.budgetPolicy = builder.budgetPolicy;
     }
 
     public String getApiKey() {
@@ -20,13 +61,137 @@ public class ClientConfig {
         return baseUrl;
     }
 
+    public List<String> getBaseUrls() {
+        return baseUrls;
+    }
+
+    public boolean isStreamJobStatus() {
+        return streamJobStatus;
+    }
+
+    public Long getMaxFileSize() {
+        return maxFileSize;
+    }
+
+    public boolean isPreDownscale() {
+        return preDownscale;
+    }
+
+    public boolean isComputeChecksums() {
+        return computeChecksums;
+    }
+
+    public HedgingPolicy getHedgingPolicy() {
+        return hedgingPolicy;
+    }
+
+    public IsolationPolicy getIsolationPolicy() {
+        return isolationPolicy;
+    }
+
+    public Tracer getTracer() {
+        return tracer;
+    }
+
+    public long getMaxUploadBytesInFlight() {
+        return maxUploadBytesInFlight;
+    }
+
+    public long getMaxDownloadBytesInFlight() {
+        return maxDownloadBytesInFlight;
+    }
+
+    public BandwidthLimiter getUploadBandwidth() {
+        return uploadBandwidth;
+    }
+
+    public BandwidthLimiter getDownloadBandwidth() {
+        return downloadBandwidth;
+    }
+
+    public TimeoutPolicy getTimeoutPolicy() {
+        return timeoutPolicy;
+    }
+
+    public boolean isPredictivePolling() {
+        return predictivePolling;
+    }
+
+    public SchedulingPolicy getSchedulingPolicy() {
+        return schedulingPolicy;
+    }
+
+    public int getSinkThreads() {
+        return sinkThreads;
+    }
+
+    public long getSinkBufferBytes() {
+        return sinkBufferBytes;
+    }
+
+    public long getSinkSpillBytes() {
+        return sinkSpillBytes;
+    }
+
+    public BudgetPolicy getBudgetPolicy() {
+        return budgetPolicy;
+    }
+
     public static Builder builder() {
         return new Builder();
     }
 
+    /**
+     * Builder pre-filled with this configuration, e.g. to derive a config for another API key
+     */
+    public Builder toBuilder() {
+        Builder builder = new Builder();
+        builder.apiKey = apiKey;
+        builder.baseUrl = baseUrl;
+        builder.baseUrls = baseUrls;
+        builder.streamJobStatus = streamJobStatus;
+        builder.maxFileSize = maxFileSize;
+        builder.preDownscale = preDownscale;
+        builder.computeChecksums = computeChecksums;
+        builder.hedgingPolicy = hedgingPolicy;
+        builder.isolationPolicy = isolationPolicy;
+        builder.tracer = tracer;
+        builder.maxUploadBytesInFlight = maxUploadBytesInFlight;
+        builder.maxDownloadBytesInFlight = maxDownloadBytesInFlight;
+        builder.uploadBandwidth = uploadBandwidth;
+        builder.downloadBandwidth = downloadBandwidth;
+        builder.timeoutPolicy = timeoutPolicy;
+        builder.predictivePolling = predictivePolling;
+        builder.schedulingPolicy = schedulingPolicy;
+        builder.sinkThreads = sinkThreads;
+        builder.sinkBufferBytes = sinkBufferBytes;
+        builder.sinkSpillBytes = sinkSpillBytes;
+        builder.budgetPolicy = budgetPolicy;
+        return builder;
+    }
+
     public static class Builder {
         private String apiKey;
         private String baseUrl;
+        private List<String> baseUrls;
+        private boolean streamJobStatus;
+        private Long maxFileSize;
+        private boolean preDownscale;
+        private boolean computeChecksums;
+        private HedgingPolicy hedgingPolicy;
+        private IsolationPolicy isolationPolicy;
+        private Tracer tracer;
+        private long maxUploadBytesInFlight;
+        private long maxDownloadBytesInFlight;
+        private BandwidthLimiter uploadBandwidth;
+        private BandwidthLimiter downloadBandwidth;
+        private TimeoutPolicy timeoutPolicy;
+        private boolean predictivePolling;
+        private SchedulingPolicy schedulingPolicy;
+        private int sinkThreads = 4;
+        private long sinkBufferBytes = 4L << 20;
+        private long sinkSpillBytes = 256L << 20;
+        private BudgetPolicy budgetPolicy;
 
         public Builder apiKey(String apiKey) {
             this.apiKey = apiKey;
@@ -38,6 +203,192 @@ public class ClientConfig {
             return this;
         }
 
+        /**
+         * Several API endpoints serving the same account, e.g. regions or a local
+         * proxy; each request goes to the one answering fastest and failing
+         * endpoints are taken out of rotation (overrides baseUrl)
+         */
+        public Builder baseUrls(List<String> baseUrls) {
+            this.baseUrls = new ArrayList<>(baseUrls);
+            return this;
+        }
+
+        /**
+         * Wait for job status over a single server-sent events connection
+         * instead of fixed-interval polling. Falls back to polling when the
+         * server does not support streaming (404, 405, 406 or a response that
+         * is not text/event-stream), and for a single wait when the stream
+         * fails otherwise or sends a malformed event. A stream the server
+         * closes is resumed until the job finishes; the wait also falls back
+         * once the connection has been refused or dropped before delivering
+         * an event more than 5 times in a row.
+         */
+        public Builder streamJobStatus(boolean streamJobStatus) {
+            this.streamJobStatus = streamJobStatus;
+            return this;
+        }
+
+        /**
+         * Largest input file accepted before uploading, in bytes
+         * (default: 20 MB, 0 disables the check)
+         */
+        public Builder maxFileSize(long maxFileSize) {
+            this.maxFileSize = maxFileSize;
+            return this;
+        }
+
+        /**
+         * Shrink JPG, PNG, BMP and TIFF inputs locally when resize_width,
+         * resize_height or icon_size asks for a much smaller output, and
+         * upload a lossless PNG intermediate instead of the original
+         */
+        public Builder preDownscale(boolean preDownscale) {
+            this.preDownscale = preDownscale;
+            return this;
+        }
+
+        /**
+         * Send Content-MD5 on uploads, verify downloads against Content-MD5
+         * and x-amz-checksum-* response headers, and expose SHA-256/CRC32C
+         * digests on the conversion result
+         */
+        public Builder computeChecksums(boolean computeChecksums) {
+            this.computeChecksums = computeChecksums;
+            return this;
+        }
+
+        /**
+         * Hedge idempotent reads (job status, job list, account) that are
+         * slower than usual with a second request
+         */
+        public Builder hedgingPolicy(HedgingPolicy hedgingPolicy) {
+            this.hedgingPolicy = hedgingPolicy;
+            return this;
+        }
+
+        /**
+         * Give API, upload and download calls their own circuit breaker and
+         * concurrency limit
+         */
+        public Builder isolationPolicy(IsolationPolicy isolationPolicy) {
+            this.isolationPolicy = isolationPolicy;
+            return this;
+        }
+
+        /**
+         * Report a span per conversion and per stage, and send W3C
+         * traceparent headers on API requests
+         */
+        public Builder tracer(Tracer tracer) {
+            this.tracer = tracer;
+            return this;
+        }
+
+        /**
+         * Limit the total size of files being uploaded at once across all
+         * conversions; uploads queue in arrival order, but a smaller one may pass
+         * a larger one a bounded number of times (default: 0, unlimited)
+         */
+        public Builder maxUploadBytesInFlight(long maxUploadBytesInFlight) {
+            this.maxUploadBytesInFlight = maxUploadBytesInFlight;
+            return this;
+        }
+
+        /**
+         * Limit the total size of files being downloaded at once across all
+         * conversions, weighing each download by its input's size (default: 0, unlimited)
+         */
+        public Builder maxDownloadBytesInFlight(long maxDownloadBytesInFlight) {
+            this.maxDownloadBytesInFlight = maxDownloadBytesInFlight;
+            return this;
+        }
+
+        /**
+         * Throttle uploads to storage; share the limiter between clients for a global limit
+         */
+        public Builder uploadBandwidth(BandwidthLimiter uploadBandwidth) {
+            this.uploadBandwidth = uploadBandwidth;
+            return this;
+        }
+
+        /**
+         * Throttle downloads from storage; share the limiter between clients for a global limit
+         */
+        public Builder downloadBandwidth(BandwidthLimiter downloadBandwidth) {
+            this.downloadBandwidth = downloadBandwidth;
+            return this;
+        }
+
+        /**
+         * Per-stage timeouts; uploads and downloads scale with their size (default: TimeoutPolicy defaults)
+         */
+        public Builder timeoutPolicy(TimeoutPolicy timeoutPolicy) {
+            this.timeoutPolicy = timeoutPolicy;
+            return this;
+        }
+
+        /**
+         * Time status checks from processing times observed for the same format
+         * pair and input size instead of polling at a fixed interval
+         */
+        public Builder predictivePolling(boolean predictivePolling) {
+            this.predictivePolling = predictivePolling;
+            return this;
+        }
+
+        /**
+         * Share upload and download capacity between lanes by weight, see {@link ConversionOptions.Builder#lane}
+         */
+        public Builder schedulingPolicy(SchedulingPolicy schedulingPolicy) {
+            this.schedulingPolicy = schedulingPolicy;
+            return this;
+        }
+
+        /**
+         * Threads writing converted files to their {@link ResultSink} (default: 4)
+         */
+        public Builder sinkThreads(int sinkThreads) {
+            if (sinkThreads < 1) {
+                throw new IllegalArgumentException("sinkThreads must be at least 1");
+            }
+            this.sinkThreads = sinkThreads;
+            return this;
+        }
+
+        /**
+         * Bytes of each download held in memory while its sink catches up; the rest
+         * spills to a temporary file of at most {@link #sinkSpillBytes} (default: 4 MiB)
+         *
+         * Once both are full the download waits for the sink, so a slow sink slows the
+         * download down instead of filling the disk.
+         */
+        public Builder sinkBufferBytes(long sinkBufferBytes) {
+            if (sinkBufferBytes < 0) {
+                throw new IllegalArgumentException("sinkBufferBytes must not be negative");
+            }
+            this.sinkBufferBytes = sinkBufferBytes;
+            return this;
+        }
+
+        /**
+         * Size cap of each download's temporary spill file, 0 to never spill (default: 256 MiB)
+         */
+        public Builder sinkSpillBytes(long sinkSpillBytes) {
+            if (sinkSpillBytes < 0) {
+                throw new IllegalArgumentException("sinkSpillBytes must not be negative");
+            }
+            this.sinkSpillBytes = sinkSpillBytes;
+            return this;
+        }
+
+        /**
+         * Only start conversions the account's points can pay for, see {@link BudgetPolicy}
+         */
+        public Builder budgetPolicy(BudgetPolicy budgetPolicy) {
+            this.budgetPolicy = budgetPolicy;
+            return this;
+        }
+
         public ClientConfig build() {
             return new ClientConfig(this);
         }
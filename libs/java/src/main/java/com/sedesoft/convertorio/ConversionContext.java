@@ -0,0 +1,199 @@
+package com.sedesoft.convertorio;
+
+import okhttp3.Call;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deadline, cancellation and tracing state of one conversion
+ *
+ * Every HTTP call of the conversion is attached here so cancellation can
+ * abort it, and gets the remaining time budget as its call timeout. Stages
+ * run as child spans of the conversion's root span.
+ */
+final class ConversionContext implements AutoCloseable {
+    private final CancellationToken token;
+    private final long deadlineNanos;
+    private final Runnable canceller = this::cancelCalls;
+    // Bounded by the number of requests one conversion makes; hedged reads attach two at once
+    private final Set<Call> calls = ConcurrentHashMap.newKeySet();
+    private final Tracer tracer;
+    private final TraceSpan rootSpan;
+    private volatile TraceSpan activeSpan;
+
+    interface Stage<T> {
+        T run(TraceSpan span) throws ConvertorioException;
+    }
+
+    private ConversionContext(CancellationToken token, long deadlineNanos, Tracer tracer) {
+        this.token = token;
+        this.deadlineNanos = deadlineNanos;
+        this.tracer = tracer;
+        this.rootSpan = tracer.startSpan("convertorio.convert", null);
+        this.activeSpan = rootSpan;
+        if (token != null) {
+            token.register(canceller);
+        }
+    }
+
+    static ConversionContext of(ConversionOptions options, Duration defaultTimeout, Tracer tracer) {
+        Duration timeout = options.getTimeout() != null ? options.getTimeout() : defaultTimeout;
+        long deadlineNanos = timeout != null ? System.nanoTime() + timeout.toNanos() : Long.MAX_VALUE;
+        return new ConversionContext(options.getCancellationToken(), deadlineNanos, tracer);
+    }
+
+    TraceSpan rootSpan() {
+        return rootSpan;
+    }
+
+    /**
+     * Span of the stage currently running, used to tag and propagate HTTP calls
+     */
+    TraceSpan activeSpan() {
+        return activeSpan;
+    }
+
+    /**
+     * Run one stage of the conversion in its own child span and flight recorder event
+     */
+    <T> T stage(String name, Stage<T> body) throws ConvertorioException {
+        JfrEvents.StageEvent event = JfrEvents.stage(name);
+        TraceSpan span = tracer.startSpan("convertorio." + name, rootSpan);
+        if (event != null) {
+            span = new RecordedSpan(span, event);
+        }
+        activeSpan = span;
+        try {
+            return body.run(span);
+        } catch (ConvertorioException | RuntimeException e) {
+            span.recordError(e);
+            throw e;
+        } finally {
+            span.end();
+            activeSpan = rootSpan;
+            if (event != null) {
+                event.commit();
+            }
+        }
+    }
+
+    boolean hasDeadline() {
+        return deadlineNanos != Long.MAX_VALUE;
+    }
+
+    long remainingMillis() {
+        if (!hasDeadline()) {
+            return Long.MAX_VALUE;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+    }
+
+    boolean isCancelled() {
+        return token != null && token.isCancelled();
+    }
+
+    /**
+     * Fail if the conversion was cancelled or ran out of time
+     */
+    void check() throws ConvertorioException {
+        if (token != null && token.isCancelled()) {
+            throw new ConvertorioException("Conversion cancelled");
+        }
+        if (hasDeadline() && System.nanoTime() - deadlineNanos >= 0) {
+            throw new ConvertorioException("Conversion deadline exceeded");
+        }
+    }
+
+    /**
+     * Bind a call to this conversion, never letting its timeout outlast the remaining time budget
+     */
+    void attach(Call call) throws ConvertorioException {
+        check();
+        if (hasDeadline()) {
+            long remaining = Math.max(1, remainingMillis());
+            long stageTimeout = TimeUnit.NANOSECONDS.toMillis(call.timeout().timeoutNanos());
+            call.timeout().timeout(stageTimeout > 0 ? Math.min(stageTimeout, remaining) : remaining,
+                TimeUnit.MILLISECONDS);
+        }
+        calls.add(call);
+        if (token != null && token.isCancelled()) {
+            call.cancel();
+        }
+    }
+
+    /**
+     * Sleep between polls, waking up early on cancellation and never past the deadline
+     */
+    void sleep(long millis) throws ConvertorioException {
+        long wait = Math.min(millis, remainingMillis());
+        try {
+            if (token != null) {
+                token.await(Math.max(0, wait));
+            } else if (wait > 0) {
+                Thread.sleep(wait);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConvertorioException("Polling interrupted");
+        }
+        check();
+    }
+
+    private void cancelCalls() {
+        for (Call call : calls) {
+            call.cancel();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (token != null) {
+            token.unregister(canceller);
+        }
+        rootSpan.end();
+    }
+
+    /**
+     * Copies the attributes of a stage's span into its flight recorder event
+     */
+    private static final class RecordedSpan implements TraceSpan {
+        private final TraceSpan span;
+        private final JfrEvents.StageEvent event;
+
+        RecordedSpan(TraceSpan span, JfrEvents.StageEvent event) {
+            this.span = span;
+            this.event = event;
+        }
+
+        @Override
+        public void setAttribute(String key, String value) {
+            span.setAttribute(key, value);
+            event.setAttribute(key, value);
+        }
+
+        @Override
+        public void setAttribute(String key, long value) {
+            span.setAttribute(key, value);
+            event.setAttribute(key, value);
+        }
+
+        @Override
+        public void recordError(Throwable error) {
+            span.recordError(error);
+            event.error = error.getMessage();
+        }
+
+        @Override
+        public void end() {
+            span.end();
+        }
+
+        @Override
+        public String traceparent() {
+            return span.traceparent();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.sedesoft.convertorio;
 
+import java.time.Duration;
 import java.util.Map;
 
 /**
@@ -10,12 +11,20 @@ public class ConversionOptions {
     private final String targetFormat;
     private final String outputPath;
     private final Map<String, Object> conversionMetadata;
+    private final Duration timeout;
+    private final CancellationToken cancellationToken;
+    private final String lane;
+    private final ResultSink resultSink;
 
     private ConversionOptions(Builder builder) {
         this.inputPath = builder.inputPath;
         this.targetFormat = builder.targetFormat;
         this.outputPath = builder.outputPath;
         this.conversionMetadata = builder.conversionMetadata;
+        this.timeout = builder.timeout;
+        this.cancellationToken = builder.cancellationToken;
+        this.lane = builder.lane;
+        this.resultSink = builder.resultSink;
     }
 
     public String getInputPath() {
@@ -34,6 +43,22 @@ public class ConversionOptions {
         return conversionMetadata;
     }
 
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public CancellationToken getCancellationToken() {
+        return cancellationToken;
+    }
+
+    public String getLane() {
+        return lane;
+    }
+
+    public ResultSink getResultSink() {
+        return resultSink;
+    }
+
     public static Builder builder() {
         return new Builder();
     }
@@ -43,6 +68,10 @@ public class ConversionOptions {
         private String targetFormat;
         private String outputPath;
         private Map<String, Object> conversionMetadata;
+        private Duration timeout;
+        private CancellationToken cancellationToken;
+        private String lane = SchedulingPolicy.DEFAULT_LANE;
+        private ResultSink resultSink;
 
         public Builder inputPath(String inputPath) {
             this.inputPath = inputPath;
@@ -64,6 +93,38 @@ public class ConversionOptions {
             return this;
         }
 
+        /**
+         * Deadline for the whole conversion; each HTTP call only gets the time remaining
+         */
+        public Builder timeout(Duration timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+
+        public Builder cancellationToken(CancellationToken cancellationToken) {
+            this.cancellationToken = cancellationToken;
+            return this;
+        }
+
+        /**
+         * Scheduling lane, e.g. interactive or bulk (default: default)
+         *
+         * Only used when the client has a {@link SchedulingPolicy}; lanes it does not
+         * declare share its default lane.
+         */
+        public Builder lane(String lane) {
+            this.lane = lane;
+            return this;
+        }
+
+        /**
+         * Where the converted file goes (default: a {@link FileSink} writing to outputPath)
+         */
+        public Builder resultSink(ResultSink resultSink) {
+            this.resultSink = resultSink;
+            return this;
+        }
+
         public ConversionOptions build() {
             return new ConversionOptions(this);
         }
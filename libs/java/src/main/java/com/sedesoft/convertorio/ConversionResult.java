@@ -14,10 +14,21 @@ public class ConversionResult {
     private final long processingTime;
     private final String downloadUrl;
     private final Integer tokensUsed;
+    private final String sourceSha256;
+    private final String sha256;
+    private final String crc32c;
 
     public ConversionResult(boolean success, String jobId, String inputPath, String outputPath,
                           String sourceFormat, String targetFormat, long fileSize,
                           long processingTime, String downloadUrl, Integer tokensUsed) {
+        this(success, jobId, inputPath, outputPath, sourceFormat, targetFormat, fileSize,
+            processingTime, downloadUrl, tokensUsed, null, null, null);
+    }
+
+    public ConversionResult(boolean success, String jobId, String inputPath, String outputPath,
+                          String sourceFormat, String targetFormat, long fileSize,
+                          long processingTime, String downloadUrl, Integer tokensUsed,
+                          String sourceSha256, String sha256, String crc32c) {
         this.success = success;
         this.jobId = jobId;
         this.inputPath = inputPath;
@@ -28,6 +39,9 @@ public class ConversionResult {
         this.processingTime = processingTime;
         this.downloadUrl = downloadUrl;
         this.tokensUsed = tokensUsed;
+        this.sourceSha256 = sourceSha256;
+        this.sha256 = sha256;
+        this.crc32c = crc32c;
     }
 
     public boolean isSuccess() {
@@ -70,6 +84,27 @@ public class ConversionResult {
         return tokensUsed;
     }
 
+    /**
+     * SHA-256 (hex) of the uploaded source, or null when checksums are disabled
+     */
+    public String getSourceSha256() {
+        return sourceSha256;
+    }
+
+    /**
+     * SHA-256 (hex) of the converted file, or null when checksums are disabled
+     */
+    public String getSha256() {
+        return sha256;
+    }
+
+    /**
+     * CRC32C (hex) of the converted file, or null when checksums are disabled
+     */
+    public String getCrc32c() {
+        return crc32c;
+    }
+
     @Override
     public String toString() {
         return "ConversionResult{" +
@@ -83,6 +118,9 @@ public class ConversionResult {
                 ", processingTime=" + processingTime +
                 ", downloadUrl='" + downloadUrl + '\'' +
                 ", tokensUsed=" + tokensUsed +
+                ", sourceSha256='" + sourceSha256 + '\'' +
+                ", sha256='" + sha256 + '\'' +
+                ", crc32c='" + crc32c + '\'' +
                 '}';
     }
 }
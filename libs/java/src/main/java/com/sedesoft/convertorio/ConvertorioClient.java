@@ -1,18 +1,37 @@
 package com.sedesoft.convertorio;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import okhttp3.*;
+import okio.BufferedSink;
 
+import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.function.LongFunction;
 
 /**
  * Convertorio SDK Client for Java
@@ -23,14 +42,44 @@ import java.util.function.Consumer;
  */
 public class ConvertorioClient {
     private final String apiKey;
-    private final String baseUrl;
-    private final OkHttpClient httpClient;
-    private final Gson gson;
+    private final BaseUrlSelector baseUrls;
+    private final HttpStack http;
+    private final boolean streamJobStatus;
+    private final long maxFileSize;
+    private final ExecutorService downscalePool;
+    private final boolean computeChecksums;
+    private final Hedger hedger;
+    private final Tracer tracer;
+    private final EndpointGuard apiGuard;
+    private final EndpointGuard uploadGuard;
+    private final EndpointGuard downloadGuard;
+    private final ByteBudget uploadBudget;
+    private final ByteBudget downloadBudget;
+    private final BandwidthLimiter uploadBandwidth;
+    private final BandwidthLimiter downloadBandwidth;
+    private final TimeoutPolicy timeoutPolicy;
+    private final ProcessingTimeModel processingTimes;
+    private final LaneScheduler scheduler;
+    private final TokenBudget budget;
+    private final int sinkThreads;
+    private final long sinkBufferBytes;
+    private final long sinkSpillBytes;
+    private volatile ExecutorService sinkPool;
     private final Map<String, Consumer<EventData>> eventListeners;
+    private volatile boolean streamingSupported = true;
 
     private static final int MAX_POLLING_ATTEMPTS = 60;
     private static final int POLLING_INTERVAL_MS = 2000;
-    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private static final int STREAM_WAIT_SECONDS = 30;
+    private static final int MAX_STREAM_RECONNECTS = 5;
+    private static final long PROBE_TIMEOUT_MS = 5000;
+    private static final long DOWNSCALE_CHECK_INTERVAL_MS = 100;
+    // Throttled transfers take tokens per chunk of this size
+    private static final int THROTTLE_CHUNK_BYTES = 16 * 1024;
+    private static final long PROGRESS_INTERVAL_BYTES = 1024 * 1024;
+    private static final long DEFAULT_MAX_FILE_SIZE = 20L * 1024 * 1024;
+    private static final Set<String> RAW_FORMATS = new HashSet<>(Arrays.asList("dng", "cr2", "nef", "arw"));
+    private static final ResultSink DEFAULT_SINK = new FileSink();
 
     /**
      * Create a new Convertorio client
@@ -39,20 +88,65 @@ public class ConvertorioClient {
      * @throws IllegalArgumentException if API key is not provided
      */
     public ConvertorioClient(ClientConfig config) {
+        this(config, null);
+    }
+
+    /**
+     * Create a client on a shared HTTP stack, as {@link ConvertorioClientPool} does for its keys
+     */
+    ConvertorioClient(ClientConfig config, HttpStack sharedHttp) {
         if (config.getApiKey() == null || config.getApiKey().isEmpty()) {
             throw new IllegalArgumentException("API key is required. Get yours at https://convertorio.com/account");
         }
 
         this.apiKey = config.getApiKey();
-        this.baseUrl = config.getBaseUrl() != null ? config.getBaseUrl() : "https://api.convertorio.com";
-        this.gson = new Gson();
+        this.streamJobStatus = config.isStreamJobStatus();
+        this.maxFileSize = config.getMaxFileSize() != null ? config.getMaxFileSize() : DEFAULT_MAX_FILE_SIZE;
+        this.computeChecksums = config.isComputeChecksums();
+        this.tracer = config.getTracer() != null ? config.getTracer() : Tracer.NOOP;
+        this.hedger = config.getHedgingPolicy() != null ? new Hedger(config.getHedgingPolicy()) : null;
+
+        IsolationPolicy isolation = config.getIsolationPolicy();
+        Consumer<EventData> circuitListener = data -> emit("circuit", data);
+        this.apiGuard = isolation != null ?
+            new EndpointGuard("api", isolation, isolation.getMaxConcurrentApiCalls(), circuitListener) : null;
+        this.uploadGuard = isolation != null ?
+            new EndpointGuard("upload", isolation, isolation.getMaxConcurrentUploads(), circuitListener) : null;
+        this.downloadGuard = isolation != null ?
+            new EndpointGuard("download", isolation, isolation.getMaxConcurrentDownloads(), circuitListener) : null;
+
+        this.uploadBudget = config.getMaxUploadBytesInFlight() > 0 ?
+            new ByteBudget("upload", config.getMaxUploadBytesInFlight()) : null;
+        this.downloadBudget = config.getMaxDownloadBytesInFlight() > 0 ?
+            new ByteBudget("download", config.getMaxDownloadBytesInFlight()) : null;
+
+        this.timeoutPolicy = config.getTimeoutPolicy() != null ?
+            config.getTimeoutPolicy() : TimeoutPolicy.builder().build();
+        this.scheduler = config.getSchedulingPolicy() != null ? new LaneScheduler(config.getSchedulingPolicy()) : null;
+        this.budget = config.getBudgetPolicy() != null ? new TokenBudget(config.getBudgetPolicy(), this::getAccount,
+            limit -> listJobs(limit, 0, "completed")) : null;
+        this.processingTimes = config.isPredictivePolling() ? new ProcessingTimeModel() : null;
+        this.uploadBandwidth = config.getUploadBandwidth();
+        this.downloadBandwidth = config.getDownloadBandwidth();
+        this.sinkThreads = config.getSinkThreads();
+        this.sinkBufferBytes = config.getSinkBufferBytes();
+        this.sinkSpillBytes = config.getSinkSpillBytes();
+
+        // Decoding is CPU and heap heavy, so at most one image per core is decoded at a time
+        // while other conversions keep uploading and polling
+        this.downscalePool = config.isPreDownscale() ?
+            Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "convertorio-downscale");
+                thread.setDaemon(true);
+                return thread;
+            }) : null;
         this.eventListeners = new HashMap<>();
 
-        this.httpClient = new OkHttpClient.Builder()
-            .connectTimeout(30, TimeUnit.SECONDS)
-            .readTimeout(30, TimeUnit.SECONDS)
-            .writeTimeout(30, TimeUnit.SECONDS)
-            .build();
+        this.http = sharedHttp != null ? sharedHttp : new HttpStack();
+        List<String> baseUrls = config.getBaseUrls() != null && !config.getBaseUrls().isEmpty() ?
+            config.getBaseUrls() :
+            Collections.singletonList(config.getBaseUrl() != null ? config.getBaseUrl() : "https://api.convertorio.com");
+        this.baseUrls = new BaseUrlSelector(baseUrls, this::probe);
     }
 
     /**
@@ -93,14 +187,156 @@ public class ConvertorioClient {
             throw new IllegalArgumentException("targetFormat is required");
         }
 
+        return convertFile(options, null, null);
+    }
+
+    /**
+     * Convert an image file and stream the result into the given output
+     *
+     * Nothing is written to disk; the output is not closed. Wrap a
+     * WritableByteChannel with {@link java.nio.channels.Channels#newOutputStream}
+     * to stream into a channel.
+     *
+     * @param options Conversion options (outputPath is ignored)
+     * @param output Destination for the converted file
+     * @return Conversion result with the number of bytes written as file size and no output path
+     * @throws ConvertorioException if conversion fails or the output cannot be written
+     */
+    public ConversionResult convertFile(ConversionOptions options, OutputStream output) throws ConvertorioException {
+        if (options.getInputPath() == null) {
+            throw new IllegalArgumentException("inputPath is required");
+        }
+
+        if (options.getTargetFormat() == null) {
+            throw new IllegalArgumentException("targetFormat is required");
+        }
+
+        if (output == null) {
+            throw new IllegalArgumentException("output is required");
+        }
+
+        return convertFile(options, null, output);
+    }
+
+    /**
+     * Convert one input file to several target formats in parallel
+     *
+     * The input is read once into a shared memory-mapped buffer and every target
+     * runs its own upload, polling and download concurrently, so wall time is
+     * close to the slowest single conversion. Event listeners are called from
+     * multiple threads and must be thread-safe.
+     *
+     * @param inputPath Path to the input file
+     * @param targets Target formats with optional output paths and metadata
+     * @return Result or error of every target, in the order given
+     * @throws ConvertorioException if the input cannot be read or the call is interrupted
+     */
+    public FanOutResult convertToMany(String inputPath, List<TargetSpec> targets)
+            throws ConvertorioException {
+        if (inputPath == null) {
+            throw new IllegalArgumentException("inputPath is required");
+        }
+
+        if (targets == null || targets.isEmpty()) {
+            throw new IllegalArgumentException("At least one target is required");
+        }
+
+        List<ConversionOptions> conversions = new ArrayList<>();
+        Set<String> outputPaths = new HashSet<>();
+        for (TargetSpec target : targets) {
+            if (target.getTargetFormat() == null) {
+                throw new IllegalArgumentException("targetFormat is required");
+            }
+
+            String outputPath = target.getOutputPath() != null ?
+                target.getOutputPath() : generateOutputPath(inputPath, target.getTargetFormat());
+            if (!outputPaths.add(outputPath)) {
+                throw new IllegalArgumentException("Duplicate output path, set outputPath for each target: " + outputPath);
+            }
+
+            conversions.add(ConversionOptions.builder()
+                .inputPath(inputPath)
+                .targetFormat(target.getTargetFormat())
+                .outputPath(outputPath)
+                .conversionMetadata(target.getConversionMetadata())
+                .build());
+        }
+
+        File inputFile = new File(inputPath);
+        if (!inputFile.exists()) {
+            throw new ConvertorioException("Input file not found: " + inputPath);
+        }
+
+        SharedSource source = new SharedSource(mapFile(inputFile));
+        ExecutorService executor = Executors.newFixedThreadPool(conversions.size());
+        try {
+            List<Future<ConversionResult>> futures = new ArrayList<>();
+            for (ConversionOptions conversion : conversions) {
+                futures.add(executor.submit(() -> convertFile(conversion, source, null)));
+            }
+
+            Map<TargetSpec, ConversionResult> results = new LinkedHashMap<>();
+            Map<TargetSpec, ConvertorioException> failures = new LinkedHashMap<>();
+            for (int i = 0; i < targets.size(); i++) {
+                try {
+                    results.put(targets.get(i), futures.get(i).get());
+                } catch (ExecutionException e) {
+                    failures.put(targets.get(i), e.getCause() instanceof ConvertorioException ?
+                        (ConvertorioException) e.getCause() :
+                        new ConvertorioException("Conversion failed: " + e.getCause().getMessage(), e.getCause()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ConvertorioException("Conversion interrupted");
+                }
+            }
+            return new FanOutResult(results, failures);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Convert a file, optionally uploading from an input shared with other conversions
+     * and streaming the result into an output instead of the output path
+     */
+    private ConversionResult convertFile(ConversionOptions options, SharedSource source, OutputStream output)
+            throws ConvertorioException {
+        try (ConversionContext context = ConversionContext.of(options, timeoutPolicy.getConversionTimeout(), tracer)) {
+            try {
+                return convertFile(options, source, output, context);
+            } catch (ConvertorioException | RuntimeException e) {
+                context.rootSpan().recordError(e);
+                throw e;
+            }
+        }
+    }
+
+    private ConversionResult convertFile(ConversionOptions options, SharedSource source, OutputStream output,
+                                         ConversionContext context) throws ConvertorioException {
         File inputFile = new File(options.getInputPath());
         if (!inputFile.exists()) {
             throw new ConvertorioException("Input file not found: " + options.getInputPath());
         }
 
         String fileName = inputFile.getName();
-        String sourceFormat = getFileExtension(fileName);
-        long fileSize = inputFile.length();
+        String sourceFormat = detectSourceFormat(inputFile);
+        long originalSize = inputFile.length();
+
+        ByteBuffer downscaled = null;
+        if (downscalePool != null && originalSize > 0) {
+            context.check();
+            downscaled = downscale(inputFile, sourceFormat, options.getConversionMetadata(), context);
+        }
+
+        String uploadFormat = downscaled != null ? "png" : sourceFormat;
+        String uploadName = downscaled != null ? getFileNameWithoutExtension(fileName) + ".png" : fileName;
+        long fileSize = downscaled != null ? downscaled.remaining() : originalSize;
+        validateInput(fileSize, uploadFormat, options.getTargetFormat().toLowerCase());
+
+        TraceSpan rootSpan = context.rootSpan();
+        rootSpan.setAttribute("convertorio.source_format", sourceFormat);
+        rootSpan.setAttribute("convertorio.target_format", options.getTargetFormat().toLowerCase());
+        rootSpan.setAttribute("convertorio.file_size", fileSize);
 
         emit("start", EventData.builder()
             .set("fileName", fileName)
@@ -108,7 +344,27 @@ public class ConvertorioClient {
             .set("targetFormat", options.getTargetFormat())
             .build());
 
+        // Lane slot held during the upload and download phases, released while the job is processed
+        LaneScheduler.Lane slot = null;
+        // Points set aside until the job reports what it used
+        TokenBudget.Reservation reservation = null;
         try {
+            // Nothing is uploaded for a conversion the account cannot pay for
+            reservation = admit(uploadFormat, options, context);
+
+            if (downscaled != null) {
+                emit("progress", EventData.builder()
+                    .set("step", "downscaled")
+                    .set("message", "Downscaled input before upload")
+                    .set("originalSize", originalSize)
+                    .set("uploadSize", fileSize)
+                    .set("bytesSaved", originalSize - fileSize)
+                    .build());
+            }
+
+            // Queue before asking for the upload URL so the presigned URL cannot expire while waiting
+            slot = enterLane(options.getLane(), context);
+
             // Step 1: Request upload URL
             emit("progress", EventData.builder()
                 .set("step", "requesting-upload-url")
@@ -116,16 +372,17 @@ public class ConvertorioClient {
                 .build());
 
             JsonObject requestBody = new JsonObject();
-            requestBody.addProperty("filename", fileName);
-            requestBody.addProperty("source_format", sourceFormat);
+            requestBody.addProperty("filename", uploadName);
+            requestBody.addProperty("source_format", uploadFormat);
             requestBody.addProperty("target_format", options.getTargetFormat().toLowerCase());
             requestBody.addProperty("file_size", fileSize);
 
             if (options.getConversionMetadata() != null && !options.getConversionMetadata().isEmpty()) {
-                requestBody.add("conversion_metadata", gson.toJsonTree(options.getConversionMetadata()));
+                requestBody.add("conversion_metadata", Json.toJsonTree(options.getConversionMetadata()));
             }
 
-            JsonObject uploadResponse = makeRequest("POST", "/v1/convert/upload-url", requestBody);
+            JsonObject uploadResponse = context.stage("upload-url",
+                span -> makeRequest("POST", "/v1/convert/upload-url", requestBody, context));
 
             if (!uploadResponse.get("success").getAsBoolean()) {
                 throw new ConvertorioException(uploadResponse.has("error") ?
@@ -134,6 +391,7 @@ public class ConvertorioClient {
 
             String jobId = uploadResponse.get("job_id").getAsString();
             String uploadUrl = uploadResponse.get("upload_url").getAsString();
+            rootSpan.setAttribute("convertorio.job_id", jobId);
 
             // Step 2: Upload file to S3
             emit("progress", EventData.builder()
@@ -142,7 +400,26 @@ public class ConvertorioClient {
                 .set("jobId", jobId)
                 .build());
 
-            uploadFile(uploadUrl, inputFile, sourceFormat);
+            ByteBuffer uploadData = downscaled != null ? downscaled :
+                source != null ? source.data : mapFile(inputFile);
+            Checksums.Digests sourceDigests = null;
+            if (computeChecksums) {
+                // Content-MD5 has to go out before the body, so this is one pass over the mapped buffer
+                sourceDigests = downscaled == null && source != null ? source.digests() : Checksums.of(uploadData);
+            }
+
+            Checksums.Digests uploadDigests = sourceDigests;
+            context.stage("upload", span -> {
+                span.setAttribute("convertorio.job_id", jobId);
+                span.setAttribute("convertorio.bytes", uploadData.remaining());
+                long reserved = reserve(uploadBudget, uploadData.remaining(), context);
+                try {
+                    uploadFile(uploadUrl, uploadData, uploadFormat, uploadDigests, context);
+                } finally {
+                    unreserve(uploadBudget, reserved);
+                }
+                return null;
+            });
 
             // Step 3: Confirm upload and queue conversion
             emit("progress", EventData.builder()
@@ -153,13 +430,22 @@ public class ConvertorioClient {
 
             JsonObject confirmBody = new JsonObject();
             confirmBody.addProperty("job_id", jobId);
-            JsonObject confirmResponse = makeRequest("POST", "/v1/convert/confirm", confirmBody);
+            JsonObject confirmResponse = context.stage("confirm", span -> {
+                span.setAttribute("convertorio.job_id", jobId);
+                return makeRequest("POST", "/v1/convert/confirm", confirmBody, context);
+            });
 
             if (!confirmResponse.get("success").getAsBoolean()) {
                 throw new ConvertorioException(confirmResponse.has("error") ?
                     confirmResponse.get("error").getAsString() : "Failed to confirm upload");
             }
 
+            // The server has charged the job, so its points are no longer given back on failure
+            if (reservation != null) {
+                budget.confirm(reservation);
+            }
+            slot = leaveLane(slot);
+
             // Step 4: Poll for completion
             emit("progress", EventData.builder()
                 .set("step", "converting")
@@ -168,7 +454,16 @@ public class ConvertorioClient {
                 .set("status", confirmResponse.has("status") ? confirmResponse.get("status").getAsString() : "queued")
                 .build());
 
-            Job job = pollJobStatus(jobId);
+            String targetFormat = options.getTargetFormat().toLowerCase();
+            Job job = pollJobStatus(jobId, uploadFormat, targetFormat, fileSize, context);
+            if (reservation != null) {
+                budget.settle(reservation, uploadFormat, targetFormat, job.getTokensUsed());
+            }
+            if (processingTimes != null && job.getProcessingTimeMs() != null) {
+                processingTimes.record(uploadFormat, targetFormat, fileSize, job.getProcessingTimeMs());
+            }
+
+            slot = enterLane(options.getLane(), context);
 
             // Step 5: Download converted file
             emit("progress", EventData.builder()
@@ -177,10 +472,42 @@ public class ConvertorioClient {
                 .set("jobId", jobId)
                 .build());
 
-            String outputPath = options.getOutputPath() != null ?
-                options.getOutputPath() : generateOutputPath(options.getInputPath(), options.getTargetFormat());
+            Checksums outputChecksums = computeChecksums ? new Checksums() : null;
+            SinkWriter writer = output != null ? null : new SinkWriter(
+                options.getResultSink() != null ? options.getResultSink() : DEFAULT_SINK, sinkPool(), sinkBufferBytes,
+                sinkSpillBytes, context, jobId, options.getInputPath(), options.getOutputPath(), targetFormat);
+            long outputSize = context.stage("download", span -> {
+                span.setAttribute("convertorio.job_id", jobId);
+                // The output size is unknown until the response arrives, so the input's size stands in
+                long reserved = reserve(downloadBudget, fileSize, context);
+                try {
+                    long bytes = downloadFile(job.getDownloadUrl(), writer != null ? writer::open : length -> output,
+                        jobId, fileSize, outputChecksums, context);
+                    if (writer != null) {
+                        writer.finish();
+                    }
+                    span.setAttribute("convertorio.bytes", bytes);
+                    return bytes;
+                } catch (IOException e) {
+                    writer.abort();
+                    throw new ConvertorioException("Writing the result failed: " + e.getMessage(), e);
+                } catch (ConvertorioException | RuntimeException e) {
+                    if (writer != null) {
+                        writer.abort();
+                    }
+                    throw e;
+                } finally {
+                    unreserve(downloadBudget, reserved);
+                }
+            });
+            slot = leaveLane(slot);
+            Checksums.Digests outputDigests = outputChecksums != null ? outputChecksums.finish() : null;
 
-            downloadFile(job.getDownloadUrl(), outputPath);
+            // The connection and lane slot are free again while the sink finishes writing
+            String outputPath = writer == null ? null : context.stage("write", span -> {
+                span.setAttribute("convertorio.job_id", jobId);
+                return writer.await(context);
+            });
 
             ConversionResult result = new ConversionResult(
                 true,
@@ -189,10 +516,13 @@ public class ConvertorioClient {
                 outputPath,
                 sourceFormat,
                 options.getTargetFormat().toLowerCase(),
-                new File(outputPath).length(),
+                outputSize,
                 job.getProcessingTimeMs(),
                 job.getDownloadUrl(),
-                job.getTokensUsed()
+                job.getTokensUsed(),
+                sourceDigests != null ? Checksums.Digests.hex(sourceDigests.sha256) : null,
+                outputDigests != null ? Checksums.Digests.hex(outputDigests.sha256) : null,
+                outputDigests != null ? Checksums.Digests.hex(outputDigests.crc32c) : null
             );
 
             emit("complete", EventData.fromResult(result));
@@ -207,35 +537,115 @@ public class ConvertorioClient {
                 .build();
             emit("error", errorData);
             throw e;
+        } finally {
+            leaveLane(slot);
+            if (reservation != null) {
+                // Gives the points back before confirm, and books the estimate after
+                budget.release(reservation);
+            }
         }
     }
 
+    /**
+     * Reserve the conversion's estimated points when a budget policy is set
+     */
+    private TokenBudget.Reservation admit(String sourceFormat, ConversionOptions options, ConversionContext context)
+            throws ConvertorioException {
+        if (budget == null) {
+            return null;
+        }
+        String targetFormat = options.getTargetFormat().toLowerCase();
+        return context.stage("budget", span -> {
+            span.setAttribute("convertorio.lane", options.getLane());
+            return budget.admit(sourceFormat, targetFormat, options.getLane(), context, () ->
+                emit("progress", EventData.builder()
+                    .set("step", "waiting-for-points")
+                    .set("message", "Waiting for conversions in flight before spending more points...")
+                    .build()));
+        });
+    }
+
+    /**
+     * Wait for a slot in the conversion's lane when a scheduling policy is set
+     */
+    private LaneScheduler.Lane enterLane(String lane, ConversionContext context) throws ConvertorioException {
+        if (scheduler == null) {
+            return null;
+        }
+        return context.stage("queue", span -> {
+            span.setAttribute("convertorio.lane", lane);
+            return scheduler.acquire(lane, context);
+        });
+    }
+
+    /**
+     * @return null, for clearing the held slot
+     */
+    private LaneScheduler.Lane leaveLane(LaneScheduler.Lane slot) {
+        if (slot != null) {
+            scheduler.release(slot);
+        }
+        return null;
+    }
+
     /**
      * Poll job status until completion
+     *
+     * With predictive polling and enough history for the format pair, the first
+     * check waits for the predicted median processing time and the second for
+     * the 90th percentile; later checks fall back to the fixed interval.
      */
-    private Job pollJobStatus(String jobId) throws ConvertorioException {
+    private Job pollJobStatus(String jobId, String sourceFormat, String targetFormat, long fileSize,
+                              ConversionContext context) throws ConvertorioException {
+        if (streamJobStatus && streamingSupported) {
+            Job job = context.stage("poll-stream", span -> {
+                span.setAttribute("convertorio.job_id", jobId);
+                Job streamed = streamJobStatus(jobId, context);
+                if (streamed != null) {
+                    span.setAttribute("convertorio.job_status", streamed.getStatus());
+                }
+                return streamed;
+            });
+            if (job != null) {
+                return job;
+            }
+        }
+
+        long p50 = processingTimes != null ? processingTimes.predict(sourceFormat, targetFormat, fileSize, 0.5) : -1;
+        long p90 = processingTimes != null ? processingTimes.predict(sourceFormat, targetFormat, fileSize, 0.9) : -1;
+        long confirmedAt = System.nanoTime();
         int attempts = 0;
 
         while (attempts < MAX_POLLING_ATTEMPTS) {
             attempts++;
 
-            if (attempts > 1) {
-                try {
-                    Thread.sleep(POLLING_INTERVAL_MS);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    throw new ConvertorioException("Polling interrupted");
-                }
+            JfrEvents.PollEvent event = JfrEvents.poll(jobId, attempts);
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - confirmedAt);
+            long delay = pollDelay(attempts, elapsedMs, p50, p90);
+            if (delay > 0) {
+                context.sleep(delay);
             }
 
-            JsonObject statusResponse = makeRequest("GET", "/v1/jobs/" + jobId, null);
+            int attempt = attempts;
+            Job job = context.stage("poll", span -> {
+                span.setAttribute("convertorio.job_id", jobId);
+                span.setAttribute("convertorio.poll_attempt", attempt);
+                JsonObject statusResponse = makeRequest("GET", "/v1/jobs/" + jobId, null, context);
 
-            if (!statusResponse.get("success").getAsBoolean()) {
-                throw new ConvertorioException("Failed to get job status");
-            }
+                if (!statusResponse.get("success").getAsBoolean()) {
+                    throw new ConvertorioException("Failed to get job status");
+                }
 
-            Job job = gson.fromJson(statusResponse.get("job"), Job.class);
+                Job polled = Job.fromJson(statusResponse.get("job"));
+                span.setAttribute("convertorio.job_status", polled.getStatus());
+                return polled;
+            });
             String status = job.getStatus();
+            if (event != null) {
+                event.delay = delay;
+                event.jobStatus = status;
+                event.commit();
+            }
 
             emit("status", EventData.builder()
                 .set("jobId", jobId)
@@ -244,122 +654,739 @@ public class ConvertorioClient {
                 .set("maxAttempts", MAX_POLLING_ATTEMPTS)
                 .build());
 
-            if ("completed".equals(status)) {
+            if (isFinished(job)) {
                 return job;
             }
+        }
 
-            if ("failed".equals(status)) {
-                throw new ConvertorioException(job.getErrorMessage() != null ?
-                    job.getErrorMessage() : "Conversion failed");
+        throw new ConvertorioException("Conversion timeout - job did not complete in time");
+    }
+
+    /**
+     * Time to wait before a status check
+     *
+     * @param p50 Predicted median processing time, or -1 without a prediction
+     */
+    private static long pollDelay(int attempt, long elapsedMs, long p50, long p90) {
+        if (p50 < 0) {
+            return attempt > 1 ? POLLING_INTERVAL_MS : 0;
+        }
+        // A badly skewed history must not stretch the wait beyond the usual polling budget
+        long maxWait = (long) MAX_POLLING_ATTEMPTS * POLLING_INTERVAL_MS;
+        if (attempt == 1) {
+            return Math.min(maxWait, Math.max(0, p50 - elapsedMs));
+        }
+        if (attempt == 2 && p90 > elapsedMs) {
+            return Math.min(maxWait, p90 - elapsedMs);
+        }
+        return POLLING_INTERVAL_MS;
+    }
+
+    /**
+     * Wait for job completion over a server-sent events stream
+     *
+     * Reconnects with Last-Event-ID when the stream drops. Returns null when the
+     * server does not support streaming or keeps dropping the connection, so the
+     * caller can fall back to interval polling.
+     */
+    private Job streamJobStatus(String jobId, ConversionContext context) throws ConvertorioException {
+        long deadline = System.currentTimeMillis() + (long) MAX_POLLING_ATTEMPTS * POLLING_INTERVAL_MS;
+        String lastEventId = null;
+        long retryMs = POLLING_INTERVAL_MS;
+        int events = 0;
+        int connections = 0;
+        // Consecutive connections that failed before delivering an event
+        int failures = 0;
+
+        while (System.currentTimeMillis() < deadline) {
+            if (connections > 0) {
+                context.sleep(retryMs);
+                JfrEvents.retry("stream-reconnect", "/v1/jobs/" + jobId, connections + 1);
             }
+            connections++;
+            int connectionEvents = 0;
 
-            if ("expired".equals(status)) {
-                throw new ConvertorioException("Job expired");
+            Request.Builder requestBuilder = new Request.Builder()
+                .url(baseUrls.choose() + "/v1/jobs/" + jobId + "?wait=" + STREAM_WAIT_SECONDS)
+                .addHeader("Authorization", "Bearer " + apiKey)
+                .addHeader("Accept", "text/event-stream")
+                .get();
+            if (lastEventId != null) {
+                requestBuilder.addHeader("Last-Event-ID", lastEventId);
             }
+            addTraceparent(requestBuilder, context);
+
+            // Only the conversion deadline applies; the stream is meant to stay open
+            Request request = requestBuilder.build();
+            try (Response response = execute(http.streamClient(request), request, context, 0)) {
+                recordStatus(response, context);
+                String contentType = response.header("Content-Type", "");
+                if (!response.isSuccessful() || !contentType.startsWith("text/event-stream")) {
+                    // Only a server without the endpoint turns streaming off; errors and restarts poll this once
+                    if (events == 0 && !streamFailureIsTransient(response.code())) {
+                        streamingSupported = false;
+                    }
+                    return null;
+                }
+
+                BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(response.body().byteStream(), StandardCharsets.UTF_8));
+                StringBuilder data = new StringBuilder();
+                String eventId = null;
+                String line;
+
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty()) {
+                        if (data.length() > 0) {
+                            if (eventId != null) {
+                                lastEventId = eventId;
+                            }
+                            events++;
+                            connectionEvents++;
+                            failures = 0;
+
+                            Job job;
+                            try {
+                                JsonObject payload = Json.parse(data.toString());
+                                job = Job.fromJson(payload.has("job") ? payload.get("job") : payload);
+                            } catch (RuntimeException e) {
+                                // A malformed event, read the status by polling instead
+                                return null;
+                            }
+                            if (job == null) {
+                                return null;
+                            }
+
+                            emit("status", EventData.builder()
+                                .set("jobId", jobId)
+                                .set("status", job.getStatus())
+                                .set("attempt", events)
+                                .set("maxAttempts", MAX_POLLING_ATTEMPTS)
+                                .set("streaming", true)
+                                .build());
+
+                            if (isFinished(job)) {
+                                return job;
+                            }
+                        }
+                        data.setLength(0);
+                        eventId = null;
+                    } else if (line.startsWith("data:")) {
+                        if (data.length() > 0) {
+                            data.append('\n');
+                        }
+                        data.append(fieldValue(line, 5));
+                    } else if (line.startsWith("id:")) {
+                        eventId = fieldValue(line, 3);
+                    } else if (line.startsWith("retry:")) {
+                        try {
+                            retryMs = Long.parseLong(fieldValue(line, 6));
+                        } catch (NumberFormatException ignored) {
+                            // Malformed retry hints are ignored, as the SSE spec requires
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                // Reconnect unless the conversion was cancelled; only connections that never delivered count
+                context.check();
+                if (connectionEvents == 0 && ++failures > MAX_STREAM_RECONNECTS) {
+                    return null;
+                }
+            }
+            // Streams the server closes normally are resumed without limit until the deadline
         }
 
         throw new ConvertorioException("Conversion timeout - job did not complete in time");
     }
 
+    /**
+     * Whether a failed stream request may succeed later, as opposed to a server without streaming
+     *
+     * @param code HTTP status; a 2xx here came with another content type than text/event-stream
+     */
+    static boolean streamFailureIsTransient(int code) {
+        return code >= 300 && code != 404 && code != 405 && code != 406;
+    }
+
+    /**
+     * Read the value of a server-sent events field, dropping the optional leading space
+     */
+    private String fieldValue(String line, int prefixLength) {
+        String value = line.substring(prefixLength);
+        return value.startsWith(" ") ? value.substring(1) : value;
+    }
+
+    /**
+     * Check whether a job reached a terminal status
+     *
+     * @return true if the job completed
+     * @throws ConvertorioException if the job failed or expired
+     */
+    private boolean isFinished(Job job) throws ConvertorioException {
+        String status = job.getStatus();
+
+        if ("completed".equals(status)) {
+            return true;
+        }
+
+        if ("failed".equals(status)) {
+            throw new ConvertorioException(job.getErrorMessage() != null ?
+                job.getErrorMessage() : "Conversion failed");
+        }
+
+        if ("expired".equals(status)) {
+            throw new ConvertorioException("Job expired");
+        }
+
+        return false;
+    }
+
     /**
      * Upload file to S3
      */
-    private void uploadFile(String url, File file, String sourceFormat) throws ConvertorioException {
+    private void uploadFile(String url, ByteBuffer data, String sourceFormat, Checksums.Digests digests,
+                            ConversionContext context) throws ConvertorioException {
+        boolean trial = acquire(uploadGuard, context);
+        boolean healthy = false;
         try {
-            byte[] fileData = Files.readAllBytes(file.toPath());
-            RequestBody body = RequestBody.create(fileData, MediaType.get("image/" + sourceFormat));
+            MediaType contentType = MediaType.get("image/" + sourceFormat);
+            // The body needs the call to stop throttling once it is cancelled or timed out
+            AtomicReference<Call> uploadCall = new AtomicReference<>();
+            RequestBody body = new RequestBody() {
+                @Override
+                public MediaType contentType() {
+                    return contentType;
+                }
 
-            Request request = new Request.Builder()
+                @Override
+                public long contentLength() {
+                    return data.remaining();
+                }
+
+                @Override
+                public void writeTo(BufferedSink sink) throws IOException {
+                    // Each attempt writes from its own view so the shared buffer is never consumed
+                    ByteBuffer view = data.duplicate();
+                    if (uploadBandwidth == null) {
+                        while (view.hasRemaining()) {
+                            sink.write(view);
+                        }
+                        return;
+                    }
+
+                    int end = view.limit();
+                    while (view.position() < end) {
+                        int chunk = Math.min(THROTTLE_CHUNK_BYTES, end - view.position());
+                        uploadBandwidth.acquire(chunk, uploadCall.get());
+                        view.limit(view.position() + chunk);
+                        while (view.hasRemaining()) {
+                            sink.write(view);
+                        }
+                        view.limit(end);
+                    }
+                }
+            };
+
+            Request.Builder requestBuilder = new Request.Builder()
                 .url(url)
                 .put(body)
-                .addHeader("Content-Type", "image/" + sourceFormat)
-                .build();
+                .addHeader("Content-Type", "image/" + sourceFormat);
+            if (digests != null) {
+                // Storage rejects the PUT if the received bytes do not match
+                requestBuilder.addHeader("Content-MD5", Checksums.Digests.base64(digests.md5));
+            }
 
-            try (Response response = httpClient.newCall(request).execute()) {
+            long timeoutMs = timeoutPolicy.uploadTimeoutMillis(data.remaining(), uploadBandwidth);
+            Request request = requestBuilder.build();
+            Call call = newCall(http.client(request), request, context, timeoutMs);
+            uploadCall.set(call);
+            try (Response response = followTlsRedirect(http.client(request), call.execute(), context, timeoutMs)) {
+                healthy = isHealthy(response.code());
+                recordStatus(response, context);
                 if (!response.isSuccessful()) {
-                    throw new ConvertorioException("Failed to upload file. HTTP Status: " + response.code());
+                    throw new StorageException("Failed to upload file. HTTP Status: " + response.code(),
+                        response.code());
                 }
             }
         } catch (IOException e) {
-            throw new ConvertorioException("Upload failed: " + e.getMessage(), e);
+            healthy = false;
+            context.check();
+            throw new StorageException("Upload failed: " + e.getMessage(), e);
+        } finally {
+            release(uploadGuard, trial, healthy, context);
+        }
+    }
+
+    /**
+     * Map a file into memory for uploading
+     */
+    private ByteBuffer mapFile(File file) throws ConvertorioException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new ConvertorioException("Failed to read input file: " + e.getMessage(), e);
         }
     }
 
     /**
-     * Download file from URL
+     * Download file from URL into an output stream
+     *
+     * @param open Opens the output once the response's Content-Length (or -1) is known
+     * @param sizeHint Expected size for timing out responses without a Content-Length
+     * @return Number of bytes written
      */
-    private void downloadFile(String url, String outputPath) throws ConvertorioException {
+    private long downloadFile(String url, LongFunction<OutputStream> open, String jobId, long sizeHint,
+                              Checksums checksums, ConversionContext context) throws ConvertorioException {
+        boolean trial = acquire(downloadGuard, context);
+        boolean healthy = false;
         try {
             Request request = new Request.Builder()
                 .url(url)
                 .get()
                 .build();
 
-            try (Response response = httpClient.newCall(request).execute()) {
+            // The size is only known once headers arrive, so the time limit goes on the body instead of the call
+            Call call = newCall(http.client(request), request, context, 0);
+            try (Response response = followTlsRedirect(http.client(request), call.execute(), context, 0)) {
+                healthy = isHealthy(response.code());
+                recordStatus(response, context);
                 if (!response.isSuccessful()) {
-                    throw new ConvertorioException("Failed to download file. HTTP Status: " + response.code());
+                    throw new StorageException("Failed to download file. HTTP Status: " + response.code(),
+                        response.code());
                 }
 
-                File outputFile = new File(outputPath);
-                File parentDir = outputFile.getParentFile();
-                if (parentDir != null && !parentDir.exists()) {
-                    parentDir.mkdirs();
+                long totalBytes = response.body().contentLength();
+                OutputStream outputStream = open.apply(totalBytes);
+                long timeoutMs = timeoutPolicy.downloadTimeoutMillis(
+                    totalBytes >= 0 ? totalBytes : sizeHint, downloadBandwidth);
+                if (timeoutMs > 0) {
+                    response.body().source().timeout().deadline(timeoutMs, TimeUnit.MILLISECONDS);
                 }
+                long bytesWritten = 0;
+                long nextProgress = PROGRESS_INTERVAL_BYTES;
 
-                try (InputStream inputStream = response.body().byteStream();
-                     FileOutputStream outputStream = new FileOutputStream(outputFile)) {
+                try (InputStream inputStream = response.body().byteStream()) {
                     byte[] buffer = new byte[8192];
                     int bytesRead;
                     while ((bytesRead = inputStream.read(buffer)) != -1) {
-                        outputStream.write(buffer, 0, bytesRead);
+                        if (downloadBandwidth != null) {
+                            // Not reading lets the socket buffer fill up, which slows the sender down
+                            downloadBandwidth.acquire(bytesRead, call);
+                        }
+                        writeOutput(outputStream, buffer, bytesRead, context);
+                        if (checksums != null) {
+                            checksums.update(buffer, 0, bytesRead);
+                        }
+                        bytesWritten += bytesRead;
+
+                        if (bytesWritten >= nextProgress) {
+                            nextProgress += PROGRESS_INTERVAL_BYTES;
+                            emit("progress", EventData.builder()
+                                .set("step", "downloading")
+                                .set("message", "Downloading converted file...")
+                                .set("jobId", jobId)
+                                .set("bytesDownloaded", bytesWritten)
+                                .set("totalBytes", totalBytes)
+                                .build());
+                        }
                     }
                 }
+
+                if (checksums != null) {
+                    verifyChecksums(response, checksums.finish());
+                }
+                return bytesWritten;
             }
         } catch (IOException e) {
-            throw new ConvertorioException("Download failed: " + e.getMessage(), e);
+            healthy = false;
+            context.check();
+            throw new StorageException("Download failed: " + e.getMessage(), e);
+        } finally {
+            release(downloadGuard, trial, healthy, context);
         }
     }
 
     /**
-     * Make HTTP request to API
+     * Hand downloaded bytes to the caller's stream or sink
+     *
+     * Its failures are local, so they are kept apart from storage errors and
+     * do not count against the storage's health.
      */
-    private JsonObject makeRequest(String method, String endpoint, JsonObject data) throws ConvertorioException {
+    private static void writeOutput(OutputStream outputStream, byte[] buffer, int length, ConversionContext context)
+            throws ConvertorioException {
         try {
-            String url = baseUrl + endpoint;
-            Request.Builder requestBuilder = new Request.Builder()
-                .url(url)
-                .addHeader("Authorization", "Bearer " + apiKey)
-                .addHeader("Content-Type", "application/json");
+            outputStream.write(buffer, 0, length);
+        } catch (IOException e) {
+            context.check();
+            throw new ConvertorioException("Writing the result failed: " + e.getMessage(), e);
+        }
+    }
 
-            if ("POST".equals(method) && data != null) {
-                RequestBody body = RequestBody.create(gson.toJson(data), JSON);
-                requestBuilder.post(body);
-            } else {
-                requestBuilder.get();
-            }
+    /**
+     * Compare downloaded digests with the explicit checksum headers the storage returned
+     *
+     * ETags are not compared: with SSE-KMS or SSE-C encryption, multipart
+     * uploads and many CDNs and non-S3 stores they are not the content MD5.
+     */
+    private void verifyChecksums(Response response, Checksums.Digests digests) throws ConvertorioException {
+        String md5 = response.header("Content-MD5");
+        if (md5 != null && !md5.equals(Checksums.Digests.base64(digests.md5))) {
+            throw new ConvertorioException("Download checksum mismatch: Content-MD5 " + md5);
+        }
+
+        String sha256 = response.header("x-amz-checksum-sha256");
+        if (sha256 != null && !sha256.equals(Checksums.Digests.base64(digests.sha256))) {
+            throw new ConvertorioException("Download checksum mismatch: SHA-256 " + sha256);
+        }
+
+        String crc32c = response.header("x-amz-checksum-crc32c");
+        if (crc32c != null && !crc32c.equals(Checksums.Digests.base64(digests.crc32c))) {
+            throw new ConvertorioException("Download checksum mismatch: CRC32C " + crc32c);
+        }
+    }
+
+    /**
+     * Make HTTP request to API
+     */
+    private JsonObject makeRequest(String method, String endpoint, JsonObject data) throws ConvertorioException {
+        return makeRequest(method, endpoint, data, null);
+    }
 
-            try (Response response = httpClient.newCall(requestBuilder.build()).execute()) {
+    /**
+     * Make HTTP request to API as part of a conversion
+     */
+    private JsonObject makeRequest(String method, String endpoint, JsonObject data, ConversionContext context)
+            throws ConvertorioException {
+        JfrEvents.RequestEvent event = JfrEvents.request(method, endpoint);
+        boolean trial = acquire(apiGuard, context);
+        boolean healthy = false;
+        try {
+            try (Response response = send(method, endpoint, data, context)) {
+                healthy = isHealthy(response.code());
+                recordStatus(response, context);
+                if (event != null) {
+                    HttpUrl url = response.request().url();
+                    event.baseUrl = url.scheme() + "://" + url.host() + ":" + url.port();
+                    event.statusCode = response.code();
+                }
                 if (!response.isSuccessful()) {
-                    throw new ConvertorioException("HTTP request failed with status code: " + response.code());
+                    throw new ConvertorioException("HTTP request failed with status code: " + response.code(),
+                        response.code());
                 }
 
+                long contentLength = response.body().contentLength();
                 String responseBody = response.body().string();
-                return gson.fromJson(responseBody, JsonObject.class);
+                if (event != null) {
+                    // Bytes rather than chars; a body without Content-Length is UTF-8 JSON
+                    event.bytes = contentLength >= 0 ?
+                        contentLength : responseBody.getBytes(StandardCharsets.UTF_8).length;
+                }
+                return Json.parse(responseBody);
             }
         } catch (IOException e) {
+            healthy = false;
+            if (event != null) {
+                event.error = e.getMessage();
+            }
+            if (context != null) {
+                context.check();
+            }
             throw new ConvertorioException("Request failed: " + e.getMessage(), e);
+        } finally {
+            release(apiGuard, trial, healthy, context);
+            if (event != null) {
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Send an API request to the best base URL
+     *
+     * Reads that fail with an I/O error or 5xx are retried once on another base
+     * URL; writes are never repeated.
+     */
+    private Response send(String method, String endpoint, JsonObject data, ConversionContext context)
+            throws IOException, ConvertorioException {
+        BaseUrlSelector.Route route = baseUrls.acquire(null);
+        if ("GET".equals(method) && !baseUrls.isSingle()) {
+            try {
+                Response response = send(route, method, endpoint, data, context);
+                if (response.code() < 500) {
+                    return response;
+                }
+                response.close();
+            } catch (IOException e) {
+                if (context != null) {
+                    context.check();
+                }
+            }
+            route = baseUrls.acquire(route);
+            JfrEvents.retry("failover", endpoint, 2);
+        }
+        return send(route, method, endpoint, data, context);
+    }
+
+    private Response send(BaseUrlSelector.Route route, String method, String endpoint, JsonObject data,
+                          ConversionContext context) throws IOException, ConvertorioException {
+        Request.Builder requestBuilder = new Request.Builder()
+            .url(route.url + endpoint)
+            .addHeader("Authorization", "Bearer " + apiKey)
+            .addHeader("Content-Type", "application/json");
+        addTraceparent(requestBuilder, context);
+
+        if ("POST".equals(method) && data != null) {
+            RequestBody body = RequestBody.create(data.toString(), HttpStack.Types.JSON);
+            requestBuilder.post(body);
+        } else {
+            requestBuilder.get();
+        }
+
+        Request request = requestBuilder.build();
+        long apiTimeoutMs = timeoutPolicy.getApiTimeout().toMillis();
+        long started = System.nanoTime();
+        Response response;
+        try {
+            response = hedger != null && "GET".equals(request.method()) ?
+                followTlsRedirect(http.client(request), hedger.execute(hedgedEndpoint(endpoint), hedge -> {
+                    if (!hedge) {
+                        return newCall(http.client(request), request, context, apiTimeoutMs);
+                    }
+                    // On another base URL the duplicate does not queue behind the primary on one HTTP/2 connection
+                    Request duplicate = request.newBuilder().url(baseUrls.chooseOther(route) + endpoint).build();
+                    return newCall(http.client(duplicate), duplicate, context, apiTimeoutMs);
+                }), context, apiTimeoutMs) :
+                execute(http.client(request), request, context, apiTimeoutMs);
+        } catch (IOException e) {
+            // A cancelled call says nothing about the base URL
+            baseUrls.release(route, -1, context != null && context.isCancelled());
+            throw e;
+        } catch (ConvertorioException | RuntimeException e) {
+            baseUrls.release(route, -1, true);
+            throw e;
+        }
+        // Rate limiting is per key, not per base URL
+        baseUrls.release(route, System.nanoTime() - started, response.code() < 500);
+        return response;
+    }
+
+    /**
+     * Endpoint a hedged read's latency is grouped by, with job IDs and query parameters removed
+     */
+    static String hedgedEndpoint(String endpoint) {
+        int query = endpoint.indexOf('?');
+        String path = query >= 0 ? endpoint.substring(0, query) : endpoint;
+        return path.startsWith("/v1/jobs/") ? "/v1/jobs/{id}" : path;
+    }
+
+    /**
+     * Background health check of an ejected base URL
+     *
+     * @return Latency in nanoseconds, or -1 if still unhealthy
+     */
+    private long probe(String baseUrl) {
+        Request request = new Request.Builder()
+            .url(baseUrl + "/v1/account")
+            .addHeader("Authorization", "Bearer " + apiKey)
+            .get()
+            .build();
+        long started = System.nanoTime();
+        try (Response response = newCall(http.client(request), request, null, PROBE_TIMEOUT_MS).execute()) {
+            return response.code() < 500 ? System.nanoTime() - started : -1;
+        } catch (IOException | ConvertorioException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Propagate the active span to the API; storage URLs are presigned and left untouched
+     */
+    private static void addTraceparent(Request.Builder requestBuilder, ConversionContext context) {
+        String traceparent = context != null ? context.activeSpan().traceparent() : null;
+        if (traceparent != null) {
+            requestBuilder.addHeader("traceparent", traceparent);
+        }
+    }
+
+    private static void recordStatus(Response response, ConversionContext context) {
+        if (context != null) {
+            context.activeSpan().setAttribute("http.status_code", response.code());
+        }
+    }
+
+    /**
+     * Queue for room in a byte budget before a transfer takes its bulkhead slot
+     */
+    private static long reserve(ByteBudget budget, long bytes, ConversionContext context)
+            throws ConvertorioException {
+        return budget != null ? budget.acquire(bytes, context) : 0;
+    }
+
+    private static void unreserve(ByteBudget budget, long reserved) {
+        if (budget != null) {
+            budget.release(reserved);
         }
     }
 
+    private static boolean acquire(EndpointGuard guard, ConversionContext context) throws ConvertorioException {
+        return guard != null && guard.acquire(context);
+    }
+
+    /**
+     * Return a bulkhead slot; cancelled calls say nothing about endpoint health
+     */
+    private static void release(EndpointGuard guard, boolean trial, boolean healthy, ConversionContext context) {
+        if (guard != null) {
+            guard.release(trial, healthy || (context != null && context.isCancelled()));
+        }
+    }
+
+    /**
+     * Server errors and rate limiting count against an endpoint; client errors do not
+     */
+    private static boolean isHealthy(int statusCode) {
+        return statusCode < 500 && statusCode != 429;
+    }
+
+    /**
+     * Execute a call, binding it to the conversion's deadline and cancellation when there is one
+     */
+    private Response execute(OkHttpClient client, Request request, ConversionContext context, long timeoutMs)
+            throws IOException, ConvertorioException {
+        return followTlsRedirect(client, newCall(client, request, context, timeoutMs).execute(), context, timeoutMs);
+    }
+
+    /**
+     * Send a redirect from http:// to https://, which cleartext clients return, through the matching TLS client
+     */
+    private Response followTlsRedirect(OkHttpClient client, Response response, ConversionContext context,
+                                       long timeoutMs) throws IOException, ConvertorioException {
+        Request followUp = HttpStack.tlsRedirect(response);
+        if (followUp == null) {
+            return response;
+        }
+        response.close();
+        return newCall(http.tlsFor(client), followUp, context, timeoutMs).execute();
+    }
+
+    /**
+     * @param timeoutMs Limit for the whole call, or 0 for none
+     */
+    private Call newCall(OkHttpClient client, Request request, ConversionContext context, long timeoutMs)
+            throws ConvertorioException {
+        Call call = client.newCall(request);
+        if (timeoutMs > 0) {
+            call.timeout().timeout(timeoutMs, TimeUnit.MILLISECONDS);
+        }
+        if (context != null) {
+            context.attach(call);
+        }
+        return call;
+    }
+
+    /**
+     * Writer threads of result sinks, started on the first download
+     */
+    private ExecutorService sinkPool() {
+        ExecutorService pool = sinkPool;
+        if (pool == null) {
+            synchronized (this) {
+                pool = sinkPool;
+                if (pool == null) {
+                    pool = Executors.newFixedThreadPool(sinkThreads, runnable -> {
+                        Thread thread = new Thread(runnable, "convertorio-sink");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    sinkPool = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
     /**
      * Generate output path based on input path and target format
      */
     private String generateOutputPath(String inputPath, String targetFormat) {
-        File inputFile = new File(inputPath);
-        String dir = inputFile.getParent();
-        String baseName = getFileNameWithoutExtension(inputFile.getName());
-        String separator = dir != null ? File.separator : "";
-        return (dir != null ? dir : "") + separator + baseName + "." + targetFormat.toLowerCase();
+        return FileSink.defaultOutputPath(inputPath, targetFormat);
+    }
+
+    /**
+     * Detect the source format from file content, falling back to the extension
+     * for formats the detector does not recognize
+     */
+    private String detectSourceFormat(File file) throws ConvertorioException {
+        String extension = getFileExtension(file.getName());
+        try {
+            String detected = FormatDetector.detect(file.toPath(), extension);
+            return detected != null ? detected : extension;
+        } catch (IOException e) {
+            throw new ConvertorioException("Failed to read input file: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Downscale the input on the bounded worker pool
+     *
+     * @return Downscaled PNG, or null to upload the original
+     */
+    private ByteBuffer downscale(File file, String sourceFormat, Map<String, Object> metadata,
+                                 ConversionContext context) throws ConvertorioException {
+        Future<ByteBuffer> task = downscalePool.submit(() -> Downscaler.downscale(file, sourceFormat, metadata, context));
+        try {
+            while (true) {
+                try {
+                    return task.get(Math.max(1, Math.min(DOWNSCALE_CHECK_INTERVAL_MS, context.remainingMillis())),
+                        TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    context.check();
+                }
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ConvertorioException) {
+                throw (ConvertorioException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                // Running out of heap is not a property of the image, so it is not hidden
+                throw (Error) e.getCause();
+            }
+            // Anything ImageIO cannot handle (CMYK JPEGs, unusual TIFFs) is uploaded as-is
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConvertorioException("Conversion interrupted");
+        } finally {
+            // The decode is not waited for once the conversion gives up
+            task.cancel(true);
+        }
+    }
+
+    /**
+     * Reject conversions the server would refuse, before any network I/O
+     */
+    private void validateInput(long fileSize, String sourceFormat, String targetFormat) throws ConvertorioException {
+        if (fileSize == 0) {
+            throw new ConvertorioException("Input file is empty");
+        }
+
+        if (maxFileSize > 0 && fileSize > maxFileSize) {
+            throw new ConvertorioException("Input file is too large: " + fileSize +
+                " bytes (maximum: " + maxFileSize + " bytes)");
+        }
+
+        if (sourceFormat.isEmpty()) {
+            throw new ConvertorioException("Unable to detect source format");
+        }
+
+        if (RAW_FORMATS.contains(targetFormat)) {
+            throw new ConvertorioException("Conversion to " + targetFormat + " is not supported");
+        }
+
+        if ("thumbnail".equals(targetFormat) && !"pdf".equals(sourceFormat)) {
+            throw new ConvertorioException("Thumbnails can only be generated from PDF files, got " + sourceFormat);
+        }
     }
 
     /**
@@ -384,6 +1411,21 @@ public class ConvertorioClient {
         return fileName;
     }
 
+    /**
+     * Get circuit breaker and bulkhead metrics per endpoint class
+     *
+     * @return Metrics for api, upload and download, or an empty list without an isolation policy
+     */
+    public List<EndpointMetrics> getEndpointMetrics() {
+        List<EndpointMetrics> metrics = new ArrayList<>();
+        if (apiGuard != null) {
+            metrics.add(apiGuard.metrics());
+            metrics.add(uploadGuard.metrics());
+            metrics.add(downloadGuard.metrics());
+        }
+        return metrics;
+    }
+
     /**
      * Get account information
      *
@@ -398,7 +1440,60 @@ public class ConvertorioClient {
                 response.get("error").getAsString() : "Failed to get account info");
         }
 
-        return gson.fromJson(response.get("account"), Account.class);
+        return Account.fromJson(response.get("account"));
+    }
+
+    /**
+     * Latency and health of each API base URL
+     *
+     * @return One entry per configured base URL
+     */
+    public List<BaseUrlMetrics> getBaseUrlMetrics() {
+        return baseUrls.metrics();
+    }
+
+    /**
+     * Points balance as projected by the budget policy
+     *
+     * @return The projection, or null without a budget policy
+     */
+    public BudgetMetrics getBudgetMetrics() {
+        return budget != null ? budget.metrics() : null;
+    }
+
+    /**
+     * Queue depth and waiting times per scheduling lane
+     *
+     * @return One entry per lane seen so far, or an empty list without a scheduling policy
+     */
+    public List<LaneMetrics> getLaneMetrics() {
+        return scheduler != null ? scheduler.metrics() : Collections.emptyList();
+    }
+
+    /**
+     * Seed predictive polling with the processing times of recently completed jobs
+     *
+     * Has no effect unless predictive polling is enabled.
+     *
+     * @param limit Number of recent jobs to learn from
+     * @return Number of jobs learned from
+     * @throws ConvertorioException if the request fails
+     */
+    public int learnProcessingTimes(int limit) throws ConvertorioException {
+        if (processingTimes == null) {
+            return 0;
+        }
+
+        int learned = 0;
+        for (Job job : listJobs(limit, 0, "completed")) {
+            if (job.getProcessingTimeMs() != null && job.getSourceFormat() != null && job.getTargetFormat() != null) {
+                long fileSize = job.getFileSize() != null ? job.getFileSize() : 0;
+                processingTimes.record(job.getSourceFormat(), job.getTargetFormat(), fileSize,
+                    job.getProcessingTimeMs());
+                learned++;
+            }
+        }
+        return learned;
     }
 
     /**
@@ -423,7 +1518,7 @@ public class ConvertorioClient {
                 response.get("error").getAsString() : "Failed to list jobs");
         }
 
-        return gson.fromJson(response.get("jobs"), Job[].class);
+        return Job.fromJsonArray(response.get("jobs"));
     }
 
     /**
@@ -441,6 +1536,6 @@ public class ConvertorioClient {
                 response.get("error").getAsString() : "Failed to get job");
         }
 
-        return gson.fromJson(response.get("job"), Job.class);
+        return Job.fromJson(response.get("job"));
     }
 }
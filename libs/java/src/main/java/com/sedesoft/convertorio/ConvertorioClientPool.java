@@ -0,0 +1,325 @@
+package com.sedesoft.convertorio;
+
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Spreads conversions over several API keys
+ *
+ * Each key gets its own {@link ConvertorioClient}, all sharing one HTTP
+ * connection pool and dispatcher. Every conversion goes to the key with the
+ * fewest conversions in flight, preferring the key with the most points left
+ * on ties. Keys whose balance is known to be used up are skipped, and a key
+ * that keeps failing with I/O errors, 5xx, 401, 403 or 429 responses is
+ * drained for a while. After that it is re-admitted on probation, and a
+ * single further failure drains it again.
+ *
+ * <pre>{@code
+ * ConvertorioClientPool pool = ConvertorioClientPool.builder()
+ *     .config(ClientConfig.builder().streamJobStatus(true).build())
+ *     .apiKey("key-for-unit-a")
+ *     .apiKey("key-for-unit-b")
+ *     .build();
+ * pool.refreshAccounts();
+ * pool.convertFile(options);
+ * }</pre>
+ */
+public class ConvertorioClientPool {
+    private final List<Member> members;
+    private final int drainAfterFailures;
+    private final long drainNanos;
+    private int nextMember;
+
+    private ConvertorioClientPool(Builder builder) {
+        if (builder.apiKeys.isEmpty()) {
+            throw new IllegalArgumentException("At least one API key is required");
+        }
+
+        ClientConfig template = builder.config != null ? builder.config : ClientConfig.builder().build();
+        HttpStack http = new HttpStack();
+        List<Member> members = new ArrayList<>();
+        for (String apiKey : builder.apiKeys) {
+            ClientConfig config = template.toBuilder().apiKey(apiKey).build();
+            members.add(new Member(new ConvertorioClient(config, http), mask(apiKey)));
+        }
+        this.members = Collections.unmodifiableList(members);
+        this.drainAfterFailures = builder.drainAfterFailures;
+        this.drainNanos = builder.drainDuration.toNanos();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Convert a file using the least loaded key
+     *
+     * @param options Conversion options
+     * @return Conversion result
+     * @throws ConvertorioException if conversion fails
+     */
+    public ConversionResult convertFile(ConversionOptions options) throws ConvertorioException {
+        Member member = select();
+        ConversionResult result = null;
+        try {
+            result = member.client.convertFile(options);
+            return result;
+        } catch (ConvertorioException e) {
+            member.failed(e);
+            throw e;
+        } finally {
+            member.done(result);
+        }
+    }
+
+    /**
+     * Convert a file using the least loaded key and stream the result into an output
+     *
+     * @param options Conversion options; the output path is ignored
+     * @param output Stream receiving the converted file; not closed
+     * @return Conversion result without an output path
+     * @throws ConvertorioException if conversion fails
+     */
+    public ConversionResult convertFile(ConversionOptions options, OutputStream output) throws ConvertorioException {
+        Member member = select();
+        ConversionResult result = null;
+        try {
+            result = member.client.convertFile(options, output);
+            return result;
+        } catch (ConvertorioException e) {
+            member.failed(e);
+            throw e;
+        } finally {
+            member.done(result);
+        }
+    }
+
+    /**
+     * Fetch every key's points balance
+     *
+     * Keys whose account request fails count that as a failure; the first
+     * error is rethrown after all keys were tried.
+     *
+     * @throws ConvertorioException if any account request fails
+     */
+    public void refreshAccounts() throws ConvertorioException {
+        ConvertorioException firstError = null;
+        for (Member member : members) {
+            try {
+                member.refreshed(member.client.getAccount());
+            } catch (ConvertorioException e) {
+                member.failed(e);
+                if (firstError == null) {
+                    firstError = e;
+                }
+            }
+        }
+        if (firstError != null) {
+            throw firstError;
+        }
+    }
+
+    /**
+     * Register an event listener on every key's client
+     *
+     * @param event Event name (start, progress, status, complete, error, circuit)
+     * @param listener Event callback
+     * @return this pool for chaining
+     */
+    public ConvertorioClientPool on(String event, Consumer<EventData> listener) {
+        for (Member member : members) {
+            member.client.on(event, listener);
+        }
+        return this;
+    }
+
+    /**
+     * Clients in key order, e.g. for account or job queries against one key
+     */
+    public List<ConvertorioClient> getClients() {
+        List<ConvertorioClient> clients = new ArrayList<>();
+        for (Member member : members) {
+            clients.add(member.client);
+        }
+        return clients;
+    }
+
+    /**
+     * Load, balance and drain state per key, in key order
+     */
+    public List<KeyMetrics> getKeyMetrics() {
+        long now = System.nanoTime();
+        List<KeyMetrics> metrics = new ArrayList<>();
+        synchronized (this) {
+            for (Member member : members) {
+                metrics.add(new KeyMetrics(member.maskedKey, member.inFlight, member.completed, member.failed,
+                    member.pointsBalance, member.isDrained(now)));
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Pick the key for the next conversion and count it as in flight
+     */
+    private synchronized Member select() {
+        long now = System.nanoTime();
+        Member best = pick(now, true, true);
+        if (best == null) {
+            // Every key is drained or out of points; keep going on the least loaded one rather than fail
+            best = pick(now, true, false);
+        }
+        if (best == null) {
+            best = pick(now, false, false);
+        }
+        best.inFlight++;
+        return best;
+    }
+
+    private Member pick(long now, boolean skipDrained, boolean skipExhausted) {
+        Member best = null;
+        // Start at a rotating offset so equally loaded keys take turns
+        for (int i = 0; i < members.size(); i++) {
+            Member member = members.get((nextMember + i) % members.size());
+            if ((skipDrained && member.isDrained(now)) ||
+                    (skipExhausted && member.pointsBalance != null && member.pointsBalance <= 0)) {
+                continue;
+            }
+            if (best == null || member.inFlight < best.inFlight ||
+                    (member.inFlight == best.inFlight && points(member) > points(best))) {
+                best = member;
+            }
+        }
+        if (best != null) {
+            nextMember = (members.indexOf(best) + 1) % members.size();
+        }
+        return best;
+    }
+
+    private static long points(Member member) {
+        return member.pointsBalance != null ? member.pointsBalance : Long.MIN_VALUE;
+    }
+
+    /**
+     * Whether a failure says something about the key rather than the input: API
+     * auth and quota errors and API server errors, not storage or local I/O errors
+     */
+    static boolean isKeyFailure(ConvertorioException e) {
+        if (e instanceof StorageException) {
+            return false;
+        }
+        int status = e.getStatusCode();
+        return status >= 500 || status == 401 || status == 402 || status == 403 || status == 429;
+    }
+
+    private static String mask(String apiKey) {
+        return apiKey.length() > 4 ? "..." + apiKey.substring(apiKey.length() - 4) : "...";
+    }
+
+    private final class Member {
+        final ConvertorioClient client;
+        final String maskedKey;
+        // Guarded by the pool
+        int inFlight;
+        long completed;
+        long failed;
+        Integer pointsBalance;
+        int consecutiveFailures;
+        long drainedUntil;
+
+        Member(ConvertorioClient client, String maskedKey) {
+            this.client = client;
+            this.maskedKey = maskedKey;
+        }
+
+        boolean isDrained(long now) {
+            return drainedUntil != 0 && now - drainedUntil < 0;
+        }
+
+        /**
+         * End a conversion started by {@link #select}
+         *
+         * @param result Result, or null if the conversion failed
+         */
+        void done(ConversionResult result) {
+            synchronized (ConvertorioClientPool.this) {
+                inFlight--;
+                if (result != null) {
+                    completed++;
+                    consecutiveFailures = 0;
+                    if (pointsBalance != null && result.getTokensUsed() != null) {
+                        pointsBalance -= result.getTokensUsed();
+                    }
+                }
+            }
+        }
+
+        void failed(ConvertorioException e) {
+            synchronized (ConvertorioClientPool.this) {
+                failed++;
+                if (isKeyFailure(e) && ++consecutiveFailures >= drainAfterFailures) {
+                    drainedUntil = System.nanoTime() + drainNanos;
+                    // On probation once re-admitted: the next failure drains it again
+                    consecutiveFailures = drainAfterFailures - 1;
+                }
+            }
+        }
+
+        void refreshed(Account account) {
+            synchronized (ConvertorioClientPool.this) {
+                pointsBalance = account.getPointsBalance();
+                consecutiveFailures = 0;
+            }
+        }
+    }
+
+    public static class Builder {
+        private final List<String> apiKeys = new ArrayList<>();
+        private ClientConfig config;
+        private int drainAfterFailures = 3;
+        private Duration drainDuration = Duration.ofSeconds(30);
+
+        /**
+         * Add an API key to the pool
+         */
+        public Builder apiKey(String apiKey) {
+            if (apiKey == null || apiKey.isEmpty()) {
+                throw new IllegalArgumentException("API key must not be empty");
+            }
+            apiKeys.add(apiKey);
+            return this;
+        }
+
+        /**
+         * Settings shared by every key's client; its API key is ignored
+         */
+        public Builder config(ClientConfig config) {
+            this.config = config;
+            return this;
+        }
+
+        /**
+         * Consecutive key failures that take a key out of rotation (default: 3)
+         */
+        public Builder drainAfterFailures(int drainAfterFailures) {
+            this.drainAfterFailures = drainAfterFailures;
+            return this;
+        }
+
+        /**
+         * How long a failing key stays out of rotation (default: 30s)
+         */
+        public Builder drainDuration(Duration drainDuration) {
+            this.drainDuration = drainDuration;
+            return this;
+        }
+
+        public ConvertorioClientPool build() {
+            return new ConvertorioClientPool(this);
+        }
+    }
+}
@@ -4,11 +4,26 @@ package com.sedesoft.convertorio;
  * Exception thrown by Convertorio SDK
  */
 public class ConvertorioException extends Exception {
+    private final int statusCode;
+
     public ConvertorioException(String message) {
-        super(message);
+        this(message, 0);
     }
 
     public ConvertorioException(String message, Throwable cause) {
         super(message, cause);
+        this.statusCode = 0;
+    }
+
+    public ConvertorioException(String message, int statusCode) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * HTTP status code of the failed response, or 0 if the failure was not an HTTP error response
+     */
+    public int getStatusCode() {
+        return statusCode;
     }
 }
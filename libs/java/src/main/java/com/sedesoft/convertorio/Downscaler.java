@@ -0,0 +1,242 @@
+package com.sedesoft.convertorio;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Shrinks large inputs locally before upload when the requested output is much smaller
+ *
+ * The image is never reduced below the dimensions the server needs for the
+ * requested resize_width, resize_height or icon_size, measured against the
+ * box an aspect_ratio crop keeps, and is re-encoded as lossless PNG.
+ */
+final class Downscaler {
+    private static final Set<String> DECODABLE_FORMATS = new HashSet<>(Arrays.asList("jpg", "png", "bmp", "tiff"));
+    private static final double MAX_SCALE = 0.75;
+    private static final int EXIF_SCAN_BYTES = 64 * 1024;
+
+    private Downscaler() {
+    }
+
+    /**
+     * Downscale an image for upload
+     *
+     * @return PNG-encoded image, or null if downscaling does not apply or would not save bytes
+     * @throws IOException if the image cannot be decoded
+     * @throws ConvertorioException if the conversion is cancelled or runs out of time around the decode
+     */
+    static ByteBuffer downscale(File file, String sourceFormat, Map<String, Object> metadata,
+                                ConversionContext context) throws IOException, ConvertorioException {
+        if (metadata == null || !DECODABLE_FORMATS.contains(sourceFormat)) {
+            return null;
+        }
+
+        Integer width = intValue(metadata.get("resize_width"));
+        Integer height = intValue(metadata.get("resize_height"));
+        Integer iconSize = intValue(metadata.get("icon_size"));
+        if (width == null && height == null && iconSize == null) {
+            return null;
+        }
+
+        // PNG carries no EXIF, so rotated JPEGs would come back sideways
+        if ("jpg".equals(sourceFormat) && hasExifRotation(file)) {
+            return null;
+        }
+
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            if (input == null) {
+                return null;
+            }
+
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int sourceWidth = reader.getWidth(0);
+                int sourceHeight = reader.getHeight(0);
+
+                double[] box = cropBox(sourceWidth, sourceHeight, metadata.get("aspect_ratio"));
+                if (box == null) {
+                    return null;
+                }
+                double scale = requiredScale(box[0], box[1], width, height, iconSize);
+                if (scale <= 0 || scale > MAX_SCALE) {
+                    return null;
+                }
+
+                int outputWidth = (int) Math.ceil(sourceWidth * scale);
+                int outputHeight = (int) Math.ceil(sourceHeight * scale);
+
+                // Subsample while decoding to cap heap use, but stay at twice the output size
+                // so the final resample can smooth out aliasing
+                int subsampling = Math.max(1, (int) Math.floor(1 / (2 * scale)));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                context.check();
+                BufferedImage decoded = reader.read(0, param);
+                context.check();
+
+                BufferedImage scaled = resize(decoded, outputWidth, outputHeight);
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                if (!ImageIO.write(scaled, "png", output) || output.size() >= file.length()) {
+                    return null;
+                }
+                return ByteBuffer.wrap(output.toByteArray());
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Part of the source an aspect_ratio crop keeps, the largest centred box of that ratio
+     *
+     * A fit with padding needs fewer pixels than this box, so the box is a safe bound for every crop strategy.
+     *
+     * @return Width and height of the box, or null for an aspect ratio that cannot be parsed
+     */
+    static double[] cropBox(int sourceWidth, int sourceHeight, Object aspectRatio) {
+        if (aspectRatio == null || "original".equals(aspectRatio.toString())) {
+            return new double[] {sourceWidth, sourceHeight};
+        }
+        String[] parts = aspectRatio.toString().split(":");
+        if (parts.length != 2) {
+            return null;
+        }
+        double ratio;
+        try {
+            ratio = Double.parseDouble(parts[0].trim()) / Double.parseDouble(parts[1].trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (!(ratio > 0) || Double.isInfinite(ratio)) {
+            return null;
+        }
+        if ((double) sourceWidth / sourceHeight > ratio) {
+            return new double[] {sourceHeight * ratio, sourceHeight};
+        }
+        return new double[] {sourceWidth, sourceWidth / ratio};
+    }
+
+    /**
+     * Smallest uniform scale that still leaves enough pixels in the kept box for every requested dimension
+     */
+    static double requiredScale(double boxWidth, double boxHeight, Integer width, Integer height, Integer iconSize) {
+        double scale = 0;
+        if (iconSize != null) {
+            // Icons are square, so the box's short side must cover the icon under any crop strategy
+            scale = Math.max(scale, iconSize / Math.min(boxWidth, boxHeight));
+        }
+        if (width != null) {
+            scale = Math.max(scale, width / boxWidth);
+        }
+        if (height != null) {
+            scale = Math.max(scale, height / boxHeight);
+        }
+        return scale;
+    }
+
+    private static BufferedImage resize(BufferedImage image, int width, int height) {
+        if (image.getWidth() <= width && image.getHeight() <= height) {
+            return image;
+        }
+
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage resized = new BufferedImage(width, height, type);
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return resized;
+    }
+
+    /**
+     * Look for an EXIF orientation tag other than "normal" in the JPEG APP1 segment
+     */
+    private static boolean hasExifRotation(File file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(EXIF_SCAN_BYTES);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            channel.read(buffer, 0);
+        }
+        buffer.flip();
+
+        int position = 2;
+        while (position + 4 <= buffer.limit() && (buffer.get(position) & 0xFF) == 0xFF) {
+            int marker = buffer.get(position + 1) & 0xFF;
+            int length = buffer.getShort(position + 2) & 0xFFFF;
+            if (marker == 0xE1 && position + 10 <= buffer.limit()
+                    && buffer.getInt(position + 4) == 0x45786966) {
+                return exifOrientation(buffer, position + 10) > 1;
+            }
+            if (marker == 0xDA) {
+                break;
+            }
+            position += 2 + length;
+        }
+        return false;
+    }
+
+    private static int exifOrientation(ByteBuffer buffer, int tiffStart) {
+        if (tiffStart + 8 > buffer.limit()) {
+            return 0;
+        }
+
+        ByteBuffer tiff = buffer.duplicate();
+        tiff.order(buffer.getShort(tiffStart) == 0x4949 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+        int ifd = tiffStart + tiff.getInt(tiffStart + 4);
+        if (ifd < tiffStart || ifd + 2 > tiff.limit()) {
+            return 0;
+        }
+
+        int entries = tiff.getShort(ifd) & 0xFFFF;
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > tiff.limit()) {
+                break;
+            }
+            if ((tiff.getShort(entry) & 0xFFFF) == 0x0112) {
+                return tiff.getShort(entry + 8) & 0xFFFF;
+            }
+        }
+        return 0;
+    }
+
+    private static Integer intValue(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        if (value != null) {
+            try {
+                return Integer.parseInt(value.toString().trim());
+            } catch (NumberFormatException ignored) {
+                // Leave validation of malformed values to the server
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,182 @@
+package com.sedesoft.convertorio;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Circuit breaker plus bulkhead for one endpoint class
+ *
+ * Closed: calls pass, consecutive failures are counted. Open: calls are
+ * rejected until the open duration passes. Half-open: a single trial call
+ * decides whether the circuit closes again or reopens.
+ */
+final class EndpointGuard {
+    static final String CLOSED = "closed";
+    static final String OPEN = "open";
+    static final String HALF_OPEN = "half-open";
+
+    private static final long CHECK_INTERVAL_MS = 100;
+
+    private final String endpoint;
+    private final int failureThreshold;
+    private final long openDurationNanos;
+    /** -1 waits until the conversion's deadline */
+    private final long maxWaitMs;
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final Consumer<EventData> listener;
+
+    private String state = CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+    private long rejectedCalls;
+    private long timesOpened;
+
+    EndpointGuard(String endpoint, IsolationPolicy policy, int maxConcurrent, Consumer<EventData> listener) {
+        this.endpoint = endpoint;
+        this.failureThreshold = policy.getFailureThreshold();
+        this.openDurationNanos = policy.getOpenDuration().toNanos();
+        this.maxWaitMs = policy.getMaxWait() != null ? policy.getMaxWait().toMillis() : -1;
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxConcurrent = maxConcurrent;
+        this.listener = listener;
+    }
+
+    /**
+     * Take a slot for one call
+     *
+     * @param context Conversion the call belongs to, bounding the wait for a slot; null outside a conversion
+     * @return true if this call is the half-open trial, to pass back to {@link #release}
+     * @throws ConvertorioException if the circuit is open, or no slot frees up in time
+     */
+    boolean acquire(ConversionContext context) throws ConvertorioException {
+        boolean trial = admit();
+
+        boolean acquired = false;
+        try {
+            acquired = takePermit(context);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (!acquired) {
+                synchronized (this) {
+                    rejectedCalls++;
+                    // A rejected trial must not keep the circuit half-open forever
+                    if (trial) {
+                        trialInFlight = false;
+                    }
+                }
+            }
+        }
+
+        if (!acquired) {
+            throw new ConvertorioException("Too many concurrent " + endpoint + " calls (limit: " + maxConcurrent + ")");
+        }
+        return trial;
+    }
+
+    private boolean takePermit(ConversionContext context) throws InterruptedException, ConvertorioException {
+        if (maxWaitMs == 0) {
+            return permits.tryAcquire();
+        }
+        if (maxWaitMs > 0) {
+            long wait = context != null ? Math.min(maxWaitMs, Math.max(0, context.remainingMillis())) : maxWaitMs;
+            return permits.tryAcquire(wait, TimeUnit.MILLISECONDS);
+        }
+        if (context == null) {
+            permits.acquire();
+            return true;
+        }
+        while (!permits.tryAcquire(Math.max(1, Math.min(CHECK_INTERVAL_MS, context.remainingMillis())),
+                TimeUnit.MILLISECONDS)) {
+            context.check();
+        }
+        return true;
+    }
+
+    /**
+     * Return the slot and record the outcome
+     *
+     * @param trial What {@link #acquire} returned; only the trial call closes or reopens a half-open circuit
+     * @param healthy false for I/O errors and 5xx/429 responses
+     */
+    void release(boolean trial, boolean healthy) {
+        permits.release();
+
+        String from;
+        String to;
+        synchronized (this) {
+            from = state;
+            if (healthy) {
+                consecutiveFailures = 0;
+                if (trial && HALF_OPEN.equals(state)) {
+                    state = CLOSED;
+                }
+            } else {
+                consecutiveFailures++;
+                if ((trial && HALF_OPEN.equals(state))
+                        || (CLOSED.equals(state) && consecutiveFailures >= failureThreshold)) {
+                    open();
+                }
+            }
+            if (trial) {
+                trialInFlight = false;
+            }
+            to = state;
+        }
+        notifyTransition(from, to);
+    }
+
+    /**
+     * @return true if the caller takes the half-open trial
+     */
+    private boolean admit() throws ConvertorioException {
+        boolean trial = false;
+        String from;
+        String to;
+        synchronized (this) {
+            from = state;
+            if (OPEN.equals(state)) {
+                if (System.nanoTime() - openedAt < openDurationNanos) {
+                    rejectedCalls++;
+                    throw new ConvertorioException("Circuit open for " + endpoint + " calls");
+                }
+                state = HALF_OPEN;
+            }
+            if (HALF_OPEN.equals(state)) {
+                if (trialInFlight) {
+                    rejectedCalls++;
+                    throw new ConvertorioException("Circuit half-open for " + endpoint + " calls, trial in progress");
+                }
+                trialInFlight = true;
+                trial = true;
+            }
+            to = state;
+        }
+        notifyTransition(from, to);
+        return trial;
+    }
+
+    private void open() {
+        state = OPEN;
+        openedAt = System.nanoTime();
+        timesOpened++;
+    }
+
+    private void notifyTransition(String from, String to) {
+        if (!from.equals(to)) {
+            listener.accept(EventData.builder()
+                .set("endpoint", endpoint)
+                .set("state", to)
+                .set("previousState", from)
+                .build());
+        }
+    }
+
+    synchronized EndpointMetrics metrics() {
+        return new EndpointMetrics(endpoint, state, maxConcurrent - permits.availablePermits(),
+            consecutiveFailures, rejectedCalls, timesOpened);
+    }
+}
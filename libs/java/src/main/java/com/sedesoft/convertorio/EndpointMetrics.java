@@ -0,0 +1,65 @@
+package com.sedesoft.convertorio;
+
+/**
+ * Snapshot of one endpoint class's circuit breaker and bulkhead
+ */
+public class EndpointMetrics {
+    private final String endpoint;
+    private final String state;
+    private final int inFlight;
+    private final int consecutiveFailures;
+    private final long rejectedCalls;
+    private final long timesOpened;
+
+    EndpointMetrics(String endpoint, String state, int inFlight, int consecutiveFailures,
+                    long rejectedCalls, long timesOpened) {
+        this.endpoint = endpoint;
+        this.state = state;
+        this.inFlight = inFlight;
+        this.consecutiveFailures = consecutiveFailures;
+        this.rejectedCalls = rejectedCalls;
+        this.timesOpened = timesOpened;
+    }
+
+    /**
+     * Endpoint class: api, upload or download
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * Circuit state: closed, open or half-open
+     */
+    public String getState() {
+        return state;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public long getRejectedCalls() {
+        return rejectedCalls;
+    }
+
+    public long getTimesOpened() {
+        return timesOpened;
+    }
+
+    @Override
+    public String toString() {
+        return "EndpointMetrics{" +
+                "endpoint='" + endpoint + '\'' +
+                ", state='" + state + '\'' +
+                ", inFlight=" + inFlight +
+                ", consecutiveFailures=" + consecutiveFailures +
+                ", rejectedCalls=" + rejectedCalls +
+                ", timesOpened=" + timesOpened +
+                '}';
+    }
+}
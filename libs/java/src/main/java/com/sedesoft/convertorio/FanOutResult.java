@@ -0,0 +1,56 @@
+package com.sedesoft.convertorio;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Outcome of {@link ConvertorioClient#convertToMany}, one entry per target
+ *
+ * A failed target does not affect the others: their results are kept, as
+ * they were uploaded and paid for.
+ */
+public class FanOutResult {
+    private final Map<TargetSpec, ConversionResult> results;
+    private final Map<TargetSpec, ConvertorioException> failures;
+
+    FanOutResult(Map<TargetSpec, ConversionResult> results, Map<TargetSpec, ConvertorioException> failures) {
+        this.results = Collections.unmodifiableMap(results);
+        this.failures = Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * @return true if every target converted
+     */
+    public boolean isSuccess() {
+        return failures.isEmpty();
+    }
+
+    /**
+     * Results of the targets that converted, in the order given
+     */
+    public Map<TargetSpec, ConversionResult> getResults() {
+        return results;
+    }
+
+    /**
+     * Errors of the targets that failed, in the order given
+     */
+    public Map<TargetSpec, ConvertorioException> getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return The target's result, or null if it failed
+     */
+    public ConversionResult get(TargetSpec target) {
+        return results.get(target);
+    }
+
+    @Override
+    public String toString() {
+        return "FanOutResult{" +
+            "converted=" + results.size() +
+            ", failed=" + failures.size() +
+            '}';
+    }
+}
@@ -0,0 +1,69 @@
+package com.sedesoft.convertorio;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Writes converted files to the local file system
+ *
+ * Files go to the conversion's outputPath or, without one, next to the
+ * input with the target format's extension. A file whose download or
+ * write fails is deleted.
+ */
+public class FileSink implements ResultSink {
+    @Override
+    public Output open(Target target) throws IOException {
+        String path = target.getOutputPath() != null ?
+            target.getOutputPath() : defaultOutputPath(target.getInputPath(), target.getTargetFormat());
+        return new FileOutput(new File(path));
+    }
+
+    /**
+     * Input path with the extension replaced by the target format
+     */
+    static String defaultOutputPath(String inputPath, String targetFormat) {
+        File inputFile = new File(inputPath);
+        String dir = inputFile.getParent();
+        String name = inputFile.getName();
+        int dot = name.lastIndexOf('.');
+        String baseName = dot > 0 ? name.substring(0, dot) : name;
+        String separator = dir != null ? File.separator : "";
+        return (dir != null ? dir : "") + separator + baseName + "." + targetFormat.toLowerCase();
+    }
+
+    static final class FileOutput implements Output {
+        private final File file;
+        private final FileOutputStream stream;
+
+        FileOutput(File file) throws IOException {
+            File parentDir = file.getParentFile();
+            if (parentDir != null && !parentDir.exists()) {
+                parentDir.mkdirs();
+            }
+            this.file = file;
+            this.stream = new FileOutputStream(file);
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) throws IOException {
+            stream.write(data, offset, length);
+        }
+
+        @Override
+        public String commit() throws IOException {
+            stream.close();
+            return file.getPath();
+        }
+
+        @Override
+        public void abort() {
+            try {
+                stream.close();
+            } catch (IOException ignored) {
+                // The file is deleted anyway
+            }
+            file.delete();
+        }
+    }
+}
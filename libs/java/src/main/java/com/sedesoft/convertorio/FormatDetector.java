@@ -0,0 +1,180 @@
+package com.sedesoft.convertorio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Detects image formats from file content (magic bytes)
+ *
+ * Only the first {@value #HEADER_SIZE} bytes are read, with a single positional
+ * read on a {@link FileChannel}.
+ */
+public final class FormatDetector {
+    static final int HEADER_SIZE = 32;
+
+    private FormatDetector() {
+    }
+
+    /**
+     * Detect the format of a file from its header
+     *
+     * @param path File to inspect
+     * @param extension File extension, used to tell TIFF-based raw formats apart (may be null)
+     * @return Lowercase format name, or null if the content is not recognized
+     * @throws IOException if the file cannot be read
+     */
+    public static String detect(Path path, String extension) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            int length = Math.max(channel.read(header, 0), 0);
+            return detect(header.array(), length, extension);
+        }
+    }
+
+    /**
+     * Detect a format from header bytes
+     *
+     * @param header First bytes of the file
+     * @param length Number of valid bytes in header
+     * @param extension File extension, used to tell TIFF-based raw formats apart (may be null)
+     * @return Lowercase format name, or null if the content is not recognized
+     */
+    public static String detect(byte[] header, int length, String extension) {
+        if (startsWith(header, length, 0, 0xFF, 0xD8, 0xFF)) {
+            return "jpg";
+        }
+        if (startsWith(header, length, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return "png";
+        }
+        if (startsWith(header, length, 0, 'G', 'I', 'F', '8')) {
+            return "gif";
+        }
+        if (startsWith(header, length, 0, 'R', 'I', 'F', 'F') && startsWith(header, length, 8, 'W', 'E', 'B', 'P')) {
+            return "webp";
+        }
+        // Before ICO: a 256-byte ftyp box starts with the same 00 00 01 00
+        if (startsWith(header, length, 4, 'f', 't', 'y', 'p')) {
+            return detectIsoMedia(header, length);
+        }
+        if (startsWith(header, length, 0, 0x00, 0x00, 0x01, 0x00) && isIconDirectory(header, length)) {
+            return "ico";
+        }
+        if (startsWith(header, length, 0, '%', 'P', 'D', 'F')) {
+            return "pdf";
+        }
+        if (startsWith(header, length, 0, 'B', 'M') && isBmpInfoHeader(header, length)) {
+            return "bmp";
+        }
+        if (startsWith(header, length, 0, 'I', 'I', 0x2A, 0x00) || startsWith(header, length, 0, 'M', 'M', 0x00, 0x2A)) {
+            return detectTiffBased(header, length, extension);
+        }
+        return null;
+    }
+
+    /**
+     * 00 00 01 00 is common in binary data, so the directory must hold at
+     * least one image and its first entry must look like one
+     */
+    private static boolean isIconDirectory(byte[] header, int length) {
+        if (length < 12) {
+            return false;
+        }
+        int count = (header[4] & 0xFF) | (header[5] & 0xFF) << 8;
+        int reserved = header[9] & 0xFF;
+        int planes = (header[10] & 0xFF) | (header[11] & 0xFF) << 8;
+        return count > 0 && reserved == 0 && planes <= 1;
+    }
+
+    /**
+     * "BM" alone also starts plain text, so the DIB header size after the
+     * 14-byte file header must be one of the known ones
+     */
+    private static boolean isBmpInfoHeader(byte[] header, int length) {
+        if (length < 18) {
+            return false;
+        }
+        int size = (header[14] & 0xFF) | (header[15] & 0xFF) << 8 |
+            (header[16] & 0xFF) << 16 | (header[17] & 0xFF) << 24;
+        switch (size) {
+            case 12:  // BITMAPCOREHEADER
+            case 40:  // BITMAPINFOHEADER
+            case 52:
+            case 56:
+            case 64:  // OS/2 BITMAPINFOHEADER2
+            case 108: // BITMAPV4HEADER
+            case 124: // BITMAPV5HEADER
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Canon CR2 is marked in the TIFF header; DNG, NEF and ARW need a full IFD
+     * walk to tell apart, so a matching raw extension is trusted instead
+     */
+    private static String detectTiffBased(byte[] header, int length, String extension) {
+        if (startsWith(header, length, 8, 'C', 'R', 0x02)) {
+            return "cr2";
+        }
+        if ("dng".equals(extension) || "nef".equals(extension) || "arw".equals(extension)) {
+            return extension;
+        }
+        return "tiff";
+    }
+
+    /**
+     * AVIF and HEIC share the ISO base media container and differ by brand
+     */
+    private static String detectIsoMedia(byte[] header, int length) {
+        String majorBrand = brand(header, length, 8);
+        if ("avif".equals(majorBrand) || "avis".equals(majorBrand)) {
+            return "avif";
+        }
+
+        // Generic brands such as mif1 list the concrete format among the compatible brands
+        for (int offset = 16; offset + 4 <= length; offset += 4) {
+            String compatible = brand(header, length, offset);
+            if ("avif".equals(compatible) || "avis".equals(compatible)) {
+                return "avif";
+            }
+        }
+
+        switch (majorBrand != null ? majorBrand : "") {
+            case "heic":
+            case "heix":
+            case "hevc":
+            case "hevx":
+            case "heim":
+            case "heis":
+            case "mif1":
+            case "msf1":
+                return "heic";
+            default:
+                return null;
+        }
+    }
+
+    private static String brand(byte[] header, int length, int offset) {
+        if (offset + 4 > length) {
+            return null;
+        }
+        return new String(header, offset, 4, StandardCharsets.US_ASCII);
+    }
+
+    private static boolean startsWith(byte[] header, int length, int offset, int... magic) {
+        if (offset + magic.length > length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if ((header[offset + i] & 0xFF) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
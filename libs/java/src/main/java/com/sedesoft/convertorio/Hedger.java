@@ -0,0 +1,218 @@
+package com.sedesoft.convertorio;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.HttpUrl;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs idempotent requests with an optional delayed duplicate
+ *
+ * Keeps a window of recent latencies per base URL and endpoint to pick the
+ * hedge delay, so a slow endpoint or server does not set the delay of a fast
+ * one, and a token bucket that earns {@link HedgingPolicy#getBudgetRatio()}
+ * tokens per request and spends one per hedge.
+ */
+final class Hedger {
+    private static final int WINDOW_SIZE = 256;
+    private static final double MAX_BUDGET_TOKENS = 10;
+
+    private final HedgingPolicy policy;
+    // Keyed by origin and endpoint; both come from a short fixed list
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+    private double budgetTokens;
+
+    interface CallFactory {
+        /**
+         * @param hedge false for the first call, true for the duplicate
+         */
+        Call newCall(boolean hedge) throws ConvertorioException;
+    }
+
+    Hedger(HedgingPolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * @param endpoint Endpoint the latencies are grouped by, without IDs or query, e.g. /v1/jobs/{id}
+     */
+    Response execute(String endpoint, CallFactory calls) throws IOException, ConvertorioException {
+        CompletableFuture<Response> winner = new CompletableFuture<>();
+        AtomicInteger launched = new AtomicInteger(1);
+        AtomicInteger failed = new AtomicInteger();
+        AtomicReference<Call> winningCall = new AtomicReference<>();
+
+        Call primary = calls.newCall(false);
+        Call hedge = null;
+        Window window = window(primary, endpoint);
+        primary.enqueue(new HedgeCallback(window, winner, winningCall, launched, failed));
+        earnBudget();
+
+        Response response = null;
+        try {
+            long delay = window.hedgeDelayMs();
+            if (delay < 0) {
+                response = await(winner);
+                return response;
+            }
+
+            try {
+                response = winner.get(delay, TimeUnit.MILLISECONDS);
+                return response;
+            } catch (TimeoutException e) {
+                // A primary that failed in the meantime is not hedged, its error is reported
+                if (winner.isDone() || !spendBudget()) {
+                    response = await(winner);
+                    return response;
+                }
+                hedge = calls.newCall(true);
+                launched.incrementAndGet();
+                JfrEvents.retry("hedge", hedge.request().url().encodedPath(), 2);
+                hedge.enqueue(new HedgeCallback(window(hedge, endpoint), winner, winningCall, launched, failed));
+                response = await(winner);
+                return response;
+            } catch (ExecutionException e) {
+                throw unwrap(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Request interrupted");
+            }
+        } finally {
+            if (response == null) {
+                abandon(winner);
+            }
+            // The losing call is cancelled; a losing response that already arrived is closed by its callback
+            Call won = response != null ? winningCall.get() : null;
+            if (primary != won) {
+                primary.cancel();
+            }
+            if (hedge != null && hedge != won) {
+                hedge.cancel();
+            }
+        }
+    }
+
+    /**
+     * Nothing is returned to the caller: close a response that already won, and make later ones close themselves
+     */
+    private static void abandon(CompletableFuture<Response> winner) {
+        if (winner.completeExceptionally(new CancellationException())) {
+            return;
+        }
+        if (!winner.isCompletedExceptionally()) {
+            Response arrived = winner.getNow(null);
+            if (arrived != null) {
+                arrived.close();
+            }
+        }
+    }
+
+    private Response await(CompletableFuture<Response> winner) throws IOException {
+        try {
+            return winner.get();
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Request interrupted");
+        }
+    }
+
+    private IOException unwrap(ExecutionException e) {
+        return e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+    }
+
+    private Window window(Call call, String endpoint) {
+        HttpUrl url = call.request().url();
+        return windows.computeIfAbsent(url.scheme() + "://" + url.host() + ":" + url.port() + endpoint,
+            key -> new Window());
+    }
+
+    private synchronized void earnBudget() {
+        budgetTokens = Math.min(MAX_BUDGET_TOKENS, budgetTokens + policy.getBudgetRatio());
+    }
+
+    private synchronized boolean spendBudget() {
+        if (budgetTokens < 1) {
+            return false;
+        }
+        budgetTokens--;
+        return true;
+    }
+
+    /**
+     * Recent latencies of one endpoint on one base URL
+     */
+    private final class Window {
+        private final long[] latencies = new long[WINDOW_SIZE];
+        private int count;
+        private int index;
+
+        /**
+         * @return Delay before hedging, or -1 while there is not enough latency history
+         */
+        synchronized long hedgeDelayMs() {
+            if (count < policy.getMinSamples()) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(policy.getPercentile() * sorted.length) - 1;
+            return Math.max(policy.getMinDelayMs(), sorted[Math.max(0, rank)]);
+        }
+
+        synchronized void record(long latencyMs) {
+            latencies[index] = latencyMs;
+            index = (index + 1) % WINDOW_SIZE;
+            count = Math.min(count + 1, WINDOW_SIZE);
+        }
+    }
+
+    private class HedgeCallback implements Callback {
+        private final Window window;
+        private final CompletableFuture<Response> winner;
+        private final AtomicReference<Call> winningCall;
+        private final AtomicInteger launched;
+        private final AtomicInteger failed;
+        private final long startedAt = System.nanoTime();
+
+        HedgeCallback(Window window, CompletableFuture<Response> winner, AtomicReference<Call> winningCall,
+                      AtomicInteger launched, AtomicInteger failed) {
+            this.window = window;
+            this.winner = winner;
+            this.winningCall = winningCall;
+            this.launched = launched;
+            this.failed = failed;
+        }
+
+        @Override
+        public void onResponse(Call call, Response response) {
+            window.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+            // Losers and responses arriving after the caller gave up are closed, or their connection leaks
+            if (!winningCall.compareAndSet(null, call) || !winner.complete(response)) {
+                response.close();
+            }
+        }
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            // Only fail once every call sent so far has failed
+            if (failed.incrementAndGet() >= launched.get()) {
+                winner.completeExceptionally(e);
+            }
+        }
+    }
+}
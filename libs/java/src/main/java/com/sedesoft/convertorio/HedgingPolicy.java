@@ -0,0 +1,97 @@
+package com.sedesoft.convertorio;
+
+/**
+ * Settings for hedging idempotent API reads
+ *
+ * When a GET (job status, job list, account) has not answered within the
+ * given percentile of the latencies recently observed for that endpoint on
+ * that base URL, a second identical request is sent. The first response
+ * wins and the other call is cancelled. A budget caps hedges to a fraction
+ * of all requests.
+ *
+ * With several base URLs the duplicate goes to another one. With a single
+ * base URL it shares the primary's HTTP/2 connection, so it helps against a
+ * slow server but not against a stalled connection.
+ */
+public class HedgingPolicy {
+    private final double percentile;
+    private final double budgetRatio;
+    private final long minDelayMs;
+    private final int minSamples;
+
+    private HedgingPolicy(Builder builder) {
+        this.percentile = builder.percentile;
+        this.budgetRatio = builder.budgetRatio;
+        this.minDelayMs = builder.minDelayMs;
+        this.minSamples = builder.minSamples;
+    }
+
+    public double getPercentile() {
+        return percentile;
+    }
+
+    public double getBudgetRatio() {
+        return budgetRatio;
+    }
+
+    public long getMinDelayMs() {
+        return minDelayMs;
+    }
+
+    public int getMinSamples() {
+        return minSamples;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private double percentile = 0.95;
+        private double budgetRatio = 0.05;
+        private long minDelayMs = 20;
+        private int minSamples = 20;
+
+        /**
+         * Latency percentile after which a hedge is sent (default: 0.95)
+         */
+        public Builder percentile(double percentile) {
+            if (percentile <= 0 || percentile >= 1) {
+                throw new IllegalArgumentException("percentile must be between 0 and 1");
+            }
+            this.percentile = percentile;
+            return this;
+        }
+
+        /**
+         * Maximum hedges as a fraction of requests (default: 0.05)
+         */
+        public Builder budgetRatio(double budgetRatio) {
+            if (budgetRatio < 0) {
+                throw new IllegalArgumentException("budgetRatio must not be negative");
+            }
+            this.budgetRatio = budgetRatio;
+            return this;
+        }
+
+        /**
+         * Never hedge sooner than this (default: 20 ms)
+         */
+        public Builder minDelayMs(long minDelayMs) {
+            this.minDelayMs = minDelayMs;
+            return this;
+        }
+
+        /**
+         * Latency samples needed before hedging starts (default: 20)
+         */
+        public Builder minSamples(int minSamples) {
+            this.minSamples = minSamples;
+            return this;
+        }
+
+        public HedgingPolicy build() {
+            return new HedgingPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.sedesoft.convertorio;
+
+import okhttp3.ConnectionSpec;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lazily built OkHttp clients of one or more {@link ConvertorioClient}s
+ *
+ * Nothing is built until the first request, so creating a client is cheap.
+ * Setting up TLS (the platform trust store and SSL context) is the largest
+ * part of OkHttp's start-up cost, so plain HTTP requests, as to a local
+ * proxy or mock server, go through a cleartext-only client and TLS is only
+ * initialized by the first HTTPS request. All clients share one connection
+ * pool and dispatcher. The cleartext clients cannot follow a redirect to
+ * HTTPS themselves, so they return it and {@link #tlsRedirect} builds the
+ * request to send through {@link #tlsFor}.
+ */
+final class HttpStack {
+    // Outlasts the 30 s server-side wait of status streams
+    private static final int STREAM_READ_TIMEOUT_SECONDS = 45;
+
+    private volatile OkHttpClient cleartext;
+    private volatile OkHttpClient tls;
+    private volatile OkHttpClient cleartextStream;
+    private volatile OkHttpClient tlsStream;
+
+    /**
+     * Holds the media type, so that OkHttp is not loaded along with the client class
+     */
+    static final class Types {
+        static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+        private Types() {
+        }
+    }
+
+    /**
+     * @return The client for the request's scheme
+     */
+    OkHttpClient client(Request request) {
+        if (request.isHttps()) {
+            OkHttpClient client = tls;
+            return client != null ? client : initTls();
+        }
+        OkHttpClient client = cleartext;
+        return client != null ? client : initCleartext();
+    }
+
+    /**
+     * @return The client for long-lived status streams, whose read timeout outlasts the server-side wait
+     */
+    OkHttpClient streamClient(Request request) {
+        if (request.isHttps()) {
+            OkHttpClient client = tlsStream;
+            return client != null ? client : initTlsStream();
+        }
+        OkHttpClient client = cleartextStream;
+        return client != null ? client : initCleartextStream();
+    }
+
+    /**
+     * @return The HTTPS counterpart of a client returned by {@link #client} or {@link #streamClient}
+     */
+    OkHttpClient tlsFor(OkHttpClient client) {
+        if (client == cleartextStream || client == tlsStream) {
+            OkHttpClient stream = tlsStream;
+            return stream != null ? stream : initTlsStream();
+        }
+        OkHttpClient tlsClient = tls;
+        return tlsClient != null ? tlsClient : initTls();
+    }
+
+    /**
+     * Follow-up request for a redirect from http:// to https://, following OkHttp's rules
+     *
+     * @return The request, or null if the response is not such a redirect
+     */
+    static Request tlsRedirect(Response response) {
+        Request request = response.request();
+        String location = response.header("Location");
+        if (request.isHttps() || !response.isRedirect() || location == null) {
+            return null;
+        }
+        HttpUrl url = request.url().resolve(location);
+        if (url == null || !url.isHttps()) {
+            return null;
+        }
+
+        Request.Builder followUp = request.newBuilder().url(url);
+        int code = response.code();
+        if (code != 307 && code != 308 && !"GET".equals(request.method()) && !"HEAD".equals(request.method())) {
+            // 301, 302 and 303 turn a request with a body into a GET
+            followUp.get()
+                .removeHeader("Transfer-Encoding")
+                .removeHeader("Content-Length")
+                .removeHeader("Content-Type");
+        }
+        // Upgrading the same host keeps the API key, which OkHttp would drop for the change of scheme
+        if (!url.host().equals(request.url().host())) {
+            followUp.removeHeader("Authorization");
+        }
+        return followUp.build();
+    }
+
+    private synchronized OkHttpClient initCleartext() {
+        if (cleartext == null) {
+            // Hedged reads run as async calls, which the default dispatcher limits to 5 per host
+            Dispatcher dispatcher = new Dispatcher();
+            dispatcher.setMaxRequests(256);
+            dispatcher.setMaxRequestsPerHost(64);
+
+            cleartext = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionSpecs(Collections.singletonList(ConnectionSpec.CLEARTEXT))
+                .followSslRedirects(false)
+                .connectTimeout(30, TimeUnit.SECONDS)
+                .readTimeout(30, TimeUnit.SECONDS)
+                .writeTimeout(30, TimeUnit.SECONDS)
+                .build();
+        }
+        return cleartext;
+    }
+
+    private synchronized OkHttpClient initTls() {
+        if (tls == null) {
+            OkHttpClient base = cleartext != null ? cleartext : initCleartext();
+            tls = base.newBuilder()
+                .connectionSpecs(Arrays.asList(ConnectionSpec.MODERN_TLS, ConnectionSpec.CLEARTEXT))
+                .followSslRedirects(true)
+                .build();
+        }
+        return tls;
+    }
+
+    private synchronized OkHttpClient initCleartextStream() {
+        if (cleartextStream == null) {
+            OkHttpClient base = cleartext != null ? cleartext : initCleartext();
+            cleartextStream = base.newBuilder()
+                .readTimeout(STREAM_READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .build();
+        }
+        return cleartextStream;
+    }
+
+    private synchronized OkHttpClient initTlsStream() {
+        if (tlsStream == null) {
+            OkHttpClient base = tls != null ? tls : initTls();
+            tlsStream = base.newBuilder()
+                .readTimeout(STREAM_READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .build();
+        }
+        return tlsStream;
+    }
+}
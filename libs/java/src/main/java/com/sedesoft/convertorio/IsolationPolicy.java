@@ -0,0 +1,113 @@
+package com.sedesoft.convertorio;
+
+import java.time.Duration;
+
+/**
+ * Circuit breaker and bulkhead settings per endpoint class
+ *
+ * API calls, uploads to storage and downloads from storage each get their
+ * own circuit breaker and concurrency limit, so one degraded dependency
+ * fails fast instead of tying up every thread.
+ */
+public class IsolationPolicy {
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final int maxConcurrentApiCalls;
+    private final int maxConcurrentUploads;
+    private final int maxConcurrentDownloads;
+    private final Duration maxWait;
+
+    private IsolationPolicy(Builder builder) {
+        this.failureThreshold = builder.failureThreshold;
+        this.openDuration = builder.openDuration;
+        this.maxConcurrentApiCalls = builder.maxConcurrentApiCalls;
+        this.maxConcurrentUploads = builder.maxConcurrentUploads;
+        this.maxConcurrentDownloads = builder.maxConcurrentDownloads;
+        this.maxWait = builder.maxWait;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public Duration getOpenDuration() {
+        return openDuration;
+    }
+
+    public int getMaxConcurrentApiCalls() {
+        return maxConcurrentApiCalls;
+    }
+
+    public int getMaxConcurrentUploads() {
+        return maxConcurrentUploads;
+    }
+
+    public int getMaxConcurrentDownloads() {
+        return maxConcurrentDownloads;
+    }
+
+    /**
+     * @return How long to wait for a free slot, or null to wait until the conversion's deadline
+     */
+    public Duration getMaxWait() {
+        return maxWait;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private int failureThreshold = 5;
+        private Duration openDuration = Duration.ofSeconds(30);
+        private int maxConcurrentApiCalls = 32;
+        private int maxConcurrentUploads = 8;
+        private int maxConcurrentDownloads = 8;
+        private Duration maxWait;
+
+        /**
+         * Consecutive failures (I/O errors, 5xx, 429) that open a circuit (default: 5)
+         */
+        public Builder failureThreshold(int failureThreshold) {
+            this.failureThreshold = failureThreshold;
+            return this;
+        }
+
+        /**
+         * How long an open circuit rejects calls before letting a trial call through (default: 30s)
+         */
+        public Builder openDuration(Duration openDuration) {
+            this.openDuration = openDuration;
+            return this;
+        }
+
+        public Builder maxConcurrentApiCalls(int maxConcurrentApiCalls) {
+            this.maxConcurrentApiCalls = maxConcurrentApiCalls;
+            return this;
+        }
+
+        public Builder maxConcurrentUploads(int maxConcurrentUploads) {
+            this.maxConcurrentUploads = maxConcurrentUploads;
+            return this;
+        }
+
+        public Builder maxConcurrentDownloads(int maxConcurrentDownloads) {
+            this.maxConcurrentDownloads = maxConcurrentDownloads;
+            return this;
+        }
+
+        /**
+         * How long to wait for a free slot before rejecting; {@link Duration#ZERO} rejects
+         * immediately (default: wait until the conversion's deadline or cancellation, and
+         * without limit for calls outside a conversion)
+         */
+        public Builder maxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+            return this;
+        }
+
+        public IsolationPolicy build() {
+            return new IsolationPolicy(this);
+        }
+    }
+}
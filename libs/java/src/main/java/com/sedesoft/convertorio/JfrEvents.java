@@ -0,0 +1,210 @@
+package com.sedesoft.convertorio;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JDK Flight Recorder events for conversions
+ *
+ * The events are regular JFR events, so they are switched on and off and
+ * given thresholds through JFR settings, and cost next to nothing while
+ * disabled: the factories return null for a disabled event, so call sites
+ * skip filling in its fields. Runtimes without the jdk.jfr module simply
+ * get no events: call sites only create them when {@link #AVAILABLE} is
+ * true, and only refer to the event classes by their own type so the
+ * module is never loaded otherwise.
+ */
+final class JfrEvents {
+    static final boolean AVAILABLE = isAvailable();
+
+    private JfrEvents() {
+    }
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, JfrEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return A started event, or null without JFR or while the event is disabled
+     */
+    static StageEvent stage(String name) {
+        if (!AVAILABLE) {
+            return null;
+        }
+        StageEvent event = new StageEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.stage = name;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @return A started event, or null without JFR or while the event is disabled
+     */
+    static RequestEvent request(String method, String endpoint) {
+        if (!AVAILABLE) {
+            return null;
+        }
+        RequestEvent event = new RequestEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.method = method;
+        event.endpoint = endpoint;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @return A started event, or null without JFR or while the event is disabled
+     */
+    static PollEvent poll(String jobId, int attempt) {
+        if (!AVAILABLE) {
+            return null;
+        }
+        PollEvent event = new PollEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.jobId = jobId;
+        event.attempt = attempt;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Record a repeated request: a read failed over to another base URL, a hedge or a stream reconnect
+     */
+    static void retry(String reason, String endpoint, int attempt) {
+        if (AVAILABLE) {
+            commitRetry(reason, endpoint, attempt);
+        }
+    }
+
+    private static void commitRetry(String reason, String endpoint, int attempt) {
+        RetryEvent event = new RetryEvent();
+        if (event.isEnabled()) {
+            event.reason = reason;
+            event.endpoint = endpoint;
+            event.attempt = attempt;
+            event.commit();
+        }
+    }
+
+    @Name("com.sedesoft.convertorio.Stage")
+    @Label("Convertorio Stage")
+    @Category("Convertorio")
+    @Description("One stage of a conversion: budget, upload-url, upload, confirm, poll, download, write " +
+        "or a lane queue wait")
+    static final class StageEvent extends Event {
+        @Label("Stage")
+        String stage;
+
+        @Label("Job ID")
+        String jobId;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+
+        @Label("HTTP Status")
+        int statusCode;
+
+        @Label("Job Status")
+        String jobStatus;
+
+        @Label("Error")
+        String error;
+
+        /**
+         * Pick up the span attributes a stage sets
+         */
+        void setAttribute(String key, String value) {
+            if ("convertorio.job_id".equals(key)) {
+                jobId = value;
+            } else if ("convertorio.job_status".equals(key)) {
+                jobStatus = value;
+            }
+        }
+
+        void setAttribute(String key, long value) {
+            if ("convertorio.bytes".equals(key)) {
+                bytes = value;
+            } else if ("http.status_code".equals(key)) {
+                statusCode = (int) value;
+            }
+        }
+    }
+
+    @Name("com.sedesoft.convertorio.Request")
+    @Label("Convertorio API Request")
+    @Category("Convertorio")
+    @Description("One API request, from sending it until its response body was read")
+    static final class RequestEvent extends Event {
+        @Label("Method")
+        String method;
+
+        @Label("Endpoint")
+        String endpoint;
+
+        @Label("Base URL")
+        String baseUrl;
+
+        @Label("HTTP Status")
+        @Description("0 if no response arrived")
+        int statusCode;
+
+        @Label("Response Bytes")
+        @DataAmount
+        long bytes;
+
+        @Label("Error")
+        String error;
+    }
+
+    @Name("com.sedesoft.convertorio.Poll")
+    @Label("Convertorio Poll")
+    @Category("Convertorio")
+    @Description("One job status check, including the wait before it")
+    static final class PollEvent extends Event {
+        @Label("Job ID")
+        String jobId;
+
+        @Label("Attempt")
+        int attempt;
+
+        @Label("Delay")
+        @Timespan(Timespan.MILLISECONDS)
+        long delay;
+
+        @Label("Job Status")
+        String jobStatus;
+    }
+
+    @Name("com.sedesoft.convertorio.Retry")
+    @Label("Convertorio Retry")
+    @Category("Convertorio")
+    @Description("A request sent again: failover to another base URL, a hedged read or a status stream reconnect")
+    static final class RetryEvent extends Event {
+        @Label("Reason")
+        String reason;
+
+        @Label("Endpoint")
+        String endpoint;
+
+        @Label("Attempt")
+        int attempt;
+    }
+}
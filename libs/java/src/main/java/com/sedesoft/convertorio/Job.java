@@ -1,5 +1,8 @@
 package com.sedesoft.convertorio;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.google.gson.annotations.SerializedName;
 
 /**
@@ -39,6 +42,44 @@ public class Job {
     @SerializedName("expires_at")
     private String expiresAt;
 
+    /**
+     * Map an API job object without reflection
+     *
+     * @return The job, or null for a missing or null value
+     */
+    static Job fromJson(JsonElement element) {
+        if (element == null || !element.isJsonObject()) {
+            return null;
+        }
+        JsonObject json = element.getAsJsonObject();
+        Job job = new Job();
+        job.id = Json.string(json, "id");
+        job.status = Json.string(json, "status");
+        job.sourceFormat = Json.string(json, "source_format");
+        job.targetFormat = Json.string(json, "target_format");
+        job.fileSize = Json.longValue(json, "file_size");
+        job.processingTimeMs = Json.longValue(json, "processing_time_ms");
+        job.tokensUsed = Json.intValue(json, "tokens_used");
+        job.downloadUrl = Json.string(json, "download_url");
+        job.errorMessage = Json.string(json, "error_message");
+        job.createdAt = Json.string(json, "created_at");
+        job.completedAt = Json.string(json, "completed_at");
+        job.expiresAt = Json.string(json, "expires_at");
+        return job;
+    }
+
+    static Job[] fromJsonArray(JsonElement element) {
+        if (element == null || !element.isJsonArray()) {
+            return null;
+        }
+        JsonArray array = element.getAsJsonArray();
+        Job[] jobs = new Job[array.size()];
+        for (int i = 0; i < jobs.length; i++) {
+            jobs[i] = fromJson(array.get(i));
+        }
+        return jobs;
+    }
+
     // Getters
     public String getId() {
         return id;
@@ -0,0 +1,320 @@
+package com.sedesoft.convertorio;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scans the whole job history of an account
+ *
+ * Pages of {@link ConvertorioClient#listJobs} are fetched in parallel and
+ * aggregated as they arrive into {@link JobStats} by day, format pair and
+ * status: counts, failure rate, total file size and tokens, and processing
+ * time quantiles. Memory grows with the number of groups, not of jobs.
+ * Optionally every job is also written to a CSV or JSON Lines export.
+ *
+ * <pre>{@code
+ * JobStats stats = JobHistory.builder()
+ *     .client(client)
+ *     .parallelism(8)
+ *     .export(writer, JobHistory.Format.CSV)
+ *     .build()
+ *     .scan();
+ * for (JobStats.Group pair : stats.byPair()) {
+ *     System.out.println(pair);
+ * }
+ * }</pre>
+ *
+ * Jobs created while a scan runs shift the pages, so a few jobs may be
+ * counted twice or missed; scan when the account is quiet for exact numbers.
+ */
+public class JobHistory {
+    public static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * Export formats
+     */
+    public enum Format {
+        CSV,
+        JSONL
+    }
+
+    private static final String CSV_HEADER = "id,status,source_format,target_format,file_size,processing_time_ms," +
+        "tokens_used,created_at,completed_at,error_message\n";
+
+    private final ConvertorioClient client;
+    private final int pageSize;
+    private final int parallelism;
+    private final String status;
+    private final ZoneId zone;
+    private final Writer export;
+    private final Format exportFormat;
+
+    private JobHistory(Builder builder) {
+        if (builder.client == null) {
+            throw new IllegalArgumentException("client is required");
+        }
+        if (builder.export != null && builder.exportFormat == null) {
+            throw new IllegalArgumentException("An export format is required");
+        }
+
+        this.client = builder.client;
+        this.pageSize = builder.pageSize;
+        this.parallelism = builder.parallelism;
+        this.status = builder.status;
+        this.zone = builder.zone;
+        this.export = builder.export;
+        this.exportFormat = builder.exportFormat;
+    }
+
+    /**
+     * Fetch and aggregate every page of the job history
+     *
+     * @throws ConvertorioException if a page cannot be fetched or the export cannot be written
+     */
+    public JobStats scan() throws ConvertorioException {
+        long started = System.nanoTime();
+        AtomicInteger nextPage = new AtomicInteger();
+        // The first page that came back short; later pages are not fetched
+        AtomicInteger lastPage = new AtomicInteger(Integer.MAX_VALUE);
+        AtomicLong pages = new AtomicLong();
+
+        try {
+            if (export != null && exportFormat == Format.CSV) {
+                export.write(CSV_HEADER);
+            }
+        } catch (IOException e) {
+            throw new ConvertorioException("Failed to write export: " + e.getMessage(), e);
+        }
+
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "convertorio-history");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Map<List<Object>, JobStats.Group>>> futures = new ArrayList<>();
+            for (int i = 0; i < parallelism; i++) {
+                futures.add(workers.submit(() -> {
+                    // Every worker aggregates on its own and the results are merged at the end
+                    Map<List<Object>, JobStats.Group> groups = new HashMap<>();
+                    int page;
+                    while ((page = nextPage.getAndIncrement()) <= lastPage.get()) {
+                        Job[] jobs;
+                        try {
+                            jobs = client.listJobs(pageSize, Math.multiplyExact(page, pageSize), status);
+                        } catch (ConvertorioException | RuntimeException e) {
+                            // Stop the other workers too
+                            lastPage.set(-1);
+                            throw e;
+                        }
+                        pages.incrementAndGet();
+                        if (jobs.length < pageSize) {
+                            lastPage.accumulateAndGet(page, Math::min);
+                        }
+                        for (Job job : jobs) {
+                            LocalDate day = day(job.getCreatedAt(), zone);
+                            groups.computeIfAbsent(
+                                Arrays.asList(day, job.getSourceFormat(), job.getTargetFormat(), job.getStatus()),
+                                key -> new JobStats.Group(day, job.getSourceFormat(), job.getTargetFormat(),
+                                    job.getStatus())).add(job);
+                        }
+                        if (export != null && jobs.length > 0) {
+                            writeExport(jobs);
+                        }
+                    }
+                    return groups;
+                }));
+            }
+
+            Map<List<Object>, JobStats.Group> merged = new HashMap<>();
+            for (Future<Map<List<Object>, JobStats.Group>> future : futures) {
+                for (Map.Entry<List<Object>, JobStats.Group> entry : future.get().entrySet()) {
+                    JobStats.Group group = entry.getValue();
+                    merged.computeIfAbsent(entry.getKey(), key -> new JobStats.Group(group.getDay(),
+                        group.getSourceFormat(), group.getTargetFormat(), group.getStatus())).merge(group);
+                }
+            }
+            if (export != null) {
+                export.flush();
+            }
+            return new JobStats(new ArrayList<>(merged.values()), pages.get(),
+                Duration.ofNanos(System.nanoTime() - started));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ConvertorioException) {
+                throw (ConvertorioException) cause;
+            }
+            throw new ConvertorioException("Job history scan failed: " + cause.getMessage(), cause);
+        } catch (IOException e) {
+            throw new ConvertorioException("Failed to write export: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConvertorioException("Job history scan interrupted");
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Write one page to the export in a single call, so pages of different workers do not interleave
+     */
+    private void writeExport(Job[] jobs) throws IOException {
+        StringBuilder rows = new StringBuilder(jobs.length * 160);
+        for (Job job : jobs) {
+            if (exportFormat == Format.CSV) {
+                rows.append(csv(job.getId())).append(',')
+                    .append(csv(job.getStatus())).append(',')
+                    .append(csv(job.getSourceFormat())).append(',')
+                    .append(csv(job.getTargetFormat())).append(',')
+                    .append(csv(job.getFileSize())).append(',')
+                    .append(csv(job.getProcessingTimeMs())).append(',')
+                    .append(csv(job.getTokensUsed())).append(',')
+                    .append(csv(job.getCreatedAt())).append(',')
+                    .append(csv(job.getCompletedAt())).append(',')
+                    .append(csv(job.getErrorMessage()));
+            } else {
+                // Missing fields are left out to keep lines short
+                Map<String, Object> fields = new LinkedHashMap<>();
+                fields.put("id", job.getId());
+                fields.put("status", job.getStatus());
+                fields.put("source_format", job.getSourceFormat());
+                fields.put("target_format", job.getTargetFormat());
+                fields.put("file_size", job.getFileSize());
+                fields.put("processing_time_ms", job.getProcessingTimeMs());
+                fields.put("tokens_used", job.getTokensUsed());
+                fields.put("created_at", job.getCreatedAt());
+                fields.put("completed_at", job.getCompletedAt());
+                fields.put("error_message", job.getErrorMessage());
+                rows.append(Json.toJsonTree(fields));
+            }
+            rows.append('\n');
+        }
+        synchronized (export) {
+            export.write(rows.toString());
+        }
+    }
+
+    /**
+     * Day of a timestamp in the given zone; timestamps without an offset are taken as they are
+     *
+     * @return The day, or null if the timestamp is missing or not ISO-8601
+     */
+    static LocalDate day(String timestamp, ZoneId zone) {
+        if (timestamp == null || timestamp.length() < 10) {
+            return null;
+        }
+        try {
+            return OffsetDateTime.parse(timestamp).atZoneSameInstant(zone).toLocalDate();
+        } catch (DateTimeParseException e) {
+            try {
+                return LocalDate.parse(timestamp.substring(0, 10));
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * A CSV cell, quoted if needed; null becomes an empty cell
+     */
+    static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private ConvertorioClient client;
+        private int pageSize = MAX_PAGE_SIZE;
+        private int parallelism = 4;
+        private String status;
+        private ZoneId zone = ZoneOffset.UTC;
+        private Writer export;
+        private Format exportFormat;
+
+        public Builder client(ConvertorioClient client) {
+            this.client = client;
+            return this;
+        }
+
+        /**
+         * Jobs per listJobs call (default and maximum {@value #MAX_PAGE_SIZE})
+         */
+        public Builder pageSize(int pageSize) {
+            if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+                throw new IllegalArgumentException("pageSize must be between 1 and " + MAX_PAGE_SIZE);
+            }
+            this.pageSize = pageSize;
+            return this;
+        }
+
+        /**
+         * Pages fetched at once (default 4)
+         */
+        public Builder parallelism(int parallelism) {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("parallelism must be at least 1");
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Only scan jobs with this status, e.g. failed
+         */
+        public Builder status(String status) {
+            this.status = status;
+            return this;
+        }
+
+        /**
+         * Time zone that days are counted in (default UTC)
+         */
+        public Builder zone(ZoneId zone) {
+            this.zone = zone;
+            return this;
+        }
+
+        /**
+         * Also write every job to the writer, which is flushed but not closed
+         *
+         * Rows are written a page at a time in the order pages arrive.
+         */
+        public Builder export(Writer export, Format format) {
+            this.export = export;
+            this.exportFormat = format;
+            return this;
+        }
+
+        public JobHistory build() {
+            return new JobHistory(this);
+        }
+    }
+}
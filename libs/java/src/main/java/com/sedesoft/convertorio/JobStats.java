@@ -0,0 +1,269 @@
+package com.sedesoft.convertorio;
+
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Job history aggregated by day, format pair and status
+ *
+ * Created by {@link JobHistory#scan()}. Groups can be rolled up across
+ * days, statuses or both; processing time quantiles stay within 1% after
+ * any rollup.
+ */
+public final class JobStats {
+    private static final Comparator<Group> ORDER = Comparator
+        .comparing((Group group) -> group.day, Comparator.nullsFirst(Comparator.naturalOrder()))
+        .thenComparing(group -> group.sourceFormat, Comparator.nullsFirst(Comparator.naturalOrder()))
+        .thenComparing(group -> group.targetFormat, Comparator.nullsFirst(Comparator.naturalOrder()))
+        .thenComparing(group -> group.status, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final List<Group> groups;
+    private final long pages;
+    private final Duration elapsed;
+
+    JobStats(List<Group> groups, long pages, Duration elapsed) {
+        List<Group> sorted = new ArrayList<>(groups);
+        sorted.sort(ORDER);
+        this.groups = Collections.unmodifiableList(sorted);
+        this.pages = pages;
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * @return One group per day, format pair and status, ordered by day
+     */
+    public List<Group> getGroups() {
+        return groups;
+    }
+
+    /**
+     * @return One group per format pair over all days and statuses
+     */
+    public List<Group> byPair() {
+        return rollup(false, true, false);
+    }
+
+    /**
+     * @return One group per day over all format pairs and statuses
+     */
+    public List<Group> byDay() {
+        return rollup(true, false, false);
+    }
+
+    /**
+     * @return All jobs in one group
+     */
+    public Group total() {
+        List<Group> total = rollup(false, false, false);
+        return total.isEmpty() ? new Group(null, null, null, null) : total.get(0);
+    }
+
+    public long getPages() {
+        return pages;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * Write the groups, one row or line each
+     */
+    public void write(Writer writer, JobHistory.Format format) throws IOException {
+        if (format == JobHistory.Format.CSV) {
+            writer.write("day,source_format,target_format,status,count,failed,failure_rate,file_size,tokens_used," +
+                "processing_time_p50_ms,processing_time_p90_ms,processing_time_p99_ms\n");
+        }
+        for (Group group : groups) {
+            writer.write(format == JobHistory.Format.CSV ? group.toCsv() : group.toJson().toString());
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    private List<Group> rollup(boolean keepDay, boolean keepPair, boolean keepStatus) {
+        Map<List<Object>, Group> merged = new HashMap<>();
+        for (Group group : groups) {
+            LocalDate day = keepDay ? group.day : null;
+            String source = keepPair ? group.sourceFormat : null;
+            String target = keepPair ? group.targetFormat : null;
+            String status = keepStatus ? group.status : null;
+            merged.computeIfAbsent(Arrays.asList(day, source, target, status),
+                key -> new Group(day, source, target, status)).merge(group);
+        }
+        List<Group> result = new ArrayList<>(merged.values());
+        result.sort(ORDER);
+        return Collections.unmodifiableList(result);
+    }
+
+    @Override
+    public String toString() {
+        Group total = total();
+        return "JobStats{jobs=" + total.count + ", failed=" + total.failed + ", groups=" + groups.size() +
+            ", pages=" + pages + ", elapsed=" + elapsed.toMillis() + "ms}";
+    }
+
+    /**
+     * Jobs of one day, format pair and status, or a rollup of several
+     *
+     * Dimensions that were rolled up are null, as is the day of jobs
+     * without a creation time.
+     */
+    public static final class Group {
+        private final LocalDate day;
+        private final String sourceFormat;
+        private final String targetFormat;
+        private final String status;
+        private final QuantileSketch processingTimes = new QuantileSketch();
+        private long count;
+        private long failed;
+        private long totalFileSize;
+        private long totalTokensUsed;
+
+        Group(LocalDate day, String sourceFormat, String targetFormat, String status) {
+            this.day = day;
+            this.sourceFormat = sourceFormat;
+            this.targetFormat = targetFormat;
+            this.status = status;
+        }
+
+        void add(Job job) {
+            count++;
+            if ("failed".equals(job.getStatus())) {
+                failed++;
+            }
+            if (job.getFileSize() != null) {
+                totalFileSize += job.getFileSize();
+            }
+            if (job.getTokensUsed() != null) {
+                totalTokensUsed += job.getTokensUsed();
+            }
+            if (job.getProcessingTimeMs() != null) {
+                processingTimes.add(job.getProcessingTimeMs());
+            }
+        }
+
+        void merge(Group other) {
+            count += other.count;
+            failed += other.failed;
+            totalFileSize += other.totalFileSize;
+            totalTokensUsed += other.totalTokensUsed;
+            processingTimes.merge(other.processingTimes);
+        }
+
+        public LocalDate getDay() {
+            return day;
+        }
+
+        public String getSourceFormat() {
+            return sourceFormat;
+        }
+
+        public String getTargetFormat() {
+            return targetFormat;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        /**
+         * @return Share of failed jobs, 0 for an empty group
+         */
+        public double getFailureRate() {
+            return count > 0 ? (double) failed / count : 0;
+        }
+
+        public long getTotalFileSize() {
+            return totalFileSize;
+        }
+
+        public long getTotalTokensUsed() {
+            return totalTokensUsed;
+        }
+
+        /**
+         * @return Number of jobs that reported a processing time
+         */
+        public long getProcessingTimeCount() {
+            return processingTimes.count();
+        }
+
+        /**
+         * @param quantile Between 0 and 1, e.g. 0.99
+         * @return Processing time in milliseconds within 1%, or -1 if no job reported one
+         */
+        public long getProcessingTimeMs(double quantile) {
+            return processingTimes.quantile(quantile);
+        }
+
+        String toCsv() {
+            return JobHistory.csv(day) + ',' + JobHistory.csv(sourceFormat) + ',' + JobHistory.csv(targetFormat) +
+                ',' + JobHistory.csv(status) + ',' + count + ',' + failed + ',' +
+                String.format(Locale.ROOT, "%.4f", getFailureRate()) + ',' + totalFileSize + ',' +
+                totalTokensUsed + ',' + quantileCell(0.5) + ',' + quantileCell(0.9) + ',' + quantileCell(0.99);
+        }
+
+        JsonObject toJson() {
+            JsonObject json = new JsonObject();
+            if (day != null) {
+                json.addProperty("day", day.toString());
+            }
+            if (sourceFormat != null) {
+                json.addProperty("source_format", sourceFormat);
+                json.addProperty("target_format", targetFormat);
+            }
+            if (status != null) {
+                json.addProperty("status", status);
+            }
+            json.addProperty("count", count);
+            json.addProperty("failed", failed);
+            json.addProperty("failure_rate", getFailureRate());
+            json.addProperty("file_size", totalFileSize);
+            json.addProperty("tokens_used", totalTokensUsed);
+            if (processingTimes.count() > 0) {
+                json.addProperty("processing_time_p50_ms", processingTimes.quantile(0.5));
+                json.addProperty("processing_time_p90_ms", processingTimes.quantile(0.9));
+                json.addProperty("processing_time_p99_ms", processingTimes.quantile(0.99));
+            }
+            return json;
+        }
+
+        private String quantileCell(double quantile) {
+            long value = processingTimes.quantile(quantile);
+            return value >= 0 ? Long.toString(value) : "";
+        }
+
+        @Override
+        public String toString() {
+            // Rolled up dimensions are left out
+            return "Group{" + (day != null ? "day=" + day + ", " : "") +
+                (sourceFormat != null || targetFormat != null ?
+                    "pair=" + sourceFormat + ">" + targetFormat + ", " : "") +
+                (status != null ? "status=" + status + ", " : "") +
+                "count=" + count + ", failureRate=" + String.format(Locale.ROOT, "%.3f", getFailureRate()) +
+                ", p50=" + processingTimes.quantile(0.5) + "ms, p99=" + processingTimes.quantile(0.99) +
+                "ms, fileSize=" + totalFileSize + ", tokensUsed=" + totalTokensUsed + "}";
+        }
+    }
+}
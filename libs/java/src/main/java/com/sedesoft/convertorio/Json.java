@@ -0,0 +1,102 @@
+package com.sedesoft.convertorio;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+import java.lang.reflect.Array;
+import java.util.Map;
+
+/**
+ * Reflection-free JSON helpers
+ *
+ * Responses are parsed into Gson's tree model and mapped by hand, which
+ * avoids the start-up cost of a {@link Gson} instance and of reflective
+ * type adapters, and needs no reflection configuration in native images.
+ */
+final class Json {
+    private Json() {
+    }
+
+    static JsonObject parse(String json) {
+        return JsonParser.parseString(json).getAsJsonObject();
+    }
+
+    /**
+     * @return The member as an object, or null if it is missing or not an object
+     */
+    static JsonObject object(JsonObject json, String name) {
+        JsonElement value = json.get(name);
+        return value != null && value.isJsonObject() ? value.getAsJsonObject() : null;
+    }
+
+    static String string(JsonObject json, String name) {
+        JsonElement value = json.get(name);
+        return value != null && !value.isJsonNull() ? value.getAsString() : null;
+    }
+
+    static Long longValue(JsonObject json, String name) {
+        JsonElement value = json.get(name);
+        return value != null && !value.isJsonNull() ? value.getAsLong() : null;
+    }
+
+    static Integer intValue(JsonObject json, String name) {
+        JsonElement value = json.get(name);
+        return value != null && !value.isJsonNull() ? value.getAsInt() : null;
+    }
+
+    /**
+     * Convert maps, collections, arrays, strings, numbers and booleans to a JSON tree
+     *
+     * Any other type falls back to Gson's reflective serialization.
+     */
+    static JsonElement toJsonTree(Object value) {
+        if (value == null) {
+            return JsonNull.INSTANCE;
+        }
+        if (value instanceof JsonElement) {
+            return (JsonElement) value;
+        }
+        if (value instanceof String) {
+            return new JsonPrimitive((String) value);
+        }
+        if (value instanceof Number) {
+            return new JsonPrimitive((Number) value);
+        }
+        if (value instanceof Boolean) {
+            return new JsonPrimitive((Boolean) value);
+        }
+        if (value instanceof Character) {
+            return new JsonPrimitive((Character) value);
+        }
+        if (value instanceof Map) {
+            JsonObject object = new JsonObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                // Null members are left out, as Gson's default serialization does
+                if (entry.getValue() != null) {
+                    object.add(String.valueOf(entry.getKey()), toJsonTree(entry.getValue()));
+                }
+            }
+            return object;
+        }
+        if (value instanceof Iterable) {
+            JsonArray array = new JsonArray();
+            for (Object element : (Iterable<?>) value) {
+                array.add(toJsonTree(element));
+            }
+            return array;
+        }
+        if (value.getClass().isArray()) {
+            JsonArray array = new JsonArray();
+            for (int i = 0; i < Array.getLength(value); i++) {
+                array.add(toJsonTree(Array.get(value, i)));
+            }
+            return array;
+        }
+        return new Gson().toJsonTree(value);
+    }
+}
@@ -0,0 +1,67 @@
+package com.sedesoft.convertorio;
+
+/**
+ * Snapshot of one API key in a {@link ConvertorioClientPool}
+ */
+public class KeyMetrics {
+    private final String key;
+    private final int inFlight;
+    private final long completed;
+    private final long failed;
+    private final Integer pointsBalance;
+    private final boolean drained;
+
+    KeyMetrics(String key, int inFlight, long completed, long failed, Integer pointsBalance, boolean drained) {
+        this.key = key;
+        this.inFlight = inFlight;
+        this.completed = completed;
+        this.failed = failed;
+        this.pointsBalance = pointsBalance;
+        this.drained = drained;
+    }
+
+    /**
+     * Masked API key, showing only its last four characters
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * Points left as of the last account refresh minus tokens used since, or null if never refreshed
+     */
+    public Integer getPointsBalance() {
+        return pointsBalance;
+    }
+
+    /**
+     * Whether the key is temporarily taken out of rotation after repeated errors
+     */
+    public boolean isDrained() {
+        return drained;
+    }
+
+    @Override
+    public String toString() {
+        return "KeyMetrics{" +
+                "key='" + key + '\'' +
+                ", inFlight=" + inFlight +
+                ", completed=" + completed +
+                ", failed=" + failed +
+                ", pointsBalance=" + pointsBalance +
+                ", drained=" + drained +
+                '}';
+    }
+}
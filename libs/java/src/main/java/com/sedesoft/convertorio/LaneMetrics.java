@@ -0,0 +1,75 @@
+package com.sedesoft.convertorio;
+
+/**
+ * Snapshot of one scheduling lane
+ */
+public class LaneMetrics {
+    private final String lane;
+    private final int weight;
+    private final int queued;
+    private final int running;
+    private final long granted;
+    private final double meanWaitMs;
+    private final double maxWaitMs;
+
+    LaneMetrics(String lane, int weight, int queued, int running, long granted, double meanWaitMs,
+                double maxWaitMs) {
+        this.lane = lane;
+        this.weight = weight;
+        this.queued = queued;
+        this.running = running;
+        this.granted = granted;
+        this.meanWaitMs = meanWaitMs;
+        this.maxWaitMs = maxWaitMs;
+    }
+
+    public String getLane() {
+        return lane;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * Stages waiting for a slot
+     */
+    public int getQueued() {
+        return queued;
+    }
+
+    /**
+     * Stages holding a slot
+     */
+    public int getRunning() {
+        return running;
+    }
+
+    /**
+     * Slots handed out since the client was created
+     */
+    public long getGranted() {
+        return granted;
+    }
+
+    public double getMeanWaitMs() {
+        return meanWaitMs;
+    }
+
+    public double getMaxWaitMs() {
+        return maxWaitMs;
+    }
+
+    @Override
+    public String toString() {
+        return "LaneMetrics{" +
+                "lane='" + lane + '\'' +
+                ", weight=" + weight +
+                ", queued=" + queued +
+                ", running=" + running +
+                ", granted=" + granted +
+                ", meanWaitMs=" + String.format("%.1f", meanWaitMs) +
+                ", maxWaitMs=" + String.format("%.1f", maxWaitMs) +
+                '}';
+    }
+}
@@ -0,0 +1,146 @@
+package com.sedesoft.convertorio;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Weighted fair queueing of conversion stages across lanes
+ *
+ * Start-time fair queueing: each lane's next grant is tagged with the later
+ * of the scheduler's virtual time and the lane's previous finish tag, and
+ * the lane with the smallest tag goes first. Finish tags advance by
+ * 1/weight per grant.
+ */
+final class LaneScheduler {
+    // Waiters re-check cancellation and the deadline this often
+    private static final long CHECK_INTERVAL_MS = 100;
+
+    static final class Lane {
+        final String name;
+        final int weight;
+        final ArrayDeque<Ticket> queue = new ArrayDeque<>();
+        double finishTag;
+        int running;
+        long granted;
+        long totalWaitNanos;
+        long maxWaitNanos;
+
+        Lane(String name, int weight) {
+            this.name = name;
+            this.weight = weight;
+        }
+    }
+
+    private static final class Ticket {
+        final long enqueuedAt = System.nanoTime();
+        boolean granted;
+    }
+
+    private final int capacity;
+    // Only the configured lanes, so per-request lane names cannot grow it
+    private final Map<String, Lane> lanes = new LinkedHashMap<>();
+    private final Lane defaultLane;
+    private double virtualTime;
+    private int running;
+    private int queued;
+
+    LaneScheduler(SchedulingPolicy policy) {
+        this.capacity = policy.getMaxActiveStages();
+        for (Map.Entry<String, Integer> lane : policy.getLaneWeights().entrySet()) {
+            lanes.put(lane.getKey(), new Lane(lane.getKey(), lane.getValue()));
+        }
+        defaultLane = lanes.computeIfAbsent(SchedulingPolicy.DEFAULT_LANE, name -> new Lane(name, 1));
+    }
+
+    /**
+     * Wait for a slot in a lane; lanes the policy does not declare queue in the default lane
+     *
+     * @return The lane, to pass back to {@link #release}
+     * @throws ConvertorioException if the conversion is cancelled or runs out of time while queued
+     */
+    synchronized Lane acquire(String laneName, ConversionContext context) throws ConvertorioException {
+        Lane lane = laneName != null ? lanes.getOrDefault(laneName, defaultLane) : defaultLane;
+        if (queued == 0 && running < capacity) {
+            grant(lane, 0);
+            return lane;
+        }
+
+        Ticket ticket = new Ticket();
+        lane.queue.addLast(ticket);
+        queued++;
+        boolean acquired = false;
+        try {
+            while (!ticket.granted) {
+                context.check();
+                wait(Math.max(1, Math.min(CHECK_INTERVAL_MS, context.remainingMillis())));
+            }
+            acquired = true;
+            return lane;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConvertorioException("Interrupted while waiting in lane " + lane.name);
+        } finally {
+            if (!ticket.granted) {
+                lane.queue.remove(ticket);
+                queued--;
+            } else if (!acquired) {
+                // Granted just as the wait was interrupted: hand the slot on
+                release(lane);
+            }
+        }
+    }
+
+    synchronized void release(Lane lane) {
+        running--;
+        lane.running--;
+        dispatch();
+    }
+
+    synchronized List<LaneMetrics> metrics() {
+        List<LaneMetrics> metrics = new ArrayList<>();
+        for (Lane lane : lanes.values()) {
+            metrics.add(new LaneMetrics(lane.name, lane.weight, lane.queue.size(), lane.running, lane.granted,
+                lane.granted > 0 ? lane.totalWaitNanos / lane.granted / 1_000_000d : 0,
+                lane.maxWaitNanos / 1_000_000d));
+        }
+        return metrics;
+    }
+
+    private void dispatch() {
+        boolean grantedAny = false;
+        while (running < capacity && queued > 0) {
+            Lane next = null;
+            for (Lane lane : lanes.values()) {
+                if (!lane.queue.isEmpty() && (next == null || startTag(lane) < startTag(next))) {
+                    next = lane;
+                }
+            }
+            Ticket ticket = next.queue.pollFirst();
+            queued--;
+            ticket.granted = true;
+            grant(next, System.nanoTime() - ticket.enqueuedAt);
+            grantedAny = true;
+        }
+        if (grantedAny) {
+            notifyAll();
+        }
+    }
+
+    private double startTag(Lane lane) {
+        return Math.max(virtualTime, lane.finishTag);
+    }
+
+    private void grant(Lane lane, long waitNanos) {
+        double start = startTag(lane);
+        virtualTime = start;
+        lane.finishTag = start + 1.0 / lane.weight;
+        running++;
+        lane.running++;
+        lane.granted++;
+        lane.totalWaitNanos += waitNanos;
+        lane.maxWaitNanos = Math.max(lane.maxWaitNanos, waitNanos);
+    }
+}
@@ -0,0 +1,64 @@
+package com.sedesoft.convertorio;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps converted files in memory, keyed by job ID
+ *
+ * Results stay until they are taken, so take each one once the conversion
+ * returns. Results report no output path.
+ */
+public class MemorySink implements ResultSink {
+    private final Map<String, byte[]> results = new ConcurrentHashMap<>();
+
+    @Override
+    public Output open(Target target) {
+        String jobId = target.getJobId();
+        // The storage normally sends the length, so the buffer is sized once
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(
+            (int) Math.min(Math.max(target.getContentLength(), 8192), Integer.MAX_VALUE - 8));
+        return new Output() {
+            @Override
+            public void write(byte[] data, int offset, int length) {
+                buffer.write(data, offset, length);
+            }
+
+            @Override
+            public String commit() {
+                results.put(jobId, buffer.toByteArray());
+                return null;
+            }
+
+            @Override
+            public void abort() {
+            }
+        };
+    }
+
+    /**
+     * @return The converted file, or null if there is none for the job
+     */
+    public byte[] get(String jobId) {
+        return results.get(jobId);
+    }
+
+    /**
+     * Remove and return the converted file of a job
+     *
+     * @return The converted file, or null if there is none for the job
+     */
+    public byte[] take(String jobId) {
+        return results.remove(jobId);
+    }
+
+    /**
+     * @return Snapshot of all results held, keyed by job ID
+     */
+    public Map<String, byte[]> getResults() {
+        return Collections.unmodifiableMap(new HashMap<>(results));
+    }
+}
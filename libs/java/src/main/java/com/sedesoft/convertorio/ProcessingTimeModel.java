@@ -0,0 +1,97 @@
+package com.sedesoft.convertorio;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Online model of server-side processing times
+ *
+ * Keeps a small log-scale histogram per format pair and input size bucket
+ * (powers of four), plus one per format pair for buckets that have not seen
+ * enough jobs yet. Counts are halved periodically so the model follows
+ * changes in server performance.
+ */
+final class ProcessingTimeModel {
+    private static final int MIN_SAMPLES = 5;
+
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    void record(String sourceFormat, String targetFormat, long fileSize, long processingTimeMs) {
+        String pair = pairKey(sourceFormat, targetFormat);
+        histograms.computeIfAbsent(pair + "@" + sizeBucket(fileSize), key -> new Histogram()).add(processingTimeMs);
+        histograms.computeIfAbsent(pair, key -> new Histogram()).add(processingTimeMs);
+    }
+
+    /**
+     * Predict a processing time quantile
+     *
+     * @param quantile Between 0 and 1
+     * @return Predicted milliseconds, or -1 without enough history
+     */
+    long predict(String sourceFormat, String targetFormat, long fileSize, double quantile) {
+        String pair = pairKey(sourceFormat, targetFormat);
+        Histogram sized = histograms.get(pair + "@" + sizeBucket(fileSize));
+        long predicted = sized != null ? sized.quantile(quantile) : -1;
+        if (predicted < 0) {
+            Histogram any = histograms.get(pair);
+            predicted = any != null ? any.quantile(quantile) : -1;
+        }
+        return predicted;
+    }
+
+    private static String pairKey(String sourceFormat, String targetFormat) {
+        return String.valueOf(sourceFormat).toLowerCase() + ">" + String.valueOf(targetFormat).toLowerCase();
+    }
+
+    private static int sizeBucket(long fileSize) {
+        return (63 - Long.numberOfLeadingZeros(Math.max(1, fileSize))) / 2;
+    }
+
+    /**
+     * Histogram with buckets growing by 25% from 50 ms, covering up to about half an hour
+     */
+    static final class Histogram {
+        private static final double MIN_MS = 50;
+        private static final double GROWTH = 1.25;
+        private static final int BUCKETS = 48;
+        private static final int DECAY_AT = 512;
+
+        private final int[] counts = new int[BUCKETS];
+        private int total;
+
+        synchronized void add(long millis) {
+            counts[bucket(millis)]++;
+            if (++total >= DECAY_AT) {
+                total = 0;
+                for (int i = 0; i < BUCKETS; i++) {
+                    counts[i] >>= 1;
+                    total += counts[i];
+                }
+            }
+        }
+
+        synchronized long quantile(double quantile) {
+            if (total < MIN_SAMPLES) {
+                return -1;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    // Geometric middle of the bucket, within 12% of any value in it
+                    return i == 0 ? (long) MIN_MS : Math.round(MIN_MS * Math.pow(GROWTH, i - 0.5));
+                }
+            }
+            return Math.round(MIN_MS * Math.pow(GROWTH, BUCKETS - 1));
+        }
+
+        private static int bucket(long millis) {
+            if (millis <= MIN_MS) {
+                return 0;
+            }
+            int bucket = 1 + (int) Math.floor(Math.log(millis / MIN_MS) / Math.log(GROWTH));
+            return Math.min(bucket, BUCKETS - 1);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.sedesoft.convertorio;
+
+/**
+ * Mergeable quantile sketch with 1% relative accuracy
+ *
+ * Values are counted in log-scale buckets growing by about 2%, so any
+ * quantile is within 1% of the true value whatever the distribution, and
+ * two sketches merge exactly by adding their counts. Only the range of
+ * buckets between the smallest and largest value is kept, a few hundred
+ * counters for processing times from milliseconds to minutes. Not
+ * thread-safe.
+ */
+final class QuantileSketch {
+    private static final double RELATIVE_ACCURACY = 0.01;
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    private long[] counts = new long[0];
+    // Bucket index of counts[0]
+    private int offset;
+    private long zeroCount;
+    private long count;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    void add(long value) {
+        if (value <= 0) {
+            zeroCount++;
+        } else {
+            int index = index(value);
+            ensureCovers(index, index);
+            counts[index - offset]++;
+        }
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    void merge(QuantileSketch other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (other.counts.length > 0) {
+            ensureCovers(other.offset, other.offset + other.counts.length - 1);
+            for (int i = 0; i < other.counts.length; i++) {
+                counts[other.offset + i - offset] += other.counts[i];
+            }
+        }
+        zeroCount += other.zeroCount;
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    long count() {
+        return count;
+    }
+
+    /**
+     * @param quantile Between 0 and 1
+     * @return The value at the quantile, or -1 if nothing was added
+     */
+    long quantile(double quantile) {
+        if (count == 0) {
+            return -1;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = zeroCount;
+        if (seen >= rank) {
+            return min;
+        }
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                // The value that is within the relative accuracy of the whole bucket
+                double value = 2 * Math.pow(GAMMA, offset + i) / (GAMMA + 1);
+                return Math.max(min, Math.min(max, Math.round(value)));
+            }
+        }
+        return max;
+    }
+
+    private static int index(long value) {
+        return (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+    }
+
+    private void ensureCovers(int low, int high) {
+        if (counts.length == 0) {
+            counts = new long[high - low + 1];
+            offset = low;
+            return;
+        }
+        int currentHigh = offset + counts.length - 1;
+        if (low >= offset && high <= currentHigh) {
+            return;
+        }
+        // Grow with some slack, as neighbouring buckets tend to follow
+        int newLow = low < offset ? Math.min(low, offset - counts.length / 2) : offset;
+        int newHigh = high > currentHigh ? Math.max(high, currentHigh + counts.length / 2) : currentHigh;
+        long[] grown = new long[newHigh - newLow + 1];
+        System.arraycopy(counts, 0, grown, offset - newLow, counts.length);
+        counts = grown;
+        offset = newLow;
+    }
+}
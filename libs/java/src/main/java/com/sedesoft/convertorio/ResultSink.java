@@ -0,0 +1,90 @@
+package com.sedesoft.convertorio;
+
+import java.io.IOException;
+
+/**
+ * Destination of converted files
+ *
+ * The client downloads the result and hands the bytes to the sink's
+ * {@link Output} on a dedicated writer thread, buffering what the sink has
+ * not taken yet, so a slow destination neither holds the download
+ * connection nor the conversion's lane slot. Calls on one output come from
+ * one thread at a time, in order; different outputs may be written
+ * concurrently, so sinks must be thread-safe.
+ *
+ * Built in are {@link FileSink} (the default), {@link MemorySink} and
+ * {@link ShardedDirectorySink}.
+ */
+public interface ResultSink {
+    /**
+     * Open the destination for one converted file
+     */
+    Output open(Target target) throws IOException;
+
+    /**
+     * One converted file being written
+     */
+    interface Output {
+        void write(byte[] data, int offset, int length) throws IOException;
+
+        /**
+         * Finish the file after all bytes were written
+         *
+         * @return Where the file went, reported as the result's output path, or null
+         */
+        String commit() throws IOException;
+
+        /**
+         * Discard a partly written file after the download or a write failed
+         */
+        void abort();
+    }
+
+    /**
+     * The conversion a file belongs to
+     */
+    final class Target {
+        private final String jobId;
+        private final String inputPath;
+        private final String outputPath;
+        private final String targetFormat;
+        private final long contentLength;
+
+        Target(String jobId, String inputPath, String outputPath, String targetFormat, long contentLength) {
+            this.jobId = jobId;
+            this.inputPath = inputPath;
+            this.outputPath = outputPath;
+            this.targetFormat = targetFormat;
+            this.contentLength = contentLength;
+        }
+
+        public String getJobId() {
+            return jobId;
+        }
+
+        public String getInputPath() {
+            return inputPath;
+        }
+
+        /**
+         * @return The conversion's outputPath option, or null if none was set
+         */
+        public String getOutputPath() {
+            return outputPath;
+        }
+
+        /**
+         * @return Lower-case target format, e.g. webp
+         */
+        public String getTargetFormat() {
+            return targetFormat;
+        }
+
+        /**
+         * @return Size of the converted file, or -1 if the storage did not send it
+         */
+        public long getContentLength() {
+            return contentLength;
+        }
+    }
+}
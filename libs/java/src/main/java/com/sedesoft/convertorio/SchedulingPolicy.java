@@ -0,0 +1,75 @@
+package com.sedesoft.convertorio;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Lanes sharing a client's transfer capacity
+ *
+ * Conversions queue for one of a fixed number of slots before their upload
+ * phase (upload URL, upload, confirm) and again before their download.
+ * Waiting conversions are served by weighted fair queueing across lanes, so
+ * a lane with weight 8 gets eight slots for every one given to a lane with
+ * weight 1 while both have work queued, and an idle lane costs nothing.
+ * Because slots are given up between stages, interactive work overtakes
+ * queued bulk work within one stage.
+ */
+public class SchedulingPolicy {
+    public static final String DEFAULT_LANE = "default";
+
+    private final int maxActiveStages;
+    private final Map<String, Integer> laneWeights;
+
+    private SchedulingPolicy(Builder builder) {
+        this.maxActiveStages = builder.maxActiveStages;
+        this.laneWeights = Collections.unmodifiableMap(new LinkedHashMap<>(builder.laneWeights));
+    }
+
+    public int getMaxActiveStages() {
+        return maxActiveStages;
+    }
+
+    /**
+     * Configured lanes and their weights; conversions in other lanes share the
+     * {@link #DEFAULT_LANE}, which has weight 1 unless configured
+     */
+    public Map<String, Integer> getLaneWeights() {
+        return laneWeights;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private int maxActiveStages = 16;
+        private final Map<String, Integer> laneWeights = new LinkedHashMap<>();
+
+        /**
+         * Upload and download phases running at once across all lanes (default: 16)
+         */
+        public Builder maxActiveStages(int maxActiveStages) {
+            if (maxActiveStages < 1) {
+                throw new IllegalArgumentException("maxActiveStages must be at least 1");
+            }
+            this.maxActiveStages = maxActiveStages;
+            return this;
+        }
+
+        /**
+         * Add a lane with its share of the capacity
+         */
+        public Builder lane(String name, int weight) {
+            if (weight < 1) {
+                throw new IllegalArgumentException("Lane weight must be at least 1");
+            }
+            laneWeights.put(name, weight);
+            return this;
+        }
+
+        public SchedulingPolicy build() {
+            return new SchedulingPolicy(this);
+        }
+    }
+}
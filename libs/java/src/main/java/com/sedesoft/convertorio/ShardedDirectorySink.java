@@ -0,0 +1,101 @@
+package com.sedesoft.convertorio;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Writes converted files into a directory tree sharded by job ID
+ *
+ * Each file is stored as {@code <root>/ab/cd/<jobId>.<format>}, where the
+ * shard directories are taken from the SHA-256 of the job ID, so millions
+ * of results spread evenly and no directory grows too large to list.
+ * The conversion's outputPath option is ignored.
+ */
+public class ShardedDirectorySink implements ResultSink {
+    private final Path root;
+    private final int depth;
+    private final int width;
+
+    private ShardedDirectorySink(Builder builder) {
+        if (builder.root == null) {
+            throw new IllegalArgumentException("root is required");
+        }
+        if (builder.depth * builder.width > 64) {
+            throw new IllegalArgumentException("depth * width must not exceed the 64 hex digits of SHA-256");
+        }
+
+        this.root = builder.root;
+        this.depth = builder.depth;
+        this.width = builder.width;
+    }
+
+    @Override
+    public Output open(Target target) throws IOException {
+        return new FileSink.FileOutput(pathFor(target.getJobId(), target.getTargetFormat()).toFile());
+    }
+
+    /**
+     * @return Where the result of a job is stored
+     */
+    public Path pathFor(String jobId, String targetFormat) {
+        String hash = Checksums.Digests.hex(sha256(jobId));
+        Path dir = root;
+        for (int level = 0; level < depth; level++) {
+            dir = dir.resolve(hash.substring(level * width, (level + 1) * width));
+        }
+        return dir.resolve(jobId + "." + targetFormat.toLowerCase());
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to provide it
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private Path root;
+        private int depth = 2;
+        private int width = 2;
+
+        public Builder root(Path root) {
+            this.root = root;
+            return this;
+        }
+
+        /**
+         * Levels of shard directories (default 2)
+         */
+        public Builder depth(int depth) {
+            if (depth < 0) {
+                throw new IllegalArgumentException("depth must not be negative");
+            }
+            this.depth = depth;
+            return this;
+        }
+
+        /**
+         * Hex digits per shard directory name, 16^width directories per level (default 2)
+         */
+        public Builder width(int width) {
+            if (width < 1) {
+                throw new IllegalArgumentException("width must be at least 1");
+            }
+            this.width = width;
+            return this;
+        }
+
+        public ShardedDirectorySink build() {
+            return new ShardedDirectorySink(this);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.sedesoft.convertorio;
+
+import java.nio.ByteBuffer;
+
+/**
+ * An input mapped once and uploaded by every target of a fan-out conversion
+ */
+final class SharedSource {
+    final ByteBuffer data;
+    private Checksums.Digests digests;
+
+    SharedSource(ByteBuffer data) {
+        this.data = data;
+    }
+
+    /**
+     * Digests of the data, computed by the first conversion that needs them
+     */
+    synchronized Checksums.Digests digests() {
+        if (digests == null) {
+            digests = Checksums.of(data);
+        }
+        return digests;
+    }
+}
@@ -0,0 +1,346 @@
+package com.sedesoft.convertorio;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Hands a download to a {@link ResultSink} on a writer thread
+ *
+ * The download thread only copies bytes into chunks. Up to the memory
+ * limit is held in memory; anything beyond is spilled to a temporary file
+ * of at most the spill limit, so a download runs at network speed while
+ * the sink keeps up within both. Once both are full the download waits
+ * for the sink, and the spill file is deleted whenever the sink has caught
+ * up with it. A drain task on the executor is only scheduled while there
+ * is something to write, so idle outputs hold no writer thread. If the
+ * sink fails, further bytes are dropped and the failure is reported by
+ * {@link #await}.
+ */
+final class SinkWriter extends OutputStream {
+    private static final int CHUNK_SIZE = 64 * 1024;
+    // Wake up this often while waiting for the sink to notice cancellation
+    private static final long AWAIT_SLICE_MS = 200;
+    // Longest an aborting download waits for the sink, which cleans up on its own afterwards
+    private static final long ABORT_WAIT_MS = 2000;
+
+    private final ResultSink sink;
+    private final Executor executor;
+    private final long memoryLimit;
+    private final long spillLimit;
+    private final ConversionContext context;
+    private final String jobId;
+    private final String inputPath;
+    private final String outputPath;
+    private final String targetFormat;
+    private final CompletableFuture<String> done = new CompletableFuture<>();
+
+    // Only touched by the download thread
+    private byte[] tail;
+    private int tailLength;
+    private long contentLength = -1;
+
+    // Only touched by the drain task, which never runs twice at once
+    private ResultSink.Output output;
+    private byte[] spillBuffer;
+
+    // Guarded by this
+    private final ArrayDeque<Chunk> chunks = new ArrayDeque<>();
+    private long bufferedBytes;
+    private FileChannel spill;
+    private long spillWritten;
+    private long spillRead;
+    private boolean finished;
+    private boolean aborted;
+    private boolean scheduled;
+    private boolean failed;
+
+    SinkWriter(ResultSink sink, Executor executor, long memoryLimit, long spillLimit, ConversionContext context,
+               String jobId, String inputPath, String outputPath, String targetFormat) {
+        this.sink = sink;
+        this.executor = executor;
+        this.memoryLimit = memoryLimit;
+        this.spillLimit = spillLimit;
+        this.context = context;
+        this.jobId = jobId;
+        this.inputPath = inputPath;
+        this.outputPath = outputPath;
+        this.targetFormat = targetFormat;
+    }
+
+    /**
+     * Start the download's output once its size is known
+     */
+    SinkWriter open(long contentLength) {
+        this.contentLength = contentLength;
+        return this;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] data, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (tail == null) {
+                tail = new byte[CHUNK_SIZE];
+            }
+            int copied = Math.min(length, tail.length - tailLength);
+            System.arraycopy(data, offset, tail, tailLength, copied);
+            tailLength += copied;
+            offset += copied;
+            length -= copied;
+            if (tailLength == tail.length) {
+                hand(tail, tailLength);
+            }
+        }
+    }
+
+    /**
+     * All bytes were downloaded, let the sink commit the file
+     */
+    void finish() throws IOException {
+        if (tailLength > 0) {
+            hand(tail, tailLength);
+        }
+        synchronized (this) {
+            finished = true;
+            schedule();
+        }
+    }
+
+    /**
+     * Discard the output, waiting a bounded time until the sink has done so
+     *
+     * A sink stuck in a write discards the output once that write returns.
+     */
+    void abort() {
+        synchronized (this) {
+            aborted = true;
+            notifyAll();
+            schedule();
+        }
+        try {
+            done.get(ABORT_WAIT_MS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            // The sink failed before or cleans up later, the output is gone either way
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Wait until the sink committed the file
+     *
+     * @return Where the sink put the file, or null
+     */
+    String await(ConversionContext context) throws ConvertorioException {
+        try {
+            while (true) {
+                try {
+                    return done.get(Math.max(1, Math.min(AWAIT_SLICE_MS, context.remainingMillis())),
+                        TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    context.check();
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw new ConvertorioException("Writing the result failed: " + cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort();
+            throw new ConvertorioException("Writing the result interrupted");
+        } catch (ConvertorioException e) {
+            abort();
+            throw e;
+        }
+    }
+
+    /**
+     * Queue a chunk in memory, or spill it once the memory limit is reached
+     *
+     * Waits for the sink while both the memory and the spill file are full.
+     */
+    private void hand(byte[] data, int length) throws IOException {
+        tail = null;
+        tailLength = 0;
+        synchronized (this) {
+            while (true) {
+                if (failed || aborted) {
+                    return;
+                }
+                // Once spilled, everything goes to the file to keep the order
+                if (spill == null && (bufferedBytes == 0 || bufferedBytes + length <= memoryLimit)) {
+                    chunks.add(new Chunk(data, length));
+                    bufferedBytes += length;
+                    break;
+                }
+                if (spill != null ? spillWritten + length <= spillLimit : length <= spillLimit) {
+                    if (spill == null) {
+                        Path file = Files.createTempFile("convertorio-sink", ".part");
+                        spill = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                            StandardOpenOption.DELETE_ON_CLOSE);
+                    }
+                    ByteBuffer buffer = ByteBuffer.wrap(data, 0, length);
+                    while (buffer.hasRemaining()) {
+                        spillWritten += spill.write(buffer, spillWritten);
+                    }
+                    break;
+                }
+                schedule();
+                waitForSink();
+            }
+            schedule();
+        }
+    }
+
+    /**
+     * Let the drain task make room, giving up when the conversion is cancelled or out of time
+     */
+    private void waitForSink() throws IOException {
+        if (context != null && context.isCancelled()) {
+            throw new InterruptedIOException("Conversion cancelled");
+        }
+        if (context != null && context.remainingMillis() <= 0) {
+            throw new InterruptedIOException("Conversion deadline exceeded");
+        }
+        try {
+            wait(context != null ? Math.max(1, Math.min(AWAIT_SLICE_MS, context.remainingMillis())) : AWAIT_SLICE_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Writing the result interrupted");
+        }
+    }
+
+    private void schedule() {
+        if (!scheduled) {
+            scheduled = true;
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                Chunk chunk = null;
+                long spillFrom = 0;
+                int spillLength = 0;
+                boolean commit = false;
+                boolean discard = false;
+                synchronized (this) {
+                    // The download may be waiting for the room the last write made
+                    notifyAll();
+                    if (spill != null && spillRead == spillWritten && chunks.isEmpty()) {
+                        // Caught up with the spill file, later bytes fit in memory again
+                        closeSpill();
+                        spillRead = 0;
+                        spillWritten = 0;
+                    }
+                    if (aborted) {
+                        discard = true;
+                    } else if (!chunks.isEmpty()) {
+                        chunk = chunks.poll();
+                        bufferedBytes -= chunk.length;
+                    } else if (spillRead < spillWritten) {
+                        spillFrom = spillRead;
+                        spillLength = (int) Math.min(CHUNK_SIZE, spillWritten - spillRead);
+                        spillRead += spillLength;
+                    } else if (finished) {
+                        commit = true;
+                    } else {
+                        scheduled = false;
+                        return;
+                    }
+                }
+
+                if (discard) {
+                    if (output != null) {
+                        output.abort();
+                    }
+                    closeSpill();
+                    done.complete(null);
+                    return;
+                }
+                if (output == null) {
+                    output = sink.open(new ResultSink.Target(jobId, inputPath, outputPath, targetFormat,
+                        contentLength));
+                }
+                if (chunk != null) {
+                    output.write(chunk.data, 0, chunk.length);
+                } else if (spillLength > 0) {
+                    output.write(readSpill(spillFrom, spillLength), 0, spillLength);
+                } else if (commit) {
+                    String location = output.commit();
+                    closeSpill();
+                    done.complete(location);
+                    return;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // The task stays scheduled, so nothing runs after the failure
+            synchronized (this) {
+                failed = true;
+                chunks.clear();
+                bufferedBytes = 0;
+                notifyAll();
+            }
+            if (output != null) {
+                output.abort();
+            }
+            closeSpill();
+            done.completeExceptionally(e);
+        }
+    }
+
+    private byte[] readSpill(long position, int length) throws IOException {
+        if (spillBuffer == null) {
+            spillBuffer = new byte[CHUNK_SIZE];
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(spillBuffer, 0, length);
+        FileChannel channel;
+        synchronized (this) {
+            channel = spill;
+        }
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Spill file ended early");
+            }
+        }
+        return spillBuffer;
+    }
+
+    private synchronized void closeSpill() {
+        if (spill != null) {
+            try {
+                spill.close();
+            } catch (IOException ignored) {
+                // Deleted on close, or by the OS at the latest
+            }
+            spill = null;
+        }
+    }
+
+    private static final class Chunk {
+        final byte[] data;
+        final int length;
+
+        Chunk(byte[] data, int length) {
+            this.data = data;
+            this.length = length;
+        }
+    }
+}
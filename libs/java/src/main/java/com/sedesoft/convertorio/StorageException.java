@@ -0,0 +1,14 @@
+package com.sedesoft.convertorio;
+
+/**
+ * Failure talking to the storage behind presigned upload and download URLs rather than to the API
+ */
+class StorageException extends ConvertorioException {
+    StorageException(String message, int statusCode) {
+        super(message, statusCode);
+    }
+
+    StorageException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,160 @@
+package com.sedesoft.convertorio;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * On-disk record of what a {@link TreeSync} last converted
+ *
+ * Entries are stored sorted by source path, and each path only stores the
+ * bytes that differ from the previous one, so deep trees with long common
+ * prefixes stay small. A manifest is replaced atomically when saved.
+ */
+final class SyncManifest {
+    private static final int MAGIC = 0x43565331; // "CVS1"
+
+    /**
+     * State of one source file when it was last converted
+     */
+    static final class Entry {
+        final long size;
+        final long modifiedMillis;
+        // First 128 bits of the content's SHA-256
+        final long hashHigh;
+        final long hashLow;
+        final long optionsHash;
+        final String targetFormat;
+
+        Entry(long size, long modifiedMillis, long hashHigh, long hashLow, long optionsHash, String targetFormat) {
+            this.size = size;
+            this.modifiedMillis = modifiedMillis;
+            this.hashHigh = hashHigh;
+            this.hashLow = hashLow;
+            this.optionsHash = optionsHash;
+            this.targetFormat = targetFormat;
+        }
+
+        Entry touched(long size, long modifiedMillis) {
+            return new Entry(size, modifiedMillis, hashHigh, hashLow, optionsHash, targetFormat);
+        }
+
+        boolean sameContent(long hashHigh, long hashLow) {
+            return this.hashHigh == hashHigh && this.hashLow == hashLow;
+        }
+    }
+
+    private SyncManifest() {
+    }
+
+    /**
+     * @return Entries by source path relative to the source root, empty if the manifest does not exist
+     */
+    static Map<String, Entry> load(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a sync manifest: " + path);
+            }
+            int count = in.readInt();
+            Map<String, Entry> entries = new HashMap<>(count * 4 / 3 + 1);
+            // Target formats repeat for every entry, so they are shared
+            Map<String, String> formats = new HashMap<>();
+            byte[] previous = new byte[0];
+            for (int i = 0; i < count; i++) {
+                int shared = readVarInt(in);
+                byte[] key = new byte[shared + readVarInt(in)];
+                System.arraycopy(previous, 0, key, 0, shared);
+                in.readFully(key, shared, key.length - shared);
+                previous = key;
+
+                long size = in.readLong();
+                long modifiedMillis = in.readLong();
+                long hashHigh = in.readLong();
+                long hashLow = in.readLong();
+                long optionsHash = in.readLong();
+                String targetFormat = formats.computeIfAbsent(readString(in), format -> format);
+                entries.put(new String(key, StandardCharsets.UTF_8),
+                    new Entry(size, modifiedMillis, hashHigh, hashLow, optionsHash, targetFormat));
+            }
+            return entries;
+        } catch (NoSuchFileException e) {
+            return new HashMap<>();
+        }
+    }
+
+    static void save(Path path, Map<String, Entry> entries) throws IOException {
+        List<String> keys = new ArrayList<>(entries.keySet());
+        Collections.sort(keys);
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(keys.size());
+            byte[] previous = new byte[0];
+            for (String key : keys) {
+                byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+                int shared = 0;
+                int max = Math.min(previous.length, bytes.length);
+                while (shared < max && previous[shared] == bytes[shared]) {
+                    shared++;
+                }
+                writeVarInt(out, shared);
+                writeVarInt(out, bytes.length - shared);
+                out.write(bytes, shared, bytes.length - shared);
+                previous = bytes;
+
+                Entry entry = entries.get(key);
+                out.writeLong(entry.size);
+                out.writeLong(entry.modifiedMillis);
+                out.writeLong(entry.hashHigh);
+                out.writeLong(entry.hashLow);
+                out.writeLong(entry.optionsHash);
+                writeString(out, entry.targetFormat);
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.sedesoft.convertorio;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Outcome of one {@link TreeSync#run()}
+ */
+public class SyncResult {
+    private final long scanned;
+    private final long unchanged;
+    private final long converted;
+    private final long deleted;
+    private final Map<Path, String> failures;
+    private final Duration elapsed;
+
+    SyncResult(long scanned, long unchanged, long converted, long deleted, Map<Path, String> failures,
+               Duration elapsed) {
+        this.scanned = scanned;
+        this.unchanged = unchanged;
+        this.converted = converted;
+        this.deleted = deleted;
+        this.failures = Collections.unmodifiableMap(failures);
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * Source files found below the source root
+     */
+    public long getScanned() {
+        return scanned;
+    }
+
+    /**
+     * Source files that needed no conversion, including touched files whose content was unchanged
+     */
+    public long getUnchanged() {
+        return unchanged;
+    }
+
+    public long getConverted() {
+        return converted;
+    }
+
+    /**
+     * Outputs removed because their source file was deleted
+     */
+    public long getDeleted() {
+        return deleted;
+    }
+
+    /**
+     * Error message by source file, for conversions and deletions that failed and are retried on the next run
+     */
+    public Map<Path, String> getFailures() {
+        return failures;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return "SyncResult{" +
+            "scanned=" + scanned +
+            ", unchanged=" + unchanged +
+            ", converted=" + converted +
+            ", deleted=" + deleted +
+            ", failed=" + failures.size() +
+            ", elapsed=" + elapsed +
+            '}';
+    }
+}
@@ -0,0 +1,96 @@
+package com.sedesoft.convertorio;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * One target of a fan-out conversion
+ */
+public class TargetSpec {
+    private final String targetFormat;
+    private final String outputPath;
+    private final Map<String, Object> conversionMetadata;
+
+    private TargetSpec(Builder builder) {
+        this.targetFormat = builder.targetFormat;
+        this.outputPath = builder.outputPath;
+        // Copied, as targets are compared by value and used as map keys
+        this.conversionMetadata = builder.conversionMetadata != null ?
+            Collections.unmodifiableMap(new LinkedHashMap<>(builder.conversionMetadata)) : null;
+    }
+
+    public String getTargetFormat() {
+        return targetFormat;
+    }
+
+    public String getOutputPath() {
+        return outputPath;
+    }
+
+    public Map<String, Object> getConversionMetadata() {
+        return conversionMetadata;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static TargetSpec of(String targetFormat) {
+        return builder().targetFormat(targetFormat).build();
+    }
+
+    public static class Builder {
+        private String targetFormat;
+        private String outputPath;
+        private Map<String, Object> conversionMetadata;
+
+        public Builder targetFormat(String targetFormat) {
+            this.targetFormat = targetFormat;
+            return this;
+        }
+
+        public Builder outputPath(String outputPath) {
+            this.outputPath = outputPath;
+            return this;
+        }
+
+        public Builder conversionMetadata(Map<String, Object> conversionMetadata) {
+            this.conversionMetadata = conversionMetadata;
+            return this;
+        }
+
+        public TargetSpec build() {
+            return new TargetSpec(this);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TargetSpec)) {
+            return false;
+        }
+        TargetSpec other = (TargetSpec) o;
+        return Objects.equals(targetFormat, other.targetFormat) &&
+                Objects.equals(outputPath, other.outputPath) &&
+                Objects.equals(conversionMetadata, other.conversionMetadata);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(targetFormat, outputPath, conversionMetadata);
+    }
+
+    @Override
+    public String toString() {
+        return "TargetSpec{" +
+                "targetFormat='" + targetFormat + '\'' +
+                ", outputPath='" + outputPath + '\'' +
+                ", conversionMetadata=" + conversionMetadata +
+                '}';
+    }
+}
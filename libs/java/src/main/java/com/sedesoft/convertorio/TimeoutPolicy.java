@@ -0,0 +1,151 @@
+package com.sedesoft.convertorio;
+
+import java.time.Duration;
+
+/**
+ * Timeouts per conversion stage
+ *
+ * API calls get a fixed limit. Uploads and downloads get a base plus the
+ * time needed to move their bytes at a minimum throughput, so large files on
+ * slow links are not cut off while hung small transfers still fail quickly.
+ * Socket-level connect, read and write timeouts still catch stalled
+ * connections within any stage.
+ *
+ * Transfers throttled by a {@link BandwidthLimiter} get no overall limit: a
+ * shared limiter splits its rate between however many transfers run, so
+ * their speed says nothing about the link. They only fail once the socket
+ * makes no progress for the read or write timeout, or at the conversion's
+ * deadline.
+ */
+public class TimeoutPolicy {
+    private final Duration apiTimeout;
+    private final Duration uploadBaseTimeout;
+    private final long minUploadBytesPerSecond;
+    private final Duration downloadBaseTimeout;
+    private final long minDownloadBytesPerSecond;
+    private final Duration conversionTimeout;
+
+    private TimeoutPolicy(Builder builder) {
+        this.apiTimeout = builder.apiTimeout;
+        this.uploadBaseTimeout = builder.uploadBaseTimeout;
+        this.minUploadBytesPerSecond = builder.minUploadBytesPerSecond;
+        this.downloadBaseTimeout = builder.downloadBaseTimeout;
+        this.minDownloadBytesPerSecond = builder.minDownloadBytesPerSecond;
+        this.conversionTimeout = builder.conversionTimeout;
+    }
+
+    public Duration getApiTimeout() {
+        return apiTimeout;
+    }
+
+    public Duration getUploadBaseTimeout() {
+        return uploadBaseTimeout;
+    }
+
+    public long getMinUploadBytesPerSecond() {
+        return minUploadBytesPerSecond;
+    }
+
+    public Duration getDownloadBaseTimeout() {
+        return downloadBaseTimeout;
+    }
+
+    public long getMinDownloadBytesPerSecond() {
+        return minDownloadBytesPerSecond;
+    }
+
+    public Duration getConversionTimeout() {
+        return conversionTimeout;
+    }
+
+    long uploadTimeoutMillis(long bytes, BandwidthLimiter limiter) {
+        return transferTimeoutMillis(uploadBaseTimeout, minUploadBytesPerSecond, bytes, limiter);
+    }
+
+    long downloadTimeoutMillis(long bytes, BandwidthLimiter limiter) {
+        return transferTimeoutMillis(downloadBaseTimeout, minDownloadBytesPerSecond, bytes, limiter);
+    }
+
+    /**
+     * @return Limit for the whole transfer, or 0 for none because a limiter throttles it
+     */
+    private static long transferTimeoutMillis(Duration base, long minBytesPerSecond, long bytes,
+                                              BandwidthLimiter limiter) {
+        if (limiter != null && limiter.getBytesPerSecond() > 0) {
+            return 0;
+        }
+        return base.toMillis() + Math.max(0, bytes) * 1000 / minBytesPerSecond;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private Duration apiTimeout = Duration.ofSeconds(30);
+        private Duration uploadBaseTimeout = Duration.ofSeconds(30);
+        private long minUploadBytesPerSecond = 32 * 1024;
+        private Duration downloadBaseTimeout = Duration.ofSeconds(30);
+        private long minDownloadBytesPerSecond = 32 * 1024;
+        private Duration conversionTimeout;
+
+        /**
+         * Limit for a whole API call, from connecting to reading the response (default: 30s)
+         */
+        public Builder apiTimeout(Duration apiTimeout) {
+            requirePositive(apiTimeout, "apiTimeout");
+            this.apiTimeout = apiTimeout;
+            return this;
+        }
+
+        /**
+         * Uploads may take the base plus their size at the minimum throughput (default: 30s + 32 KB/s)
+         */
+        public Builder uploadTimeout(Duration base, long minBytesPerSecond) {
+            requireTransfer(base, minBytesPerSecond, "uploadTimeout");
+            this.uploadBaseTimeout = base;
+            this.minUploadBytesPerSecond = minBytesPerSecond;
+            return this;
+        }
+
+        /**
+         * Downloads may take the base plus their size at the minimum throughput (default: 30s + 32 KB/s)
+         */
+        public Builder downloadTimeout(Duration base, long minBytesPerSecond) {
+            requireTransfer(base, minBytesPerSecond, "downloadTimeout");
+            this.downloadBaseTimeout = base;
+            this.minDownloadBytesPerSecond = minBytesPerSecond;
+            return this;
+        }
+
+        /**
+         * Deadline for conversions that do not set {@link ConversionOptions.Builder#timeout} (default: none)
+         */
+        public Builder conversionTimeout(Duration conversionTimeout) {
+            if (conversionTimeout != null) {
+                requirePositive(conversionTimeout, "conversionTimeout");
+            }
+            this.conversionTimeout = conversionTimeout;
+            return this;
+        }
+
+        private static void requirePositive(Duration timeout, String name) {
+            if (timeout == null || timeout.isNegative() || timeout.isZero()) {
+                throw new IllegalArgumentException(name + " must be positive");
+            }
+        }
+
+        private static void requireTransfer(Duration base, long minBytesPerSecond, String name) {
+            if (base == null || base.isNegative()) {
+                throw new IllegalArgumentException(name + " base must not be negative");
+            }
+            if (minBytesPerSecond < 1) {
+                throw new IllegalArgumentException(name + " throughput must be at least 1 byte per second");
+            }
+        }
+
+        public TimeoutPolicy build() {
+            return new TimeoutPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.sedesoft.convertorio;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Projected points balance of one client, see {@link BudgetPolicy}
+ *
+ * Nothing runs until the first admission, which fetches the balance (and
+ * the recent jobs to learn from) before any conversion is let through;
+ * after that a daemon thread refreshes it. If the balance cannot be
+ * fetched, conversions are admitted, since the server rejects what it
+ * cannot charge anyway.
+ *
+ * The server charges a job when its upload is confirmed, so a confirmed
+ * reservation is booked as spent at its estimate and corrected to the
+ * tokens used when the job finishes, unless a refresh has since brought in
+ * the balance that includes the charge.
+ */
+final class TokenBudget {
+    // Wake up this often while waiting to notice cancellation and deadlines
+    private static final long CHECK_INTERVAL_MS = 100;
+    // Estimates follow the 90th percentile of the last jobs of a format pair
+    private static final int WINDOW = 32;
+
+    interface AccountSource {
+        Account fetch() throws ConvertorioException;
+    }
+
+    interface JobSource {
+        Job[] recent(int limit) throws ConvertorioException;
+    }
+
+    /**
+     * Points set aside for one conversion, to pass to {@link #confirm} and then {@link #settle} or {@link #release}
+     */
+    static final class Reservation {
+        final long cost;
+        private boolean done;
+        // Sequence number of the charge once confirmed, 0 before
+        private long charge;
+
+        private Reservation(long cost) {
+            this.cost = cost;
+        }
+    }
+
+    private final BudgetPolicy policy;
+    private final AccountSource account;
+    private final JobSource jobs;
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+    private final Object refreshLock = new Object();
+    private ScheduledExecutorService refresher;
+
+    // Guarded by this
+    private boolean known;
+    private long balance;
+    // Charged since the balance was fetched, including confirmed jobs at their estimate
+    private long spent;
+    // Admitted but not confirmed yet
+    private long reserved;
+    private long charges;
+    // Charges up to this one are included in the balance
+    private long chargesInBalance;
+    private int inFlight;
+    private int waiting;
+    private long admitted;
+    private long rejected;
+
+    TokenBudget(BudgetPolicy policy, AccountSource account, JobSource jobs) {
+        this.policy = policy;
+        this.account = account;
+        this.jobs = jobs;
+    }
+
+    /**
+     * Reserve the estimated cost of a conversion, waiting while conversions in flight may free points
+     *
+     * @param onWait Called once if the conversion has to wait
+     * @throws ConvertorioException if the points do not suffice, or the conversion is cancelled or times out
+     */
+    Reservation admit(String sourceFormat, String targetFormat, String lane, ConversionContext context,
+                      Runnable onWait) throws ConvertorioException {
+        start();
+        long cost = estimate(sourceFormat, targetFormat);
+        long floor = policy.getMinimumBalance() +
+            (lane != null && policy.getLowPriorityLanes().contains(lane) ? policy.getLowPriorityReserve() : 0);
+
+        synchronized (this) {
+            boolean counted = false;
+            try {
+                while (true) {
+                    long available = balance - spent - reserved;
+                    if (!known || available - cost >= floor) {
+                        reserved += cost;
+                        inFlight++;
+                        admitted++;
+                        return new Reservation(cost);
+                    }
+                    if (inFlight == 0) {
+                        rejected++;
+                        throw new ConvertorioException("Insufficient points: " + BudgetPolicy.pairKey(sourceFormat,
+                            targetFormat) + " is estimated at " + cost + " points, " + Math.max(0, available - floor) +
+                            " are available");
+                    }
+                    if (!counted) {
+                        counted = true;
+                        waiting++;
+                        onWait.run();
+                    }
+                    context.check();
+                    wait(Math.max(1, Math.min(CHECK_INTERVAL_MS, context.remainingMillis())));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ConvertorioException("Interrupted while waiting for points");
+            } finally {
+                if (counted) {
+                    waiting--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Book the estimate as spent once the server has accepted the job, which charges the account
+     */
+    synchronized void confirm(Reservation reservation) {
+        if (reservation == null || reservation.done || reservation.charge != 0) {
+            return;
+        }
+        reservation.charge = ++charges;
+        reserved -= reservation.cost;
+        spent += reservation.cost;
+    }
+
+    /**
+     * Book the actual cost of a finished job
+     *
+     * @param tokensUsed Tokens the job reported, or null to book the estimate
+     */
+    void settle(Reservation reservation, String sourceFormat, String targetFormat, Integer tokensUsed) {
+        if (tokensUsed != null) {
+            record(sourceFormat, targetFormat, tokensUsed);
+        }
+        synchronized (this) {
+            if (reservation.done) {
+                return;
+            }
+            confirm(reservation);
+            reservation.done = true;
+            // A balance fetched after the charge already has the actual cost
+            if (tokensUsed != null && reservation.charge > chargesInBalance) {
+                spent += tokensUsed - reservation.cost;
+            }
+            inFlight--;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Give the points back of a conversion that failed before it was confirmed;
+     * a confirmed one stays booked at its estimate, as the server has charged it
+     */
+    synchronized void release(Reservation reservation) {
+        if (reservation == null || reservation.done) {
+            return;
+        }
+        reservation.done = true;
+        if (reservation.charge == 0) {
+            reserved -= reservation.cost;
+        }
+        inFlight--;
+        notifyAll();
+    }
+
+    synchronized BudgetMetrics metrics() {
+        return new BudgetMetrics(known ? balance : -1, known ? balance - spent - reserved : -1, reserved, inFlight,
+            waiting, admitted, rejected);
+    }
+
+    long estimate(String sourceFormat, String targetFormat) {
+        String pair = BudgetPolicy.pairKey(sourceFormat, targetFormat);
+        Integer fixed = policy.getCosts().get(pair);
+        if (fixed != null) {
+            return fixed;
+        }
+        Window window = windows.get(pair);
+        long learned = window != null ? window.percentile90() : -1;
+        return learned >= 0 ? learned : policy.getDefaultCost();
+    }
+
+    private void record(String sourceFormat, String targetFormat, int tokensUsed) {
+        windows.computeIfAbsent(BudgetPolicy.pairKey(sourceFormat, targetFormat), key -> new Window())
+            .add(tokensUsed);
+    }
+
+    /**
+     * Fetch the balance before the first admission and schedule the refreshes
+     */
+    private void start() {
+        synchronized (refreshLock) {
+            if (refresher != null) {
+                return;
+            }
+            if (policy.getLearnFromJobs() > 0) {
+                try {
+                    for (Job job : jobs.recent(policy.getLearnFromJobs())) {
+                        if (job.getTokensUsed() != null) {
+                            record(job.getSourceFormat(), job.getTargetFormat(), job.getTokensUsed());
+                        }
+                    }
+                } catch (ConvertorioException e) {
+                    // Estimates are learned from this client's jobs instead
+                }
+            }
+            refresh();
+
+            refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "convertorio-budget");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalMs = policy.getRefreshInterval().toMillis();
+            refresher.scheduleWithFixedDelay(this::refresh, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Fetch the balance; scheduled by {@link #start}
+     */
+    void refresh() {
+        long spentBefore;
+        long chargesBefore;
+        synchronized (this) {
+            spentBefore = spent;
+            chargesBefore = charges;
+        }
+        Account current;
+        try {
+            current = account.fetch();
+        } catch (ConvertorioException | RuntimeException e) {
+            // Keep projecting from the last balance
+            return;
+        }
+        if (current.getPointsBalance() == null) {
+            return;
+        }
+        synchronized (this) {
+            // Jobs charged while the request was out are not necessarily in the new balance yet
+            balance = current.getPointsBalance();
+            spent -= spentBefore;
+            chargesInBalance = Math.max(chargesInBalance, chargesBefore);
+            known = true;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Tokens used by the last jobs of one format pair
+     */
+    private static final class Window {
+        private final int[] values = new int[WINDOW];
+        private int size;
+        private int next;
+
+        synchronized void add(int value) {
+            values[next] = value;
+            next = (next + 1) % WINDOW;
+            size = Math.min(size + 1, WINDOW);
+        }
+
+        synchronized long percentile90() {
+            if (size == 0) {
+                return -1;
+            }
+            int[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.ceil(0.9 * size) - 1];
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.sedesoft.convertorio;
+
+/**
+ * A span started by a {@link Tracer}
+ */
+public interface TraceSpan {
+    /**
+     * Span that ignores everything
+     */
+    TraceSpan NOOP = new TraceSpan() {
+        @Override
+        public void setAttribute(String key, String value) {
+        }
+
+        @Override
+        public void setAttribute(String key, long value) {
+        }
+
+        @Override
+        public void recordError(Throwable error) {
+        }
+
+        @Override
+        public void end() {
+        }
+
+        @Override
+        public String traceparent() {
+            return null;
+        }
+    };
+
+    void setAttribute(String key, String value);
+
+    void setAttribute(String key, long value);
+
+    void recordError(Throwable error);
+
+    void end();
+
+    /**
+     * W3C traceparent header value identifying this span, sent on API requests
+     *
+     * @return Header value, or null to skip propagation
+     */
+    String traceparent();
+}
@@ -0,0 +1,25 @@
+package com.sedesoft.convertorio;
+
+/**
+ * Tracing SPI for conversions
+ *
+ * Every conversion opens a root span with child spans for upload-url,
+ * upload, confirm, each status poll and download. Plug in an implementation
+ * with {@link ClientConfig.Builder#tracer}; the default {@link #NOOP} tracer
+ * records nothing.
+ */
+public interface Tracer {
+    /**
+     * Tracer that creates no spans
+     */
+    Tracer NOOP = (name, parent) -> TraceSpan.NOOP;
+
+    /**
+     * Start a span
+     *
+     * @param name Span name, e.g. convertorio.upload
+     * @param parent Parent span, or null for a conversion's root span
+     * @return The started span
+     */
+    TraceSpan startSpan(String name, TraceSpan parent);
+}
@@ -0,0 +1,550 @@
+package com.sedesoft.convertorio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Keeps an output tree of converted files in step with a source tree
+ *
+ * Every file below the source root is converted to the same relative path
+ * below the output root, with the target format's extension. A manifest
+ * records each source file's size, modification time, content hash and
+ * conversion options. A run scans the source tree in parallel and only
+ * converts files that are new or whose options changed, or whose size or
+ * modification time changed and whose content hash then differs too.
+ * Outputs of deleted source files are removed. A run over an unchanged tree
+ * makes no API calls.
+ *
+ * <pre>{@code
+ * TreeSync sync = TreeSync.builder()
+ *     .client(client)
+ *     .sourceRoot(Paths.get("photos"))
+ *     .outputRoot(Paths.get("webp"))
+ *     .targetFormat("webp")
+ *     .parallelism(8)
+ *     .build();
+ * SyncResult result = sync.run();
+ * }</pre>
+ *
+ * Conversions that fail keep their previous manifest entry, so they are
+ * retried on the next run. Source files that would share an output, such as
+ * {@code photo.jpg} and {@code photo.png}, are reported as failures and left
+ * as they are until one is renamed. Runs of one manifest must not overlap.
+ */
+public class TreeSync {
+    public static final String DEFAULT_MANIFEST_NAME = ".convertorio-sync";
+
+    // Progress is saved at most this often, so an interrupted first run does not start over
+    private static final long CHECKPOINT_INTERVAL_MS = 60_000;
+    private static final int HASH_BUFFER_BYTES = 64 * 1024;
+
+    private interface Converter {
+        ConversionResult convert(ConversionOptions options) throws ConvertorioException;
+    }
+
+    private final Converter converter;
+    private final Path sourceRoot;
+    private final Path outputRoot;
+    private final String targetFormat;
+    private final Path manifest;
+    private final int parallelism;
+    private final PathMatcher include;
+    private final Function<Path, Map<String, Object>> metadata;
+    private final boolean verifyOutputs;
+    private final long defaultOptionsHash;
+
+    private TreeSync(Builder builder) {
+        if (builder.converter == null) {
+            throw new IllegalArgumentException("A client or pool is required");
+        }
+        if (builder.sourceRoot == null || builder.outputRoot == null) {
+            throw new IllegalArgumentException("sourceRoot and outputRoot are required");
+        }
+        if (builder.targetFormat == null) {
+            throw new IllegalArgumentException("targetFormat is required");
+        }
+
+        this.converter = builder.converter;
+        this.sourceRoot = builder.sourceRoot.toAbsolutePath().normalize();
+        this.outputRoot = builder.outputRoot.toAbsolutePath().normalize();
+        this.targetFormat = builder.targetFormat.toLowerCase();
+        this.manifest = builder.manifest != null ?
+            builder.manifest.toAbsolutePath().normalize() : outputRoot.resolve(DEFAULT_MANIFEST_NAME);
+        this.parallelism = builder.parallelism;
+        this.include = builder.include;
+        this.metadata = builder.metadata;
+        this.verifyOutputs = builder.verifyOutputs;
+        this.defaultOptionsHash = optionsHash(null);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Bring the output tree up to date
+     *
+     * @return Counts of scanned, unchanged, converted and deleted files, and the failures
+     * @throws ConvertorioException if the source tree or the manifest cannot be read or the manifest cannot be saved
+     */
+    public SyncResult run() throws ConvertorioException {
+        long startedAt = System.nanoTime();
+        Run run;
+        try {
+            run = new Run(SyncManifest.load(manifest));
+        } catch (IOException e) {
+            throw new ConvertorioException("Failed to read sync manifest: " + e.getMessage(), e);
+        }
+
+        // An unreadable directory must abort the run, or its files would count as deleted
+        ForkJoinPool scanners = new ForkJoinPool(Math.max(parallelism, Runtime.getRuntime().availableProcessors()));
+        try {
+            scanners.invoke(run.new ScanTask(sourceRoot));
+        } catch (UncheckedIOException e) {
+            throw new ConvertorioException("Failed to scan " + sourceRoot + ": " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            scanners.shutdown();
+        }
+
+        run.skipCollisions();
+        if (!run.candidates.isEmpty()) {
+            run.convertCandidates();
+        }
+        run.deleteRemoved();
+
+        if (run.dirty) {
+            run.save(run.next);
+        }
+
+        return new SyncResult(run.scanned.sum(), run.unchanged.sum(), run.converted.sum(), run.deleted,
+            new HashMap<>(run.failures), Duration.ofNanos(System.nanoTime() - startedAt));
+    }
+
+    /**
+     * State of a single {@link #run()}
+     */
+    private final class Run {
+        final Map<String, SyncManifest.Entry> previous;
+        final Map<String, SyncManifest.Entry> next = new ConcurrentHashMap<>();
+        final ConcurrentLinkedQueue<Candidate> candidates = new ConcurrentLinkedQueue<>();
+        final Map<Path, String> failures = new ConcurrentHashMap<>();
+        // Scanned source file writing each output, and the files that share an output with another
+        final Map<Path, String> outputs = new ConcurrentHashMap<>();
+        final Map<String, String> collisions = new ConcurrentHashMap<>();
+        final LongAdder scanned = new LongAdder();
+        final LongAdder unchanged = new LongAdder();
+        final LongAdder converted = new LongAdder();
+        long deleted;
+        boolean dirty;
+
+        Run(Map<String, SyncManifest.Entry> previous) {
+            this.previous = previous;
+        }
+
+        /**
+         * Lists one directory and forks a task for each subdirectory
+         */
+        final class ScanTask extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+
+            private final Path directory;
+
+            ScanTask(Path directory) {
+                this.directory = directory;
+            }
+
+            @Override
+            protected void compute() {
+                List<ScanTask> subdirectories = new ArrayList<>();
+                try (DirectoryStream<Path> children = Files.newDirectoryStream(directory)) {
+                    for (Path child : children) {
+                        try {
+                            scan(child, subdirectories);
+                        } catch (NoSuchFileException e) {
+                            // Deleted while scanning, or a dangling link
+                        }
+                    }
+                } catch (NoSuchFileException e) {
+                    // A missing source root must abort the run; a subdirectory was deleted while scanning
+                    if (directory.equals(sourceRoot)) {
+                        throw new UncheckedIOException(e);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                invokeAll(subdirectories);
+            }
+        }
+
+        private void scan(Path child, List<ScanTask> subdirectories) throws IOException {
+            BasicFileAttributes attributes =
+                Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            if (attributes.isDirectory()) {
+                // An output root nested in the source root is not a source
+                if (!child.equals(outputRoot)) {
+                    subdirectories.add(new ScanTask(child));
+                }
+            } else if (attributes.isRegularFile()) {
+                visit(child, attributes);
+            } else if (attributes.isSymbolicLink()) {
+                // Like Files.walk, links to files are followed and links to directories are not
+                attributes = Files.readAttributes(child, BasicFileAttributes.class);
+                if (attributes.isRegularFile()) {
+                    visit(child, attributes);
+                }
+            }
+        }
+
+        private void visit(Path source, BasicFileAttributes attributes) {
+            Path relativePath = sourceRoot.relativize(source);
+            if (source.equals(manifest) || include != null && !include.matches(relativePath)) {
+                return;
+            }
+            scanned.increment();
+
+            String key = key(relativePath);
+            String owner = outputs.putIfAbsent(outputFor(key, targetFormat), key);
+            if (owner != null) {
+                collisions.put(key, owner);
+                collisions.putIfAbsent(owner, key);
+            }
+            Map<String, Object> conversionMetadata = metadata != null ? metadata.apply(relativePath) : null;
+            long optionsHash = conversionMetadata != null ? optionsHash(conversionMetadata) : defaultOptionsHash;
+            long size = attributes.size();
+            long modifiedMillis = attributes.lastModifiedTime().toMillis();
+
+            SyncManifest.Entry entry = previous.get(key);
+            if (entry != null && entry.size == size && entry.modifiedMillis == modifiedMillis
+                    && entry.optionsHash == optionsHash && outputPresent(key, entry)) {
+                next.put(key, entry);
+                unchanged.increment();
+            } else {
+                candidates.add(new Candidate(source, key, size, modifiedMillis, optionsHash, conversionMetadata, entry));
+            }
+        }
+
+        /**
+         * Leave files that share an output with another file as they are, keeping their previous entries
+         */
+        void skipCollisions() {
+            if (collisions.isEmpty()) {
+                return;
+            }
+            candidates.removeIf(candidate -> collisions.containsKey(candidate.key));
+            for (Map.Entry<String, String> collision : collisions.entrySet()) {
+                String key = collision.getKey();
+                if (next.containsKey(key)) {
+                    unchanged.decrement();
+                } else if (previous.containsKey(key)) {
+                    next.put(key, previous.get(key));
+                }
+                failures.put(sourceRoot.resolve(key), "Output " + outputRoot.relativize(outputFor(key, targetFormat))
+                    + " would also be written by " + collision.getValue() + "; rename one of them");
+            }
+        }
+
+        void convertCandidates() throws ConvertorioException {
+            dirty = true;
+            ExecutorService workers = Executors.newFixedThreadPool(parallelism);
+            for (Candidate candidate : candidates) {
+                workers.submit(() -> convert(candidate));
+            }
+            workers.shutdown();
+
+            try {
+                long checkpointed = 0;
+                while (!workers.awaitTermination(CHECKPOINT_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                    if (converted.sum() > checkpointed) {
+                        checkpointed = converted.sum();
+                        // Entries not reached yet keep their previous state
+                        Map<String, SyncManifest.Entry> snapshot = new HashMap<>(previous);
+                        snapshot.putAll(next);
+                        save(snapshot);
+                    }
+                }
+            } catch (InterruptedException e) {
+                workers.shutdownNow();
+                Thread.currentThread().interrupt();
+                throw new ConvertorioException("Interrupted while syncing " + sourceRoot);
+            }
+        }
+
+        private void convert(Candidate candidate) {
+            try {
+                long[] hash = contentHash(candidate.source);
+                SyncManifest.Entry entry = candidate.previous;
+                if (entry != null && entry.sameContent(hash[0], hash[1])
+                        && entry.optionsHash == candidate.optionsHash && outputPresent(candidate.key, entry)) {
+                    // Touched or copied over with the same content
+                    next.put(candidate.key, entry.touched(candidate.size, candidate.modifiedMillis));
+                    unchanged.increment();
+                    return;
+                }
+
+                converter.convert(ConversionOptions.builder()
+                    .inputPath(candidate.source.toString())
+                    .targetFormat(targetFormat)
+                    .outputPath(outputFor(candidate.key, targetFormat).toString())
+                    .conversionMetadata(candidate.metadata)
+                    .build());
+                next.put(candidate.key, new SyncManifest.Entry(candidate.size, candidate.modifiedMillis,
+                    hash[0], hash[1], candidate.optionsHash, targetFormat));
+                converted.increment();
+            } catch (ConvertorioException | IOException | RuntimeException e) {
+                failures.put(candidate.source, String.valueOf(e.getMessage()));
+                if (candidate.previous != null) {
+                    next.put(candidate.key, candidate.previous);
+                }
+                return;
+            }
+
+            SyncManifest.Entry entry = candidate.previous;
+            if (entry != null && !entry.targetFormat.equals(targetFormat)) {
+                try {
+                    // Other conversions may be creating directories, so nothing is pruned here
+                    Files.deleteIfExists(outputFor(candidate.key, entry.targetFormat));
+                } catch (IOException e) {
+                    failures.put(candidate.source, "Failed to delete previous output: " + e.getMessage());
+                }
+            }
+        }
+
+        void deleteRemoved() {
+            for (Map.Entry<String, SyncManifest.Entry> removed : previous.entrySet()) {
+                if (next.containsKey(removed.getKey())) {
+                    continue;
+                }
+                dirty = true;
+                Path output = outputFor(removed.getKey(), removed.getValue().targetFormat);
+                try {
+                    // Now written by another source file, e.g. photo.png replacing photo.jpg
+                    if (!outputs.containsKey(output)) {
+                        Files.deleteIfExists(output);
+                        pruneEmptyParents(output);
+                    }
+                    deleted++;
+                } catch (IOException e) {
+                    failures.put(sourceRoot.resolve(removed.getKey()), "Failed to delete output: " + e.getMessage());
+                    next.put(removed.getKey(), removed.getValue());
+                }
+            }
+        }
+
+        void save(Map<String, SyncManifest.Entry> entries) throws ConvertorioException {
+            try {
+                Files.createDirectories(manifest.getParent());
+                SyncManifest.save(manifest, entries);
+            } catch (IOException e) {
+                throw new ConvertorioException("Failed to save sync manifest: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * A source file that may need converting
+     */
+    private static final class Candidate {
+        final Path source;
+        final String key;
+        final long size;
+        final long modifiedMillis;
+        final long optionsHash;
+        final Map<String, Object> metadata;
+        final SyncManifest.Entry previous;
+
+        Candidate(Path source, String key, long size, long modifiedMillis, long optionsHash,
+                  Map<String, Object> metadata, SyncManifest.Entry previous) {
+            this.source = source;
+            this.key = key;
+            this.size = size;
+            this.modifiedMillis = modifiedMillis;
+            this.optionsHash = optionsHash;
+            this.metadata = metadata;
+            this.previous = previous;
+        }
+    }
+
+    private boolean outputPresent(String key, SyncManifest.Entry entry) {
+        return !verifyOutputs || Files.exists(outputFor(key, entry.targetFormat));
+    }
+
+    private Path outputFor(String key, String format) {
+        int lastSlash = key.lastIndexOf('/');
+        int lastDot = key.lastIndexOf('.');
+        String baseName = lastDot > lastSlash + 1 ? key.substring(0, lastDot) : key;
+        return outputRoot.resolve(baseName + "." + format);
+    }
+
+    /**
+     * Manifest key of a source file, with forward slashes on every platform
+     */
+    private static String key(Path relativePath) {
+        StringBuilder key = new StringBuilder();
+        for (Path part : relativePath) {
+            if (key.length() > 0) {
+                key.append('/');
+            }
+            key.append(part);
+        }
+        return key.toString();
+    }
+
+    private long optionsHash(Map<String, Object> conversionMetadata) {
+        String options = targetFormat + "\n" + (conversionMetadata != null ? new TreeMap<>(conversionMetadata) : "");
+        return ByteBuffer.wrap(sha256().digest(options.getBytes(StandardCharsets.UTF_8))).getLong();
+    }
+
+    private static long[] contentHash(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[HASH_BUFFER_BYTES];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        ByteBuffer hash = ByteBuffer.wrap(digest.digest());
+        return new long[] {hash.getLong(), hash.getLong()};
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to provide it
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Remove directories below the output root that deleting an output left empty
+     */
+    private void pruneEmptyParents(Path output) throws IOException {
+        for (Path directory = output.getParent();
+             directory != null && directory.startsWith(outputRoot) && !directory.equals(outputRoot);
+             directory = directory.getParent()) {
+            try {
+                Files.delete(directory);
+            } catch (DirectoryNotEmptyException | NoSuchFileException e) {
+                return;
+            }
+        }
+    }
+
+    public static class Builder {
+        private Converter converter;
+        private Path sourceRoot;
+        private Path outputRoot;
+        private String targetFormat;
+        private Path manifest;
+        private int parallelism = 4;
+        private PathMatcher include;
+        private Function<Path, Map<String, Object>> metadata;
+        private boolean verifyOutputs;
+
+        public Builder client(ConvertorioClient client) {
+            this.converter = client::convertFile;
+            return this;
+        }
+
+        /**
+         * Spread the conversions over several API keys instead of a single client
+         */
+        public Builder pool(ConvertorioClientPool pool) {
+            this.converter = pool::convertFile;
+            return this;
+        }
+
+        public Builder sourceRoot(Path sourceRoot) {
+            this.sourceRoot = sourceRoot;
+            return this;
+        }
+
+        public Builder outputRoot(Path outputRoot) {
+            this.outputRoot = outputRoot;
+            return this;
+        }
+
+        public Builder targetFormat(String targetFormat) {
+            this.targetFormat = targetFormat;
+            return this;
+        }
+
+        /**
+         * Manifest file, by default {@value #DEFAULT_MANIFEST_NAME} in the output root
+         */
+        public Builder manifest(Path manifest) {
+            this.manifest = manifest;
+            return this;
+        }
+
+        /**
+         * Conversions in flight (default 4)
+         */
+        public Builder parallelism(int parallelism) {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("parallelism must be at least 1");
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Only sync source files whose path relative to the source root matches
+         */
+        public Builder include(PathMatcher include) {
+            this.include = include;
+            return this;
+        }
+
+        /**
+         * Conversion metadata per source file, by path relative to the source root
+         *
+         * Files whose metadata changes are converted again.
+         */
+        public Builder metadata(Function<Path, Map<String, Object>> metadata) {
+            this.metadata = metadata;
+            return this;
+        }
+
+        /**
+         * Also convert unchanged files whose output is missing, at the cost of checking every output
+         */
+        public Builder verifyOutputs(boolean verifyOutputs) {
+            this.verifyOutputs = verifyOutputs;
+            return this;
+        }
+
+        public TreeSync build() {
+            return new TreeSync(this);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.sedesoft.convertorio;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BaseUrlSelectorTest {
+    private MockApi slow;
+    private MockApi fast;
+    private ConvertorioClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // The first request of a JVM is slow enough to skew the first latency sample
+        try (MockApi warmup = new MockApi()) {
+            new ConvertorioClient(ClientConfig.builder().apiKey("test").baseUrl(warmup.baseUrl()).build())
+                .getAccount();
+        }
+        slow = new MockApi();
+        fast = new MockApi();
+        client = new ConvertorioClient(ClientConfig.builder()
+            .apiKey("test")
+            .baseUrls(Arrays.asList(slow.baseUrl(), fast.baseUrl()))
+            .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        slow.close();
+        fast.close();
+    }
+
+    @Test
+    void fasterBaseUrlTakesMostRequests() throws Exception {
+        slow.accountHandler = exchange -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            MockApi.json(exchange, 200, "{\"success\":true,\"account\":{\"id\":\"acc\"}}");
+        };
+
+        for (int i = 0; i < 40; i++) {
+            client.getAccount();
+        }
+
+        // The slow one is only picked while it has no latency sample yet
+        assertTrue(slow.accountRequests.get() <= 2, "slow base URL got " + slow.accountRequests.get());
+        assertEquals(40, slow.accountRequests.get() + fast.accountRequests.get());
+        List<BaseUrlMetrics> metrics = client.getBaseUrlMetrics();
+        assertTrue(metrics.get(0).getLatencyMs() > metrics.get(1).getLatencyMs(), metrics.toString());
+    }
+
+    @Test
+    void latencyOfAnIdleBaseUrlFades() {
+        BaseUrlSelector selector = new BaseUrlSelector(Arrays.asList("http://a", "http://b"), url -> -1);
+        BaseUrlSelector.Route a = selector.acquire(null);
+        BaseUrlSelector.Route b = selector.acquire(a);
+        selector.release(a, 500_000_000, true);
+        selector.release(b, 20_000_000, true);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(b, selector.acquire(null));
+        }
+
+        // A minute without requests leaves little of the old 500 ms estimate
+        a.lastSample -= 60_000_000_000L;
+        assertEquals(a, selector.acquire(null));
+    }
+
+    @Test
+    void failingBaseUrlIsEjectedAndRestoredByProbes() throws Exception {
+        slow.accountHandler = exchange -> MockApi.json(exchange, 503, "{\"success\":false}");
+
+        // Reads fail over, so every call still succeeds while the failing base URL is ejected
+        for (int i = 0; i < 10; i++) {
+            client.getAccount();
+        }
+        BaseUrlMetrics failing = client.getBaseUrlMetrics().get(0);
+        assertTrue(failing.isEjected());
+        assertEquals(3, failing.getFailures());
+        assertEquals(3, slow.accountRequests.get());
+
+        slow.accountHandler = fast.accountHandler;
+        long deadline = System.currentTimeMillis() + 15_000;
+        while (client.getBaseUrlMetrics().get(0).isEjected() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        assertFalse(client.getBaseUrlMetrics().get(0).isEjected());
+    }
+}
@@ -0,0 +1,63 @@
+package com.sedesoft.convertorio;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class ByteBudgetTest {
+    private final ByteBudget budget = new ByteBudget("upload", 100);
+
+    @Test
+    void smallTransferPassesALargeOneThatDoesNotFit() throws Exception {
+        long held = budget.acquire(60, context());
+        CompletableFuture<Long> large = acquireAsync(100);
+        Thread.sleep(100);
+        assertFalse(large.isDone());
+
+        // Fits into the 40 bytes left, although the large transfer queued first
+        budget.release(budget.acquire(30, context()));
+
+        budget.release(held);
+        assertEquals(100, large.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void largeTransferIsPassedOnlyABoundedNumberOfTimes() throws Exception {
+        long held = budget.acquire(60, context());
+        CompletableFuture<Long> large = acquireAsync(100);
+        Thread.sleep(100);
+
+        for (int i = 0; i < ByteBudget.MAX_OVERTAKES; i++) {
+            budget.release(budget.acquire(30, context()));
+        }
+        CompletableFuture<Long> small = acquireAsync(30);
+        Thread.sleep(100);
+        assertFalse(small.isDone());
+
+        budget.release(held);
+        long largeReserved = large.get(5, TimeUnit.SECONDS);
+        assertFalse(small.isDone());
+        budget.release(largeReserved);
+        assertEquals(30, small.get(5, TimeUnit.SECONDS));
+    }
+
+    private CompletableFuture<Long> acquireAsync(long bytes) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return budget.acquire(bytes, context());
+            } catch (ConvertorioException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    private static ConversionContext context() {
+        return ConversionContext.of(ConversionOptions.builder().timeout(Duration.ofSeconds(10)).build(), null,
+            Tracer.NOOP);
+    }
+}
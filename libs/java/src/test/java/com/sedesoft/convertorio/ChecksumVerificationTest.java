@@ -0,0 +1,93 @@
+package com.sedesoft.convertorio;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChecksumVerificationTest {
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n', 0, 0, 0, 13, 'I', 'H', 'D', 'R'};
+
+    @TempDir
+    Path dir;
+
+    private MockApi api;
+    private ConvertorioClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        api = new MockApi();
+        client = new ConvertorioClient(ClientConfig.builder()
+            .apiKey("test")
+            .baseUrl(api.baseUrl())
+            .computeChecksums(true)
+            .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        api.close();
+    }
+
+    @Test
+    void etagThatIsNotTheMd5IsIgnored() throws Exception {
+        // SSE-KMS objects have MD5-shaped ETags that are not the content MD5
+        api.downloadHeaders.put("ETag", "\"0123456789abcdef0123456789abcdef\"");
+
+        assertTrue(convert().isSuccess());
+    }
+
+    @Test
+    void matchingChecksumHeadersPass() throws Exception {
+        api.downloadHeaders.put("Content-MD5", base64("MD5"));
+        api.downloadHeaders.put("x-amz-checksum-sha256", base64("SHA-256"));
+
+        ConversionResult result = convert();
+        assertEquals(hex(MessageDigest.getInstance("SHA-256").digest(MockApi.OUTPUT)), result.getSha256());
+    }
+
+    @Test
+    void contentMd5MismatchFails() {
+        api.downloadHeaders.put("Content-MD5", Base64.getEncoder().encodeToString(new byte[16]));
+
+        ConvertorioException e = assertThrows(ConvertorioException.class, this::convert);
+        assertTrue(e.getMessage().contains("Content-MD5"), e.getMessage());
+    }
+
+    @Test
+    void sha256MismatchFails() {
+        api.downloadHeaders.put("x-amz-checksum-sha256", Base64.getEncoder().encodeToString(new byte[32]));
+
+        assertThrows(ConvertorioException.class, this::convert);
+    }
+
+    private ConversionResult convert() throws Exception {
+        Path input = dir.resolve("in.png");
+        Files.write(input, PNG);
+        return client.convertFile(ConversionOptions.builder()
+            .inputPath(input.toString())
+            .targetFormat("webp")
+            .build());
+    }
+
+    private static String base64(String algorithm) throws Exception {
+        return Base64.getEncoder().encodeToString(MessageDigest.getInstance(algorithm).digest(MockApi.OUTPUT));
+    }
+
+    private static String hex(byte[] digest) {
+        StringBuilder builder = new StringBuilder();
+        for (byte b : digest) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,71 @@
+package com.sedesoft.convertorio;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConvertorioClientPoolTest {
+    @TempDir
+    Path dir;
+
+    private MockApi api;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        api = new MockApi();
+    }
+
+    @AfterEach
+    void tearDown() {
+        api.close();
+    }
+
+    @Test
+    void storageErrorsDoNotDrainTheKey() throws Exception {
+        ConvertorioClientPool pool = ConvertorioClientPool.builder()
+            .apiKey("key-1")
+            .config(ClientConfig.builder().baseUrl(api.baseUrl()).build())
+            .drainAfterFailures(1)
+            .build();
+        api.uploadStatus = 503;
+
+        ConvertorioException e = assertThrows(ConvertorioException.class, () -> pool.convertFile(options()));
+        assertEquals(503, e.getStatusCode());
+
+        KeyMetrics key = pool.getKeyMetrics().get(0);
+        assertEquals(1, key.getFailed());
+        assertFalse(key.isDrained());
+    }
+
+    @Test
+    void onlyApiAuthQuotaAndServerErrorsAreKeyFailures() {
+        assertTrue(ConvertorioClientPool.isKeyFailure(new ConvertorioException("Unauthorized", 401)));
+        assertTrue(ConvertorioClientPool.isKeyFailure(new ConvertorioException("Insufficient points", 402)));
+        assertTrue(ConvertorioClientPool.isKeyFailure(new ConvertorioException("Too many requests", 429)));
+        assertTrue(ConvertorioClientPool.isKeyFailure(new ConvertorioException("Unavailable", 503)));
+
+        assertFalse(ConvertorioClientPool.isKeyFailure(new ConvertorioException("Bad request", 400)));
+        assertFalse(ConvertorioClientPool.isKeyFailure(new StorageException("Upload failed", 503)));
+        assertFalse(ConvertorioClientPool.isKeyFailure(
+            new StorageException("Download failed", new IOException("connection reset"))));
+    }
+
+    private ConversionOptions options() throws IOException {
+        Path input = dir.resolve("in.png");
+        Files.write(input, new byte[] {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n', 0, 0, 0, 13});
+        return ConversionOptions.builder()
+            .inputPath(input.toString())
+            .targetFormat("webp")
+            .build();
+    }
+}
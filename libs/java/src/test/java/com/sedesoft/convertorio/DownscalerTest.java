@@ -0,0 +1,91 @@
+package com.sedesoft.convertorio;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DownscalerTest {
+    @TempDir
+    File dir;
+
+    @Test
+    void portraitCropOfLandscapeSourceKeepsRequestedWidth() throws Exception {
+        File source = noise(1600, 900);
+
+        // The 9:16 box is about 506 wide, so 480 leaves no room to shrink
+        assertNull(Downscaler.downscale(source, "png", metadata("9:16", 480), context()));
+
+        ByteBuffer result = Downscaler.downscale(source, "png", metadata("9:16", 300), context());
+        assertNotNull(result);
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(result.array()));
+        assertTrue(image.getWidth() < 1600);
+        assertTrue(image.getHeight() * 9.0 / 16 >= 300, "crop box is " + image.getHeight() * 9.0 / 16 + " wide");
+    }
+
+    @Test
+    void cropBoxFollowsTheAspectRatio() {
+        assertArrayEquals(new double[] {506.25, 900}, Downscaler.cropBox(1600, 900, "9:16"), 0.001);
+        assertArrayEquals(new double[] {900, 2100}, Downscaler.cropBox(900, 2100, "original"), 0.001);
+        assertArrayEquals(new double[] {900, 900 * 9.0 / 21}, Downscaler.cropBox(900, 1600, "21:9"), 0.001);
+        assertNull(Downscaler.cropBox(1600, 900, "wide"));
+        assertNull(Downscaler.cropBox(1600, 900, "16:0"));
+    }
+
+    @Test
+    void unknownAspectRatioSkipsDownscaling() throws Exception {
+        assertNull(Downscaler.downscale(noise(1600, 900), "png", metadata("cinema", 100), context()));
+    }
+
+    @Test
+    void cancelledConversionStopsBeforeDecoding() throws Exception {
+        File source = noise(1600, 900);
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        ConversionContext context = ConversionContext.of(ConversionOptions.builder().cancellationToken(token).build(), null, Tracer.NOOP);
+
+        ConvertorioException e = assertThrows(ConvertorioException.class,
+            () -> Downscaler.downscale(source, "png", metadata("original", 100), context));
+        assertEquals("Conversion cancelled", e.getMessage());
+    }
+
+    private File noise(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(1);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        File file = new File(dir, width + "x" + height + ".png");
+        ImageIO.write(image, "png", file);
+        return file;
+    }
+
+    private static Map<String, Object> metadata(String aspectRatio, int width) {
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("aspect_ratio", aspectRatio);
+        metadata.put("resize_width", width);
+        return metadata;
+    }
+
+    private static ConversionContext context() {
+        return ConversionContext.of(ConversionOptions.builder().timeout(Duration.ofSeconds(30)).build(), null, Tracer.NOOP);
+    }
+}
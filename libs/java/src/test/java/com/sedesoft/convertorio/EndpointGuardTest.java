@@ -0,0 +1,85 @@
+package com.sedesoft.convertorio;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EndpointGuardTest {
+    @Test
+    void fullBulkheadQueuesByDefault() throws Exception {
+        EndpointGuard guard = guard(IsolationPolicy.builder(), 1);
+        guard.acquire(context(Duration.ofSeconds(5)));
+
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> {
+            try {
+                return guard.acquire(context(Duration.ofSeconds(5)));
+            } catch (ConvertorioException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Thread.sleep(200);
+        assertFalse(queued.isDone());
+
+        guard.release(false, true);
+        assertFalse(queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void queuedCallGivesUpAtTheConversionDeadline() throws Exception {
+        EndpointGuard guard = guard(IsolationPolicy.builder(), 1);
+        guard.acquire(null);
+
+        ConvertorioException e = assertThrows(ConvertorioException.class,
+            () -> guard.acquire(context(Duration.ofMillis(150))));
+        assertTrue(e.getMessage().contains("deadline"), e.getMessage());
+        assertEquals(1, guard.metrics().getRejectedCalls());
+    }
+
+    @Test
+    void zeroMaxWaitRejectsImmediately() throws Exception {
+        EndpointGuard guard = guard(IsolationPolicy.builder().maxWait(Duration.ZERO), 1);
+        guard.acquire(null);
+
+        assertThrows(ConvertorioException.class, () -> guard.acquire(context(Duration.ofSeconds(5))));
+    }
+
+    @Test
+    void onlyTheTrialCallEndsHalfOpen() throws Exception {
+        EndpointGuard guard = guard(IsolationPolicy.builder()
+            .failureThreshold(1)
+            .openDuration(Duration.ofMillis(50)), 4);
+
+        // A call admitted while closed is still running when the circuit opens
+        boolean straggler = guard.acquire(null);
+        assertFalse(guard.acquire(null));
+        guard.release(false, false);
+        assertEquals(EndpointGuard.OPEN, guard.metrics().getState());
+
+        Thread.sleep(100);
+        assertTrue(guard.acquire(null));
+        assertEquals(EndpointGuard.HALF_OPEN, guard.metrics().getState());
+
+        // The straggler finishing neither frees the trial slot nor decides the circuit
+        guard.release(straggler, true);
+        assertEquals(EndpointGuard.HALF_OPEN, guard.metrics().getState());
+        assertThrows(ConvertorioException.class, () -> guard.acquire(null));
+
+        guard.release(true, true);
+        assertEquals(EndpointGuard.CLOSED, guard.metrics().getState());
+    }
+
+    private static EndpointGuard guard(IsolationPolicy.Builder policy, int maxConcurrent) {
+        return new EndpointGuard("api", policy.build(), maxConcurrent, event -> { });
+    }
+
+    private static ConversionContext context(Duration timeout) {
+        return ConversionContext.of(ConversionOptions.builder().timeout(timeout).build(), null, Tracer.NOOP);
+    }
+}
@@ -0,0 +1,68 @@
+package com.sedesoft.convertorio;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class FileSinkTest {
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @TempDir
+    File dir;
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void defaultsToTheInputPathWithTheTargetExtension() {
+        String separator = File.separator;
+        assertEquals("photos" + separator + "cat.webp", FileSink.defaultOutputPath("photos" + separator + "cat.JPG", "WEBP"));
+        assertEquals("cat.webp", FileSink.defaultOutputPath("cat", "webp"));
+    }
+
+    @Test
+    void spilledDownloadIsCommittedIntoNewDirectories() throws Exception {
+        File output = new File(dir, "a/b/cat.webp");
+        byte[] data = SinkWriterTest.data(1 << 20);
+        SinkWriter writer = writer(output, 64 * 1024);
+
+        writer.write(data, 0, data.length);
+        writer.finish();
+
+        assertEquals(output.getPath(), writer.await(context()));
+        assertArrayEquals(data, Files.readAllBytes(output.toPath()));
+    }
+
+    @Test
+    void abortDeletesThePartialFile() throws Exception {
+        File output = new File(dir, "cat.webp");
+        SinkWriter writer = writer(output, 0);
+
+        writer.write(SinkWriterTest.data(256 * 1024), 0, 256 * 1024);
+        writer.abort();
+
+        assertFalse(output.exists());
+    }
+
+    private SinkWriter writer(File output, long memoryLimit) {
+        return new SinkWriter(new FileSink(), executor, memoryLimit, 8L << 20, context(), "job-1", "cat.png",
+            output.getPath(), "webp").open(-1);
+    }
+
+    private static ConversionContext context() {
+        return ConversionContext.of(ConversionOptions.builder().timeout(Duration.ofSeconds(30)).build(), null,
+            Tracer.NOOP);
+    }
+}
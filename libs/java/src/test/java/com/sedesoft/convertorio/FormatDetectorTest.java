@@ -0,0 +1,69 @@
+package com.sedesoft.convertorio;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FormatDetectorTest {
+    @Test
+    void detectsCommonFormats() {
+        assertEquals("jpg", detect(0xFF, 0xD8, 0xFF, 0xE0));
+        assertEquals("png", detect(0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A));
+        assertEquals("gif", detect('G', 'I', 'F', '8', '9', 'a'));
+        assertEquals("webp", detect('R', 'I', 'F', 'F', 0, 0, 0, 0, 'W', 'E', 'B', 'P'));
+        assertEquals("pdf", detect('%', 'P', 'D', 'F', '-'));
+        assertEquals("avif", detect(0, 0, 0, 0x1C, 'f', 't', 'y', 'p', 'a', 'v', 'i', 'f'));
+        assertEquals("heic", detect(0, 0, 0, 0x18, 'f', 't', 'y', 'p', 'h', 'e', 'i', 'c'));
+        assertEquals("tiff", detect('I', 'I', 0x2A, 0x00, 8, 0, 0, 0));
+    }
+
+    @Test
+    void detectsBmpByItsInfoHeader() {
+        for (int size : new int[] {12, 40, 56, 108, 124}) {
+            assertEquals("bmp", detect('B', 'M', 0x36, 0, 0, 0, 0, 0, 0, 0, 0x36, 0, 0, 0, size, 0, 0, 0), "DIB " + size);
+        }
+    }
+
+    @Test
+    void textStartingWithBmIsNotBmp() {
+        byte[] text = "BMW service history, 2019-2024\n".getBytes(StandardCharsets.US_ASCII);
+        assertNull(FormatDetector.detect(text, text.length, "txt"));
+        assertNull(detect('B', 'M'));
+    }
+
+    @Test
+    void detectsIconsByTheirDirectory() {
+        assertEquals("ico", detect(0, 0, 1, 0, 1, 0, 32, 32, 0, 0, 1, 0, 32, 0));
+        assertNull(detect(0, 0, 1, 0, 0, 0, 32, 32, 0, 0, 1, 0, 32, 0));
+        assertNull(detect(0, 0, 1, 0, 1, 0, 32, 32, 0, 7, 9, 0, 32, 0));
+    }
+
+    @Test
+    void ftypBoxOf256BytesIsNotAnIcon() {
+        assertEquals("avif", detect(0, 0, 1, 0, 'f', 't', 'y', 'p', 'a', 'v', 'i', 'f', 0, 0, 0, 0));
+        assertEquals("heic", detect(0, 0, 1, 0, 'f', 't', 'y', 'p', 'h', 'e', 'i', 'c', 0, 0, 0, 0));
+    }
+
+    @Test
+    void rawExtensionsDecideTiffBasedFormats() {
+        byte[] tiff = bytes('I', 'I', 0x2A, 0x00, 8, 0, 0, 0);
+        assertEquals("nef", FormatDetector.detect(tiff, tiff.length, "nef"));
+        byte[] cr2 = bytes('I', 'I', 0x2A, 0x00, 0x10, 0, 0, 0, 'C', 'R', 0x02);
+        assertEquals("cr2", FormatDetector.detect(cr2, cr2.length, "tiff"));
+    }
+
+    private static String detect(int... header) {
+        return FormatDetector.detect(bytes(header), header.length, null);
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,263 @@
+package com.sedesoft.convertorio;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.Timeout;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HedgerTest {
+    private static final int MIN_SAMPLES = 3;
+
+    private Hedger hedger;
+    private final List<FakeCall> calls = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        hedger = new Hedger(HedgingPolicy.builder()
+            .budgetRatio(1)
+            .minDelayMs(20)
+            .minSamples(MIN_SAMPLES)
+            .build());
+        // Fast answers build the latency history, so the next slow call is hedged
+        for (int i = 0; i < MIN_SAMPLES; i++) {
+            hedger.execute("/v1/jobs/{id}", hedge -> new FakeCall(call -> call.respond())).close();
+        }
+    }
+
+    @Test
+    void slowPrimaryIsHedgedAndCancelled() throws Exception {
+        CompletableFuture<Response> result = executeAsync();
+        FakeCall primary = awaitCall(0);
+        FakeCall hedge = awaitCall(1);
+
+        TrackedBody body = hedge.respond();
+        Response response = result.get(5, TimeUnit.SECONDS);
+        assertSame(body, response.body());
+        assertTrue(primary.isCanceled());
+
+        assertTrue(primary.respond().closed, "losing response must be closed");
+        response.close();
+    }
+
+    @Test
+    void otherEndpointsKeepTheirOwnHistory() throws Exception {
+        CompletableFuture<Response> result = new CompletableFuture<>();
+        new Thread(() -> {
+            try {
+                result.complete(hedger.execute("/v1/account", hedge -> new FakeCall(this::register)));
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        }).start();
+        FakeCall primary = awaitCall(0);
+
+        // The job status history does not apply, so the account read waits for its own samples
+        Thread.sleep(200);
+        synchronized (calls) {
+            assertEquals(1, calls.size());
+        }
+        TrackedBody body = primary.respond();
+        Response response = result.get(5, TimeUnit.SECONDS);
+        assertSame(body, response.body());
+        response.close();
+    }
+
+    @Test
+    void lateResponseAfterPrimaryFailureIsClosed() throws Exception {
+        CompletableFuture<Response> result = executeAsync();
+        FakeCall primary = awaitCall(0);
+        FakeCall hedge = awaitCall(1);
+
+        // The hedge is still in flight, so the primary's failure alone does not fail the call
+        primary.fail();
+        hedge.fail();
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, e.getCause());
+
+        assertTrue(hedge.respond().closed, "response arriving after the call failed must be closed");
+    }
+
+    @Test
+    void responseArrivingAfterInterruptIsClosed() throws Exception {
+        CompletableFuture<Throwable> failure = new CompletableFuture<>();
+        Thread caller = new Thread(() -> {
+            try {
+                hedger.execute("/v1/jobs/{id}", hedge -> new FakeCall(this::register));
+                failure.complete(null);
+            } catch (Throwable t) {
+                failure.complete(t);
+            }
+        });
+        caller.start();
+        FakeCall primary = awaitCall(0);
+        FakeCall hedge = awaitCall(1);
+
+        caller.interrupt();
+        assertInstanceOf(InterruptedIOException.class, failure.get(5, TimeUnit.SECONDS));
+        assertTrue(primary.isCanceled());
+        assertTrue(hedge.isCanceled());
+
+        assertTrue(primary.respond().closed, "response arriving after the caller gave up must be closed");
+        assertTrue(hedge.respond().closed);
+    }
+
+    private CompletableFuture<Response> executeAsync() {
+        CompletableFuture<Response> result = new CompletableFuture<>();
+        Thread caller = new Thread(() -> {
+            try {
+                result.complete(hedger.execute("/v1/jobs/{id}", hedge -> new FakeCall(this::register)));
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        caller.start();
+        return result;
+    }
+
+    private FakeCall register(FakeCall call) {
+        synchronized (calls) {
+            calls.add(call);
+            calls.notifyAll();
+        }
+        return call;
+    }
+
+    private FakeCall awaitCall(int index) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        synchronized (calls) {
+            while (calls.size() <= index) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    throw new AssertionError("call " + index + " was not started");
+                }
+                calls.wait(remaining);
+            }
+            return calls.get(index);
+        }
+    }
+
+    private interface OnEnqueue {
+        void run(FakeCall call);
+    }
+
+    private static final class FakeCall implements Call {
+        private final Request request = new Request.Builder().url("http://localhost/v1/jobs/1").build();
+        private final OnEnqueue onEnqueue;
+        private volatile Callback callback;
+        private volatile boolean canceled;
+
+        FakeCall(OnEnqueue onEnqueue) {
+            this.onEnqueue = onEnqueue;
+        }
+
+        TrackedBody respond() {
+            TrackedBody body = new TrackedBody();
+            try {
+                callback.onResponse(this, new Response.Builder()
+                    .request(request)
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(200)
+                    .message("OK")
+                    .body(body)
+                    .build());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return body;
+        }
+
+        void fail() {
+            callback.onFailure(this, new IOException("connection reset"));
+        }
+
+        @Override
+        public Request request() {
+            return request;
+        }
+
+        @Override
+        public Response execute() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void enqueue(Callback responseCallback) {
+            callback = responseCallback;
+            onEnqueue.run(this);
+        }
+
+        @Override
+        public void cancel() {
+            canceled = true;
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return callback != null;
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        @Override
+        public Timeout timeout() {
+            return Timeout.NONE;
+        }
+
+        @Override
+        public Call clone() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static final class TrackedBody extends ResponseBody {
+        private final Buffer source = new Buffer().writeUtf8("{}");
+        private volatile boolean closed;
+
+        @Override
+        public MediaType contentType() {
+            return MediaType.get("application/json");
+        }
+
+        @Override
+        public long contentLength() {
+            return source.size();
+        }
+
+        @Override
+        public BufferedSource source() {
+            return source;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.sedesoft.convertorio;
+
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.UnknownServiceException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HttpStackTest {
+    @Test
+    void cleartextClientHandsBackRedirectsToHttps() throws Exception {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/account", exchange -> {
+            exchange.getResponseHeaders().add("Location", "https://127.0.0.1:" + closedPort + "/v1/account");
+            exchange.sendResponseHeaders(301, -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            ConvertorioClient client = new ConvertorioClient(ClientConfig.builder()
+                .apiKey("test")
+                .baseUrl("http://127.0.0.1:" + server.getAddress().getPort())
+                .build());
+
+            // Reaches the HTTPS URL, where nothing listens, instead of failing on the cleartext-only client
+            ConvertorioException e = assertThrows(ConvertorioException.class, client::getAccount);
+            assertFalse(e.getCause() instanceof UnknownServiceException, String.valueOf(e.getCause()));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void redirectToHttpsKeepsTheRequestOnTheSameHost() {
+        Request request = new Request.Builder()
+            .url("http://api.example.com/v1/convert/upload-url")
+            .addHeader("Authorization", "Bearer key")
+            .post(RequestBody.create("{}", HttpStack.Types.JSON))
+            .build();
+
+        Request followUp = HttpStack.tlsRedirect(redirect(request, 308, "https://api.example.com/v1/convert/upload-url"));
+        assertEquals("https://api.example.com/v1/convert/upload-url", followUp.url().toString());
+        assertEquals("POST", followUp.method());
+        assertEquals("Bearer key", followUp.header("Authorization"));
+    }
+
+    @Test
+    void redirectToAnotherHostDropsTheKeyAndOldRedirectsTurnIntoGet() {
+        Request request = new Request.Builder()
+            .url("http://api.example.com/v1/convert/upload-url")
+            .addHeader("Authorization", "Bearer key")
+            .post(RequestBody.create("{}", HttpStack.Types.JSON))
+            .build();
+
+        Request followUp = HttpStack.tlsRedirect(redirect(request, 302, "https://other.example.com/"));
+        assertEquals("GET", followUp.method());
+        assertNull(followUp.header("Authorization"));
+    }
+
+    @Test
+    void otherResponsesAreLeftAlone() throws IOException {
+        Request request = new Request.Builder().url("http://api.example.com/v1/account").build();
+        assertNull(HttpStack.tlsRedirect(redirect(request, 301, "http://api.example.com/v2/account")));
+        assertNull(HttpStack.tlsRedirect(redirect(request, 200, "https://api.example.com/v1/account")));
+    }
+
+    private static Response redirect(Request request, int code, String location) {
+        return new Response.Builder()
+            .request(request)
+            .protocol(Protocol.HTTP_1_1)
+            .code(code)
+            .message("Redirect")
+            .header("Location", location)
+            .build();
+    }
+}
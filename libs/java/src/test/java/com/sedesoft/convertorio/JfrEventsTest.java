@@ -0,0 +1,29 @@
+package com.sedesoft.convertorio;
+
+import jdk.jfr.Recording;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JfrEventsTest {
+    @Test
+    void disabledEventsAreNotCreated() {
+        assertTrue(JfrEvents.AVAILABLE);
+        assertNull(JfrEvents.request("GET", "/v1/jobs/1"));
+        assertNull(JfrEvents.stage("upload"));
+        assertNull(JfrEvents.poll("1", 1));
+    }
+
+    @Test
+    void recordingEnablesEvents() {
+        try (Recording recording = new Recording()) {
+            recording.start();
+
+            assertNotNull(JfrEvents.request("GET", "/v1/jobs/1"));
+            assertNotNull(JfrEvents.stage("upload"));
+            assertNotNull(JfrEvents.poll("1", 1));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.sedesoft.convertorio;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JobHistoryTest {
+    private static final int JOBS = 250;
+
+    private MockApi api;
+    private ConvertorioClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        api = new MockApi();
+        for (int i = 0; i < JOBS; i++) {
+            boolean failed = i % 10 == 0;
+            api.history.add("{\"id\":\"job-" + i + "\",\"status\":\"" + (failed ? "failed" : "completed") + "\"," +
+                "\"source_format\":\"" + (i % 2 == 0 ? "png" : "jpg") + "\",\"target_format\":\"webp\"," +
+                "\"file_size\":1000,\"processing_time_ms\":" + (100 + i) + ",\"tokens_used\":1," +
+                "\"created_at\":\"2024-11-" + (i < 100 ? "20" : "21") + "T23:30:00Z\"" +
+                (failed ? ",\"error_message\":\"Bad input, \\\"corrupt\\\"\"" : "") + "}");
+        }
+        client = new ConvertorioClient(ClientConfig.builder()
+            .apiKey("test")
+            .baseUrl(api.baseUrl())
+            .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        api.close();
+    }
+
+    @Test
+    void scansEveryPageIntoGroups() throws Exception {
+        JobStats stats = JobHistory.builder().client(client).pageSize(30).parallelism(3).build().scan();
+
+        // 9 pages hold the jobs; workers may each have asked for one page past the short one
+        assertTrue(stats.getPages() >= 9 && stats.getPages() <= 11, "pages: " + stats.getPages());
+        JobStats.Group total = stats.total();
+        assertEquals(JOBS, total.getCount());
+        assertEquals(JOBS / 10, total.getFailed());
+        assertEquals(JOBS * 1000L, total.getTotalFileSize());
+        assertEquals(JOBS, total.getProcessingTimeCount());
+        assertTrue(Math.abs(total.getProcessingTimeMs(0.5) - 224) <= 3, "p50: " + total.getProcessingTimeMs(0.5));
+
+        assertEquals(2, stats.byPair().size());
+        assertEquals(2, stats.byDay().size());
+        for (JobStats.Group day : stats.byDay()) {
+            assertEquals(day.getDay().equals(LocalDate.of(2024, 11, 20)) ? 100 : 150, day.getCount());
+        }
+    }
+
+    @Test
+    void exportsEveryJobAsCsv() throws Exception {
+        StringWriter export = new StringWriter();
+        JobHistory.builder().client(client).pageSize(40).export(export, JobHistory.Format.CSV).build().scan();
+
+        String[] lines = export.toString().split("\n");
+        assertEquals("id,status,source_format,target_format,file_size,processing_time_ms,tokens_used," +
+            "created_at,completed_at,error_message", lines[0]);
+        assertEquals(JOBS + 1, lines.length);
+        Set<String> ids = new HashSet<>();
+        for (int i = 1; i < lines.length; i++) {
+            ids.add(lines[i].substring(0, lines[i].indexOf(',')));
+        }
+        assertEquals(JOBS, ids.size());
+        assertTrue(export.toString().contains(
+            "job-0,failed,png,webp,1000,100,1,2024-11-20T23:30:00Z,,\"Bad input, \"\"corrupt\"\"\"\n"));
+    }
+
+    @Test
+    void exportsEveryJobAsJsonLines() throws Exception {
+        StringWriter export = new StringWriter();
+        JobHistory.builder().client(client).pageSize(100).export(export, JobHistory.Format.JSONL).build().scan();
+
+        String[] lines = export.toString().split("\n");
+        assertEquals(JOBS, lines.length);
+        Set<String> ids = new HashSet<>();
+        for (String line : lines) {
+            JsonObject job = JsonParser.parseString(line).getAsJsonObject();
+            ids.add(job.get("id").getAsString());
+            assertEquals("webp", job.get("target_format").getAsString());
+            assertEquals(job.get("status").getAsString().equals("failed"), job.has("error_message"));
+        }
+        assertEquals(JOBS, ids.size());
+    }
+}
@@ -0,0 +1,35 @@
+package com.sedesoft.convertorio;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LaneSchedulerTest {
+    @Test
+    void undeclaredLanesShareTheDefaultLane() throws Exception {
+        LaneScheduler scheduler = new LaneScheduler(SchedulingPolicy.builder().lane("interactive", 8).build());
+        ConversionContext context = ConversionContext.of(
+            ConversionOptions.builder().timeout(Duration.ofSeconds(5)).build(), null, Tracer.NOOP);
+
+        for (int i = 0; i < 100; i++) {
+            LaneScheduler.Lane lane = scheduler.acquire("request-" + i, context);
+            assertEquals(SchedulingPolicy.DEFAULT_LANE, lane.name);
+            scheduler.release(lane);
+        }
+        assertSame(scheduler.acquire(null, context), scheduler.acquire(SchedulingPolicy.DEFAULT_LANE, context));
+
+        List<LaneMetrics> metrics = scheduler.metrics();
+        assertEquals(2, metrics.size());
+        assertEquals(102, metrics.get(1).getGranted());
+    }
+
+    @Test
+    void maxActiveStagesMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> SchedulingPolicy.builder().maxActiveStages(0));
+    }
+}
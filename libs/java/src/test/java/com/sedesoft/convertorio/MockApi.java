@@ -0,0 +1,142 @@
+package com.sedesoft.convertorio;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal local Convertorio API for tests
+ *
+ * Every job completes at once and its output is {@link #OUTPUT}. Status
+ * requests with {@code Accept: text/event-stream} go to {@link #streamHandler},
+ * which by default streams a processing and a completed event.
+ */
+final class MockApi implements AutoCloseable {
+    static final byte[] OUTPUT = "converted".getBytes(StandardCharsets.UTF_8);
+
+    final AtomicInteger streamRequests = new AtomicInteger();
+    final AtomicInteger pollRequests = new AtomicInteger();
+    volatile HttpHandler streamHandler = exchange -> stream(exchange,
+        "id: 1\ndata: " + jobJson("processing") + "\n\n",
+        "id: 2\ndata: " + jobJson("completed") + "\n\n");
+
+    final AtomicInteger accountRequests = new AtomicInteger();
+    volatile HttpHandler accountHandler = exchange -> json(exchange, 200,
+        "{\"success\":true,\"account\":{\"id\":\"acc\",\"points_balance\":100}}");
+
+    /** Jobs listed by /v1/jobs, as JSON objects, newest first */
+    final List<String> history = new CopyOnWriteArrayList<>();
+    final AtomicInteger listRequests = new AtomicInteger();
+
+    /** Status code of storage uploads */
+    volatile int uploadStatus = 200;
+
+    /** Extra headers on the download response, e.g. checksums */
+    final Map<String, String> downloadHeaders = new ConcurrentHashMap<>();
+
+    private final HttpServer server;
+    private final AtomicInteger jobs = new AtomicInteger();
+
+    MockApi() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/v1/convert/upload-url", exchange ->
+            json(exchange, 200, "{\"success\":true,\"job_id\":\"job-" + jobs.incrementAndGet() +
+                "\",\"upload_url\":\"" + baseUrl() + "/storage/upload\"}"));
+        server.createContext("/v1/convert/confirm", exchange ->
+            json(exchange, 200, "{\"success\":true,\"status\":\"queued\"}"));
+        server.createContext("/v1/jobs/", exchange -> {
+            String accept = exchange.getRequestHeaders().getFirst("Accept");
+            if (accept != null && accept.contains("text/event-stream")) {
+                streamRequests.incrementAndGet();
+                streamHandler.handle(exchange);
+            } else {
+                pollRequests.incrementAndGet();
+                json(exchange, 200, "{\"success\":true,\"job\":" + jobJson("completed") + "}");
+            }
+        });
+        server.createContext("/v1/jobs", exchange -> {
+            listRequests.incrementAndGet();
+            Map<String, String> query = new ConcurrentHashMap<>();
+            for (String parameter : exchange.getRequestURI().getQuery().split("&")) {
+                String[] pair = parameter.split("=", 2);
+                query.put(pair[0], pair[1]);
+            }
+            int offset = Math.min(Integer.parseInt(query.get("offset")), history.size());
+            int end = Math.min(offset + Integer.parseInt(query.get("limit")), history.size());
+            json(exchange, 200, "{\"success\":true,\"jobs\":[" + String.join(",", history.subList(offset, end)) + "]}");
+        });
+        server.createContext("/v1/account", exchange -> {
+            accountRequests.incrementAndGet();
+            accountHandler.handle(exchange);
+        });
+        server.createContext("/storage/upload", exchange -> {
+            drain(exchange);
+            exchange.sendResponseHeaders(uploadStatus, -1);
+            exchange.close();
+        });
+        server.createContext("/storage/download", exchange -> {
+            drain(exchange);
+            downloadHeaders.forEach((name, value) -> exchange.getResponseHeaders().add(name, value));
+            exchange.sendResponseHeaders(200, OUTPUT.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(OUTPUT);
+            }
+        });
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    String jobJson(String status) {
+        return "{\"id\":\"job\",\"status\":\"" + status + "\",\"source_format\":\"png\",\"target_format\":\"webp\"," +
+            "\"processing_time_ms\":10,\"tokens_used\":1,\"download_url\":\"" + baseUrl() + "/storage/download\"}";
+    }
+
+    static void stream(HttpExchange exchange, String... events) throws IOException {
+        drain(exchange);
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream output = exchange.getResponseBody()) {
+            for (String event : events) {
+                output.write(event.getBytes(StandardCharsets.UTF_8));
+                output.flush();
+            }
+        }
+    }
+
+    static void json(HttpExchange exchange, int status, String body) throws IOException {
+        drain(exchange);
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+    private static void drain(HttpExchange exchange) throws IOException {
+        try (InputStream input = exchange.getRequestBody()) {
+            input.readAllBytes();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
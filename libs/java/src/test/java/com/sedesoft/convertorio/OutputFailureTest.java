@@ -0,0 +1,57 @@
+package com.sedesoft.convertorio;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OutputFailureTest {
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n', 0, 0, 0, 13, 'I', 'H', 'D', 'R'};
+
+    @TempDir
+    Path dir;
+
+    private MockApi api;
+    private ConvertorioClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        api = new MockApi();
+        client = new ConvertorioClient(ClientConfig.builder()
+            .apiKey("test")
+            .baseUrl(api.baseUrl())
+            .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        api.close();
+    }
+
+    @Test
+    void failingOutputStreamIsNotAStorageError() throws Exception {
+        Path input = dir.resolve("in.png");
+        Files.write(input, PNG);
+        OutputStream full = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("No space left on device");
+            }
+        };
+
+        ConvertorioException e = assertThrows(ConvertorioException.class, () -> client.convertFile(
+            ConversionOptions.builder().inputPath(input.toString()).targetFormat("webp").build(), full));
+        assertFalse(e instanceof StorageException);
+        assertEquals("Writing the result failed: No space left on device", e.getMessage());
+        assertFalse(ConvertorioClientPool.isKeyFailure(e));
+    }
+}
@@ -0,0 +1,73 @@
+package com.sedesoft.convertorio;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuantileSketchTest {
+    private static final double[] QUANTILES = {0.01, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999, 1};
+
+    @Test
+    void mergedSketchesStayWithinOnePercentOfExactQuantiles() {
+        Random random = new Random(42);
+        long[] values = new long[30_000];
+        QuantileSketch[] parts = {new QuantileSketch(), new QuantileSketch(), new QuantileSketch()};
+        for (int i = 0; i < values.length; i++) {
+            // Processing times from about 100 ms to several minutes, skewed like real ones
+            values[i] = 100 + (long) Math.exp(random.nextGaussian() * 1.5 + 7);
+            parts[i % parts.length].add(values[i]);
+        }
+
+        QuantileSketch merged = new QuantileSketch();
+        for (QuantileSketch part : parts) {
+            merged.merge(part);
+        }
+
+        Arrays.sort(values);
+        assertEquals(values.length, merged.count());
+        for (double quantile : QUANTILES) {
+            long exact = values[(int) Math.max(1, Math.ceil(quantile * values.length)) - 1];
+            long estimate = merged.quantile(quantile);
+            assertTrue(Math.abs(estimate - exact) <= exact * 0.01,
+                "p" + quantile + ": " + estimate + " vs exact " + exact);
+        }
+    }
+
+    @Test
+    void mergeMatchesAddingEverythingToOneSketch() {
+        Random random = new Random(7);
+        QuantileSketch all = new QuantileSketch();
+        QuantileSketch low = new QuantileSketch();
+        QuantileSketch high = new QuantileSketch();
+        for (int i = 0; i < 5000; i++) {
+            long value = 50 + random.nextInt(1000);
+            all.add(value);
+            low.add(value);
+            value = 100_000 + random.nextInt(500_000);
+            all.add(value);
+            high.add(value);
+        }
+        // Disjoint ranges make the merge grow the bucket array at both ends
+        high.merge(low);
+
+        for (double quantile : QUANTILES) {
+            assertEquals(all.quantile(quantile), high.quantile(quantile), "p" + quantile);
+        }
+    }
+
+    @Test
+    void emptyAndZeroValues() {
+        QuantileSketch sketch = new QuantileSketch();
+        assertEquals(-1, sketch.quantile(0.5));
+
+        sketch.add(0);
+        sketch.add(0);
+        sketch.add(1000);
+        assertEquals(0, sketch.quantile(0.5));
+        assertTrue(Math.abs(sketch.quantile(1) - 1000) <= 10);
+    }
+}
@@ -0,0 +1,83 @@
+package com.sedesoft.convertorio;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ShardedDirectorySinkTest {
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @TempDir
+    Path root;
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shardsByTheJobIdHash() throws Exception {
+        String hash = Checksums.Digests.hex(MessageDigest.getInstance("SHA-256")
+            .digest("job-1".getBytes(StandardCharsets.UTF_8)));
+        ShardedDirectorySink sink = ShardedDirectorySink.builder().root(root).depth(3).width(1).build();
+
+        assertEquals(root.resolve(hash.substring(0, 1)).resolve(hash.substring(1, 2)).resolve(hash.substring(2, 3))
+            .resolve("job-1.webp"), sink.pathFor("job-1", "WEBP"));
+    }
+
+    @Test
+    void rejectsShardsBeyondTheHash() {
+        assertThrows(IllegalArgumentException.class, () -> ShardedDirectorySink.builder().build());
+        assertThrows(IllegalArgumentException.class,
+            () -> ShardedDirectorySink.builder().root(root).depth(9).width(8).build());
+    }
+
+    @Test
+    void spilledDownloadLandsInItsShard() throws Exception {
+        ShardedDirectorySink sink = ShardedDirectorySink.builder().root(root).build();
+        byte[] data = SinkWriterTest.data(1 << 20);
+        SinkWriter writer = writer(sink);
+
+        writer.write(data, 0, data.length);
+        writer.finish();
+
+        Path expected = sink.pathFor("job-1", "webp");
+        assertEquals(expected.toString(), writer.await(context()));
+        assertArrayEquals(data, Files.readAllBytes(expected));
+    }
+
+    @Test
+    void abortRemovesThePartialFile() throws IOException {
+        ShardedDirectorySink sink = ShardedDirectorySink.builder().root(root).build();
+        SinkWriter writer = writer(sink);
+
+        writer.write(SinkWriterTest.data(256 * 1024), 0, 256 * 1024);
+        writer.abort();
+
+        assertFalse(Files.exists(sink.pathFor("job-1", "webp")));
+    }
+
+    private SinkWriter writer(ShardedDirectorySink sink) {
+        return new SinkWriter(sink, executor, 64 * 1024, 8L << 20, context(), "job-1", "cat.png", null, "webp")
+            .open(-1);
+    }
+
+    private static ConversionContext context() {
+        return ConversionContext.of(ConversionOptions.builder().timeout(Duration.ofSeconds(30)).build(), null,
+            Tracer.NOOP);
+    }
+}
@@ -0,0 +1,193 @@
+package com.sedesoft.convertorio;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SinkWriterTest {
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void spillsWhileTheSinkIsBlocked() throws Exception {
+        GatedSink sink = new GatedSink();
+        SinkWriter writer = writer(sink, 128 * 1024, 8L << 20, context(null));
+        byte[] data = data(1 << 20);
+
+        // The sink takes nothing yet, so everything beyond memory has to go to the spill file
+        writeAll(writer, data);
+        writer.finish();
+        sink.gate.countDown();
+
+        assertEquals("job-1", writer.await(context(null)));
+        assertArrayEquals(data, sink.memory.take("job-1"));
+    }
+
+    @Test
+    void downloadWaitsOnceTheSpillFileIsFull() throws Exception {
+        GatedSink sink = new GatedSink();
+        SinkWriter writer = writer(sink, 64 * 1024, 128 * 1024, context(null));
+        byte[] data = data(1 << 20);
+
+        Future<?> download = executor.submit(() -> {
+            writeAll(writer, data);
+            writer.finish();
+            return null;
+        });
+        assertThrows(TimeoutException.class, () -> download.get(300, TimeUnit.MILLISECONDS));
+
+        sink.gate.countDown();
+        download.get(10, TimeUnit.SECONDS);
+        assertEquals("job-1", writer.await(context(null)));
+        assertArrayEquals(data, sink.memory.take("job-1"));
+    }
+
+    @Test
+    void waitingForTheSinkStopsOnCancellation() throws Exception {
+        GatedSink sink = new GatedSink();
+        CancellationToken token = new CancellationToken();
+        SinkWriter writer = writer(sink, 64 * 1024, 0, context(token));
+
+        Future<?> download = executor.submit(() -> {
+            writeAll(writer, data(1 << 20));
+            return null;
+        });
+        Thread.sleep(100);
+        token.cancel();
+
+        Exception e = assertThrows(Exception.class, () -> download.get(10, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof InterruptedIOException, String.valueOf(e.getCause()));
+        assertEquals("Conversion cancelled", e.getCause().getMessage());
+        sink.gate.countDown();
+    }
+
+    @Test
+    void abortDoesNotWaitForAStuckSink() throws Exception {
+        GatedSink sink = new GatedSink();
+        SinkWriter writer = writer(sink, 1 << 20, 0, context(null));
+        writeAll(writer, data(256 * 1024));
+        assertTrue(sink.writing.await(5, TimeUnit.SECONDS));
+
+        long start = System.nanoTime();
+        writer.abort();
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertFalse(sink.aborted.await(0, TimeUnit.MILLISECONDS));
+
+        // The sink thread discards the output once the stuck write returns
+        sink.gate.countDown();
+        assertTrue(sink.aborted.await(5, TimeUnit.SECONDS));
+        assertEquals(null, sink.memory.get("job-1"));
+    }
+
+    @Test
+    void sinkFailureDuringTheDownloadIsReportedByAwait() throws Exception {
+        CountDownLatch aborted = new CountDownLatch(1);
+        ResultSink failing = target -> new ResultSink.Output() {
+            @Override
+            public void write(byte[] data, int offset, int length) throws IOException {
+                throw new IOException("disk full");
+            }
+
+            @Override
+            public String commit() {
+                return "never";
+            }
+
+            @Override
+            public void abort() {
+                aborted.countDown();
+            }
+        };
+        SinkWriter writer = writer(failing, 64 * 1024, 128 * 1024, context(null));
+
+        // Bytes after the failure are dropped instead of failing or blocking the download
+        writeAll(writer, data(1 << 20));
+        writer.finish();
+
+        ConvertorioException e = assertThrows(ConvertorioException.class, () -> writer.await(context(null)));
+        assertEquals("Writing the result failed: disk full", e.getMessage());
+        assertTrue(aborted.await(5, TimeUnit.SECONDS));
+    }
+
+    private SinkWriter writer(ResultSink sink, long memoryLimit, long spillLimit, ConversionContext context) {
+        return new SinkWriter(sink, executor, memoryLimit, spillLimit, context, "job-1", "in.png", null, "webp")
+            .open(-1);
+    }
+
+    private static void writeAll(SinkWriter writer, byte[] data) throws IOException {
+        for (int offset = 0; offset < data.length; offset += 8192) {
+            writer.write(data, offset, Math.min(8192, data.length - offset));
+        }
+    }
+
+    static byte[] data(int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) (i * 31 + (i >> 16));
+        }
+        return data;
+    }
+
+    private static ConversionContext context(CancellationToken token) {
+        return ConversionContext.of(ConversionOptions.builder().cancellationToken(token).timeout(Duration.ofSeconds(30))
+            .build(), null, Tracer.NOOP);
+    }
+
+    /**
+     * Memory sink whose writes block until the gate opens
+     */
+    private static final class GatedSink implements ResultSink {
+        final MemorySink memory = new MemorySink();
+        final CountDownLatch gate = new CountDownLatch(1);
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch aborted = new CountDownLatch(1);
+
+        @Override
+        public Output open(Target target) {
+            Output output = memory.open(target);
+            return new Output() {
+                @Override
+                public void write(byte[] data, int offset, int length) throws IOException {
+                    writing.countDown();
+                    try {
+                        gate.await();
+                    } catch (InterruptedException e) {
+                        throw new InterruptedIOException();
+                    }
+                    output.write(data, offset, length);
+                }
+
+                @Override
+                public String commit() throws IOException {
+                    output.commit();
+                    return target.getJobId();
+                }
+
+                @Override
+                public void abort() {
+                    output.abort();
+                    aborted.countDown();
+                }
+            };
+        }
+    }
+}
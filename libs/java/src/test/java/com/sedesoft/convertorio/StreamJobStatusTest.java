@@ -0,0 +1,129 @@
+package com.sedesoft.convertorio;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamJobStatusTest {
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n', 0, 0, 0, 13, 'I', 'H', 'D', 'R'};
+
+    @TempDir
+    Path dir;
+
+    private MockApi api;
+    private ConvertorioClient client;
+    private final List<EventData> statuses = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        api = new MockApi();
+        client = new ConvertorioClient(ClientConfig.builder()
+            .apiKey("test")
+            .baseUrl(api.baseUrl())
+            .streamJobStatus(true)
+            .build());
+        client.on("status", statuses::add);
+    }
+
+    @AfterEach
+    void tearDown() {
+        api.close();
+    }
+
+    @Test
+    void streamsStatusUntilCompleted() throws Exception {
+        ConversionResult result = convert("a");
+
+        assertTrue(result.isSuccess());
+        assertArrayEquals(MockApi.OUTPUT, Files.readAllBytes(Path.of(result.getOutputPath())));
+        assertEquals(1, api.streamRequests.get());
+        assertEquals(0, api.pollRequests.get());
+        assertEquals(2, statuses.size());
+        assertEquals(Boolean.TRUE, statuses.get(1).get("streaming"));
+    }
+
+    @Test
+    void transientErrorPollsOnceAndKeepsStreaming() throws Exception {
+        api.streamHandler = exchange -> MockApi.json(exchange, 503, "{\"success\":false,\"error\":\"Restarting\"}");
+        assertTrue(convert("a").isSuccess());
+        assertEquals(1, api.streamRequests.get());
+        assertEquals(1, api.pollRequests.get());
+
+        api.streamHandler = exchange -> MockApi.stream(exchange, "data: " + api.jobJson("completed") + "\n\n");
+        assertTrue(convert("b").isSuccess());
+        assertEquals(2, api.streamRequests.get());
+        assertEquals(1, api.pollRequests.get());
+    }
+
+    @Test
+    void streamsClosedByTheServerAreResumedWithoutLimit() throws Exception {
+        api.streamHandler = exchange -> MockApi.stream(exchange, api.streamRequests.get() <= 7 ?
+            "retry: 10\nid: " + api.streamRequests.get() + "\ndata: " + api.jobJson("processing") + "\n\n" :
+            "data: " + api.jobJson("completed") + "\n\n");
+
+        assertTrue(convert("a").isSuccess());
+        assertEquals(8, api.streamRequests.get());
+        assertEquals(0, api.pollRequests.get());
+    }
+
+    @Test
+    void missingEndpointTurnsStreamingOff() throws Exception {
+        api.streamHandler = exchange -> MockApi.json(exchange, 404, "{\"success\":false,\"error\":\"Not found\"}");
+        assertTrue(convert("a").isSuccess());
+        assertTrue(convert("b").isSuccess());
+
+        assertEquals(1, api.streamRequests.get());
+        assertEquals(2, api.pollRequests.get());
+    }
+
+    @Test
+    void plainJsonResponseTurnsStreamingOff() throws Exception {
+        api.streamHandler = exchange -> MockApi.json(exchange, 200,
+            "{\"success\":true,\"job\":" + api.jobJson("processing") + "}");
+        assertTrue(convert("a").isSuccess());
+        assertTrue(convert("b").isSuccess());
+
+        assertEquals(1, api.streamRequests.get());
+    }
+
+    @Test
+    void malformedEventFallsBackToPolling() throws Exception {
+        api.streamHandler = exchange -> MockApi.stream(exchange, "id: 1\ndata: {\"job\": {not json\n\n");
+        ConversionResult result = convert("a");
+
+        assertTrue(result.isSuccess());
+        assertEquals(1, api.pollRequests.get());
+        assertTrue(statuses.stream().noneMatch(event -> Boolean.TRUE.equals(event.get("streaming"))));
+    }
+
+    @Test
+    void onlyMissingEndpointsAreNotTransient() {
+        assertFalse(ConvertorioClient.streamFailureIsTransient(200));
+        assertFalse(ConvertorioClient.streamFailureIsTransient(404));
+        assertFalse(ConvertorioClient.streamFailureIsTransient(405));
+        assertFalse(ConvertorioClient.streamFailureIsTransient(406));
+        assertTrue(ConvertorioClient.streamFailureIsTransient(401));
+        assertTrue(ConvertorioClient.streamFailureIsTransient(429));
+        assertTrue(ConvertorioClient.streamFailureIsTransient(503));
+    }
+
+    private ConversionResult convert(String name) throws Exception {
+        Path input = dir.resolve(name + ".png");
+        Files.write(input, PNG);
+        return client.convertFile(ConversionOptions.builder()
+            .inputPath(input.toString())
+            .targetFormat("webp")
+            .build());
+    }
+}
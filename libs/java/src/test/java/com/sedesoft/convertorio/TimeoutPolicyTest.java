@@ -0,0 +1,39 @@
+package com.sedesoft.convertorio;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TimeoutPolicyTest {
+    @Test
+    void transfersGetTheBasePlusTheirSizeAtTheMinimumThroughput() {
+        TimeoutPolicy policy = TimeoutPolicy.builder().downloadTimeout(Duration.ofSeconds(10), 1000).build();
+
+        assertEquals(15_000, policy.downloadTimeoutMillis(5000, null));
+        assertEquals(15_000, policy.downloadTimeoutMillis(5000, new BandwidthLimiter(0)));
+    }
+
+    @Test
+    void throttledTransfersHaveNoOverallLimit() {
+        // Four transfers sharing 1000 B/s move 250 B/s each, so no rate-based limit would hold
+        BandwidthLimiter shared = new BandwidthLimiter(1000);
+
+        assertEquals(0, TimeoutPolicy.builder().build().uploadTimeoutMillis(1 << 20, shared));
+        assertEquals(0, TimeoutPolicy.builder().build().downloadTimeoutMillis(1 << 20, shared));
+    }
+
+    @Test
+    void rejectsMissingAndNonPositiveTimeouts() {
+        assertThrows(IllegalArgumentException.class, () -> TimeoutPolicy.builder().apiTimeout(null));
+        assertThrows(IllegalArgumentException.class, () -> TimeoutPolicy.builder().apiTimeout(Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> TimeoutPolicy.builder().uploadTimeout(null, 1000));
+        assertThrows(IllegalArgumentException.class,
+            () -> TimeoutPolicy.builder().downloadTimeout(Duration.ofSeconds(1), 0));
+        assertThrows(IllegalArgumentException.class,
+            () -> TimeoutPolicy.builder().conversionTimeout(Duration.ofSeconds(-1)));
+        TimeoutPolicy.builder().conversionTimeout(null);
+    }
+}
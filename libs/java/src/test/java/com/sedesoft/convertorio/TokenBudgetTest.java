@@ -0,0 +1,65 @@
+package com.sedesoft.convertorio;
+
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TokenBudgetTest {
+    private final AtomicInteger balance = new AtomicInteger(100);
+    private final TokenBudget budget = new TokenBudget(
+        BudgetPolicy.builder()
+            .defaultCost(10)
+            .learnFromJobs(0)
+            .refreshInterval(Duration.ofHours(1))
+            .build(),
+        () -> Account.fromJson(JsonParser.parseString("{\"points_balance\":" + balance.get() + "}")),
+        limit -> new Job[0]);
+
+    @Test
+    void confirmedJobsAreNotCountedTwiceAfterARefresh() throws Exception {
+        TokenBudget.Reservation reservation = admit();
+        budget.confirm(reservation);
+        assertEquals(90, budget.metrics().getProjectedBalance());
+
+        // The server charged at confirm, so the fetched balance already has the job
+        balance.set(90);
+        budget.refresh();
+        assertEquals(90, budget.metrics().getProjectedBalance());
+
+        // And the actual cost arriving later does not change the fetched balance
+        budget.settle(reservation, "png", "webp", 7);
+        assertEquals(90, budget.metrics().getProjectedBalance());
+    }
+
+    @Test
+    void actualCostReplacesTheEstimateUntilTheNextRefresh() throws Exception {
+        TokenBudget.Reservation reservation = admit();
+        budget.confirm(reservation);
+        budget.settle(reservation, "png", "webp", 7);
+        assertEquals(93, budget.metrics().getProjectedBalance());
+    }
+
+    @Test
+    void failureAfterConfirmKeepsThePointsSpent() throws Exception {
+        TokenBudget.Reservation beforeConfirm = admit();
+        budget.release(beforeConfirm);
+        assertEquals(100, budget.metrics().getProjectedBalance());
+
+        TokenBudget.Reservation afterConfirm = admit();
+        budget.confirm(afterConfirm);
+        budget.release(afterConfirm);
+        assertEquals(90, budget.metrics().getProjectedBalance());
+        assertEquals(0, budget.metrics().getReserved());
+        assertEquals(0, budget.metrics().getInFlight());
+    }
+
+    private TokenBudget.Reservation admit() throws ConvertorioException {
+        ConversionContext context = ConversionContext.of(
+            ConversionOptions.builder().timeout(Duration.ofSeconds(5)).build(), null, Tracer.NOOP);
+        return budget.admit("png", "webp", null, context, () -> { });
+    }
+}
@@ -0,0 +1,82 @@
+package com.sedesoft.convertorio;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TreeSyncTest {
+    private static final byte[] JPG = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0, 0x10, 'J', 'F', 'I', 'F'};
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n', 0, 0, 0, 13};
+
+    @TempDir
+    Path dir;
+
+    private MockApi api;
+    private TreeSync sync;
+    private Path source;
+    private Path output;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        api = new MockApi();
+        source = Files.createDirectories(dir.resolve("src/a"));
+        output = dir.resolve("out");
+        sync = TreeSync.builder()
+            .client(new ConvertorioClient(ClientConfig.builder().apiKey("test").baseUrl(api.baseUrl()).build()))
+            .sourceRoot(dir.resolve("src"))
+            .outputRoot(output)
+            .targetFormat("webp")
+            .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        api.close();
+    }
+
+    @Test
+    void filesSharingAnOutputAreReportedAndLeftAlone() throws Exception {
+        Files.write(source.resolve("photo.jpg"), JPG);
+        assertEquals(1, sync.run().getConverted());
+
+        Files.write(source.resolve("photo.png"), PNG);
+        SyncResult result = sync.run();
+        assertEquals(0, result.getConverted());
+        assertEquals(0, result.getUnchanged());
+        assertEquals(2, result.getFailures().size());
+        assertTrue(result.getFailures().get(source.resolve("photo.png")).contains("a/photo.jpg"),
+            result.getFailures().toString());
+        assertTrue(Files.exists(output.resolve("a/photo.webp")));
+
+        Files.delete(source.resolve("photo.png"));
+        result = sync.run();
+        assertTrue(result.getFailures().isEmpty(), result.getFailures().toString());
+        assertEquals(1, result.getUnchanged());
+    }
+
+    @Test
+    void replacingASourceWithAnotherExtensionKeepsTheNewOutput() throws Exception {
+        Files.write(source.resolve("photo.jpg"), JPG);
+        sync.run();
+
+        Files.delete(source.resolve("photo.jpg"));
+        Files.write(source.resolve("photo.png"), PNG);
+        SyncResult result = sync.run();
+        assertEquals(1, result.getConverted());
+        assertEquals(1, result.getDeleted());
+        assertTrue(Files.exists(output.resolve("a/photo.webp")));
+
+        // The manifest now belongs to photo.png, whose removal does delete the output
+        Files.delete(source.resolve("photo.png"));
+        sync.run();
+        assertFalse(Files.exists(output.resolve("a/photo.webp")));
+    }
+}
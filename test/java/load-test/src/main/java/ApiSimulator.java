@@ -0,0 +1,517 @@
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local simulator of the Convertorio API
+ *
+ * Implements upload-url, the presigned storage PUT/GET, confirm, jobs and
+ * account endpoints in memory. Processing times follow a log-normal
+ * distribution, errors and 429 responses are injected at configurable
+ * rates, and storage transfers are capped per connection. Extra API front
+ * ends with added latency can share the same jobs, standing in for regions.
+ */
+public class ApiSimulator {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final HttpServer server;
+    private final Gson gson = new Gson();
+    private final Map<String, SimulatedJob> jobs = new ConcurrentHashMap<>();
+    // Creation order, listed newest first
+    private final List<SimulatedJob> history = Collections.synchronizedList(new ArrayList<>());
+    private final List<HttpServer> frontends = new CopyOnWriteArrayList<>();
+    private final AtomicLong pointsBalance = new AtomicLong(1_000_000);
+    private final AtomicLong handlerCpuNanos = new AtomicLong();
+
+    private final long medianProcessingMs;
+    private final double processingSigma;
+    private final double errorRate;
+    private final double rateLimitRate;
+    private final long bandwidthBytesPerSecond;
+
+    public ApiSimulator(int port, long medianProcessingMs, double processingSigma,
+                        double errorRate, double rateLimitRate, long bandwidthBytesPerSecond) throws IOException {
+        this.medianProcessingMs = medianProcessingMs;
+        this.processingSigma = processingSigma;
+        this.errorRate = errorRate;
+        this.rateLimitRate = rateLimitRate;
+        this.bandwidthBytesPerSecond = bandwidthBytesPerSecond;
+
+        // Without TCP_NODELAY every keep-alive response waits ~40 ms for a delayed ACK
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        this.server.setExecutor(Executors.newCachedThreadPool());
+        registerApi(this.server, 0);
+        this.server.createContext("/storage/", metered(this::handleStorage));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        for (HttpServer frontend : frontends) {
+            frontend.stop(0);
+        }
+    }
+
+    /**
+     * Serve the API on another port, delaying every response
+     *
+     * @return Base URL of the new front end, which is already running
+     */
+    public String addFrontend(long delayMs) throws IOException {
+        HttpServer frontend = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        frontend.setExecutor(Executors.newCachedThreadPool());
+        registerApi(frontend, delayMs);
+        frontend.start();
+        frontends.add(frontend);
+        return "http://127.0.0.1:" + frontend.getAddress().getPort();
+    }
+
+    private void registerApi(HttpServer target, long delayMs) {
+        target.createContext("/v1/convert/upload-url", metered(delayed(this::handleUploadUrl, delayMs)));
+        target.createContext("/v1/convert/confirm", metered(delayed(this::handleConfirm, delayMs)));
+        target.createContext("/v1/jobs", metered(delayed(this::handleJobs, delayMs)));
+        target.createContext("/v1/account", metered(delayed(this::handleAccount, delayMs)));
+    }
+
+    /**
+     * Count the CPU time a handler spends on its thread
+     */
+    private HttpHandler metered(HttpHandler handler) {
+        return exchange -> {
+            long started = THREADS.getCurrentThreadCpuTime();
+            try {
+                handler.handle(exchange);
+            } finally {
+                handlerCpuNanos.addAndGet(THREADS.getCurrentThreadCpuTime() - started);
+            }
+        };
+    }
+
+    /**
+     * CPU time the simulator used so far: its handlers plus the servers' dispatcher threads
+     *
+     * Lets a load test in the same JVM tell the SDK's CPU time from the simulator's.
+     */
+    public long getCpuNanos() {
+        long nanos = handlerCpuNanos.get();
+        for (ThreadInfo thread : THREADS.dumpAllThreads(false, false)) {
+            if (thread.getThreadName().startsWith("HTTP-Dispatcher")) {
+                nanos += Math.max(0, THREADS.getThreadCpuTime(thread.getThreadId()));
+            }
+        }
+        return nanos;
+    }
+
+    private static HttpHandler delayed(HttpHandler handler, long delayMs) {
+        if (delayMs <= 0) {
+            return handler;
+        }
+        return exchange -> {
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            handler.handle(exchange);
+        };
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private void handleUploadUrl(HttpExchange exchange) throws IOException {
+        if (injectFailure(exchange)) {
+            return;
+        }
+
+        JsonObject request = gson.fromJson(readBody(exchange), JsonObject.class);
+        SimulatedJob job = new SimulatedJob(
+            UUID.randomUUID().toString(),
+            request.get("source_format").getAsString(),
+            request.get("target_format").getAsString(),
+            System.currentTimeMillis());
+        jobs.put(job.id, job);
+        history.add(job);
+
+        JsonObject response = new JsonObject();
+        response.addProperty("success", true);
+        response.addProperty("job_id", job.id);
+        response.addProperty("upload_url", getBaseUrl() + "/storage/upload/" + job.id);
+        sendJson(exchange, 200, response);
+    }
+
+    private void handleConfirm(HttpExchange exchange) throws IOException {
+        if (injectFailure(exchange)) {
+            return;
+        }
+
+        JsonObject request = gson.fromJson(readBody(exchange), JsonObject.class);
+        SimulatedJob job = jobs.get(request.get("job_id").getAsString());
+        if (job == null || job.fileSize < 0) {
+            sendError(exchange, 400, "Upload not found");
+            return;
+        }
+
+        // Charged when the job is queued: 5 points for OCR, 1 for anything else
+        int cost = "ocr".equals(job.targetFormat) ? 5 : 1;
+        if (pointsBalance.getAndUpdate(balance -> balance >= cost ? balance - cost : balance) < cost) {
+            sendError(exchange, 402, "Insufficient points");
+            return;
+        }
+        job.tokensUsed = cost;
+
+        double gaussian = ThreadLocalRandom.current().nextGaussian();
+        job.processingTimeMs = Math.max(1, (long) (medianProcessingMs * Math.exp(processingSigma * gaussian)));
+        job.readyAt = System.currentTimeMillis() + job.processingTimeMs;
+
+        JsonObject response = new JsonObject();
+        response.addProperty("success", true);
+        response.addProperty("status", "queued");
+        sendJson(exchange, 200, response);
+    }
+
+    private void handleJobs(HttpExchange exchange) throws IOException {
+        if (injectFailure(exchange)) {
+            return;
+        }
+
+        String path = exchange.getRequestURI().getPath();
+        if (path.equals("/v1/jobs") || path.equals("/v1/jobs/")) {
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            int limit = Math.min(100, Integer.parseInt(query.getOrDefault("limit", "20")));
+            int offset = Integer.parseInt(query.getOrDefault("offset", "0"));
+            String status = query.get("status");
+
+            JsonArray list = new JsonArray();
+            synchronized (history) {
+                int skipped = 0;
+                for (int i = history.size() - 1; i >= 0 && list.size() < limit; i--) {
+                    SimulatedJob job = history.get(i);
+                    if (status != null && !status.equals(job.status())) {
+                        continue;
+                    }
+                    if (skipped++ >= offset) {
+                        list.add(job.toJson(getBaseUrl()));
+                    }
+                }
+            }
+            JsonObject response = new JsonObject();
+            response.addProperty("success", true);
+            response.add("jobs", list);
+            sendJson(exchange, 200, response);
+            return;
+        }
+
+        SimulatedJob job = jobs.get(path.substring("/v1/jobs/".length()));
+        if (job == null) {
+            sendError(exchange, 404, "Job not found");
+            return;
+        }
+        String accept = exchange.getRequestHeaders().getFirst("Accept");
+        if (accept != null && accept.contains("text/event-stream")) {
+            streamJob(exchange, job);
+            return;
+        }
+
+        JsonObject response = new JsonObject();
+        response.addProperty("success", true);
+        response.add("job", job.toJson(getBaseUrl()));
+        sendJson(exchange, 200, response);
+    }
+
+    /**
+     * Send the job as server-sent events on every status change until it finishes
+     *
+     * Honours {@code ?wait=SECONDS} like the real API and ends the stream
+     * after it, so the client reconnects with Last-Event-ID.
+     */
+    private void streamJob(HttpExchange exchange, SimulatedJob job) throws IOException {
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        long waitMs = Long.parseLong(query.getOrDefault("wait", "30")) * 1000;
+        long until = System.currentTimeMillis() + waitMs;
+        String lastEventId = exchange.getRequestHeaders().getFirst("Last-Event-ID");
+        int eventId = lastEventId != null ? Integer.parseInt(lastEventId) : 0;
+
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write("retry: 500\n\n".getBytes(StandardCharsets.UTF_8));
+            output.flush();
+            String sent = null;
+            while (System.currentTimeMillis() < until) {
+                String status = job.status();
+                if (!status.equals(sent)) {
+                    sent = status;
+                    JsonObject event = new JsonObject();
+                    event.add("job", job.toJson(getBaseUrl()));
+                    output.write(("id: " + ++eventId + "\ndata: " + gson.toJson(event) + "\n\n")
+                        .getBytes(StandardCharsets.UTF_8));
+                    output.flush();
+                }
+                if ("completed".equals(status) || "failed".equals(status)) {
+                    return;
+                }
+                long wake = Math.min(until, job.readyAt) - System.currentTimeMillis();
+                Thread.sleep(Math.max(1, Math.min(wake, 250)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Set the points left on the simulated account (default 1,000,000)
+     */
+    public void setPointsBalance(long points) {
+        pointsBalance.set(points);
+    }
+
+    /**
+     * Add finished jobs spread over the past days, for job history scans
+     *
+     * @param failureRate Fraction of jobs that failed
+     */
+    public void seedHistory(int count, int days, double failureRate) {
+        String[][] pairs = {{"png", "webp"}, {"jpg", "webp"}, {"jpg", "avif"}, {"png", "jpg"}, {"pdf", "ocr"}};
+        Random random = new Random(42);
+        long now = System.currentTimeMillis();
+        List<SimulatedJob> seeded = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String[] pair = pairs[random.nextInt(pairs.length)];
+            // Oldest first, like jobs created live
+            long createdAt = now - (long) days * 86_400_000L * (count - i) / count;
+            SimulatedJob job = new SimulatedJob(UUID.randomUUID().toString(), pair[0], pair[1], createdAt);
+            job.fileSize = 10_000 + random.nextInt(5_000_000);
+            job.processingTimeMs = Math.max(1, (long) (medianProcessingMs * Math.exp(processingSigma *
+                random.nextGaussian())));
+            job.readyAt = createdAt + job.processingTimeMs;
+            job.failed = random.nextDouble() < failureRate;
+            job.tokensUsed = job.failed ? 0 : "ocr".equals(pair[1]) ? 5 : 1;
+            seeded.add(job);
+            jobs.put(job.id, job);
+        }
+        history.addAll(0, seeded);
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                int equals = pair.indexOf('=');
+                if (equals > 0) {
+                    parameters.put(pair.substring(0, equals), pair.substring(equals + 1));
+                }
+            }
+        }
+        return parameters;
+    }
+
+    private void handleAccount(HttpExchange exchange) throws IOException {
+        if (injectFailure(exchange)) {
+            return;
+        }
+
+        JsonObject account = new JsonObject();
+        account.addProperty("id", "simulated-account");
+        account.addProperty("email", "load-test@example.com");
+        account.addProperty("points_balance", pointsBalance.get());
+        account.addProperty("total_conversions", jobs.size());
+
+        JsonObject response = new JsonObject();
+        response.addProperty("success", true);
+        response.add("account", account);
+        sendJson(exchange, 200, response);
+    }
+
+    private void handleStorage(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        if (path.startsWith("/storage/upload/") && "PUT".equals(exchange.getRequestMethod())) {
+            SimulatedJob job = jobs.get(path.substring("/storage/upload/".length()));
+            if (job == null) {
+                sendError(exchange, 404, "Upload URL expired");
+                return;
+            }
+
+            long size = 0;
+            byte[] buffer = new byte[16 * 1024];
+            long startedAt = System.nanoTime();
+            try (InputStream input = exchange.getRequestBody()) {
+                int read;
+                while ((read = input.read(buffer)) != -1) {
+                    size += read;
+                    throttle(size, startedAt);
+                }
+            }
+            job.fileSize = size;
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+            return;
+        }
+
+        if (path.startsWith("/storage/download/") && "GET".equals(exchange.getRequestMethod())) {
+            SimulatedJob job = jobs.get(path.substring("/storage/download/".length()));
+            if (job == null || !"completed".equals(job.status())) {
+                sendError(exchange, 404, "Object not found");
+                return;
+            }
+
+            // Converted output is simulated as the same size as the upload
+            byte[] buffer = new byte[16 * 1024];
+            new Random(job.id.hashCode()).nextBytes(buffer);
+            exchange.sendResponseHeaders(200, job.fileSize);
+            long startedAt = System.nanoTime();
+            try (OutputStream output = exchange.getResponseBody()) {
+                long sent = 0;
+                while (sent < job.fileSize) {
+                    int chunk = (int) Math.min(buffer.length, job.fileSize - sent);
+                    output.write(buffer, 0, chunk);
+                    sent += chunk;
+                    throttle(sent, startedAt);
+                }
+            }
+            return;
+        }
+
+        sendError(exchange, 404, "Not found");
+    }
+
+    /**
+     * Sleep until the transfer is back under the per-connection bandwidth cap
+     */
+    private void throttle(long bytes, long startedAtNanos) {
+        if (bandwidthBytesPerSecond <= 0) {
+            return;
+        }
+
+        long expectedNanos = bytes * 1_000_000_000L / bandwidthBytesPerSecond;
+        long aheadMs = (expectedNanos - (System.nanoTime() - startedAtNanos)) / 1_000_000;
+        if (aheadMs > 0) {
+            try {
+                Thread.sleep(aheadMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Answer with an injected 429 or 500 instead of handling the request
+     *
+     * @return true if a failure was sent
+     */
+    private boolean injectFailure(HttpExchange exchange) throws IOException {
+        double roll = ThreadLocalRandom.current().nextDouble();
+        if (roll < rateLimitRate) {
+            exchange.getResponseHeaders().add("Retry-After", "1");
+            sendError(exchange, 429, "Too many requests");
+            return true;
+        }
+        if (roll < rateLimitRate + errorRate) {
+            sendError(exchange, 500, "Injected server error");
+            return true;
+        }
+        return false;
+    }
+
+    private String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream input = exchange.getRequestBody()) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        JsonObject response = new JsonObject();
+        response.addProperty("success", false);
+        response.addProperty("error", message);
+        sendJson(exchange, status, response);
+    }
+
+    private void sendJson(HttpExchange exchange, int status, JsonObject body) throws IOException {
+        byte[] bytes = gson.toJson(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+    private static class SimulatedJob {
+        final String id;
+        final String sourceFormat;
+        final String targetFormat;
+        final long createdAt;
+        volatile long fileSize = -1;
+        volatile long processingTimeMs;
+        volatile long readyAt = Long.MAX_VALUE;
+        volatile boolean failed;
+        volatile int tokensUsed;
+
+        SimulatedJob(String id, String sourceFormat, String targetFormat, long createdAt) {
+            this.id = id;
+            this.sourceFormat = sourceFormat;
+            this.targetFormat = targetFormat;
+            this.createdAt = createdAt;
+        }
+
+        String status() {
+            if (failed) {
+                return "failed";
+            }
+            if (readyAt == Long.MAX_VALUE) {
+                return "pending_upload";
+            }
+            return System.currentTimeMillis() >= readyAt ? "completed" : "processing";
+        }
+
+        JsonObject toJson(String baseUrl) {
+            String status = status();
+            JsonObject json = new JsonObject();
+            json.addProperty("id", id);
+            json.addProperty("status", status);
+            json.addProperty("source_format", sourceFormat);
+            json.addProperty("target_format", targetFormat);
+            json.addProperty("file_size", Math.max(fileSize, 0));
+            json.addProperty("created_at", Instant.ofEpochMilli(createdAt).toString());
+            if ("failed".equals(status)) {
+                json.addProperty("error_message", "Simulated conversion failure");
+            }
+            if ("completed".equals(status)) {
+                json.addProperty("processing_time_ms", processingTimeMs);
+                json.addProperty("tokens_used", tokensUsed);
+                json.addProperty("download_url", baseUrl + "/storage/download/" + id);
+            }
+            return json;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+import com.sedesoft.convertorio.*;
+import com.sun.management.OperatingSystemMXBean;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load generator for the Convertorio Java SDK
+ *
+ * Runs concurrent convertFile workloads against a local {@link ApiSimulator}
+ * and reports throughput, latency percentiles and SDK-side CPU and heap use.
+ * SDK CPU is the process CPU time less the simulator's own.
+ *
+ * Options (all optional):
+ *   --concurrency N        Worker threads (default: 16)
+ *   --conversions N        Total conversions (default: 200)
+ *   --input PATH           Input file (default: generated 1024x768 PNG)
+ *   --median-ms N          Median simulated processing time (default: 500)
+ *   --sigma X              Log-normal spread of processing time (default: 0.5)
+ *   --error-rate X         Fraction of API calls answered with 500 (default: 0)
+ *   --rate-limit-rate X    Fraction of API calls answered with 429 (default: 0)
+ *   --bandwidth BYTES      Per-connection storage bandwidth cap, 0 = unlimited (default: 0)
+ *   --frontend-delays LIST Comma-separated API latencies in ms; each adds a front end used
+ *                          as one of several base URLs (default: single base URL)
+ */
+public class LoadTest {
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "16"));
+        int conversions = Integer.parseInt(options.getOrDefault("conversions", "200"));
+
+        ApiSimulator simulator = new ApiSimulator(0,
+            Long.parseLong(options.getOrDefault("median-ms", "500")),
+            Double.parseDouble(options.getOrDefault("sigma", "0.5")),
+            Double.parseDouble(options.getOrDefault("error-rate", "0")),
+            Double.parseDouble(options.getOrDefault("rate-limit-rate", "0")),
+            Long.parseLong(options.getOrDefault("bandwidth", "0")));
+        simulator.start();
+
+        Path workDir = Files.createTempDirectory("convertorio-load-test");
+        String inputPath = options.containsKey("input") ? options.get("input") : generateInput(workDir);
+
+        List<String> baseUrls = new ArrayList<>();
+        if (options.containsKey("frontend-delays")) {
+            for (String delay : options.get("frontend-delays").split(",")) {
+                baseUrls.add(simulator.addFrontend(Long.parseLong(delay.trim())));
+            }
+        } else {
+            baseUrls.add(simulator.getBaseUrl());
+        }
+
+        ConvertorioClient client = new ConvertorioClient(
+            ClientConfig.builder()
+                .apiKey("simulated")
+                .baseUrls(baseUrls)
+                .build()
+        );
+
+        OperatingSystemMXBean os = (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger remaining = new AtomicInteger(conversions);
+        AtomicInteger failures = new AtomicInteger();
+        AtomicLong peakHeap = new AtomicLong();
+
+        Thread heapSampler = new Thread(() -> {
+            Runtime runtime = Runtime.getRuntime();
+            while (!Thread.currentThread().isInterrupted()) {
+                peakHeap.accumulateAndGet(runtime.totalMemory() - runtime.freeMemory(), Math::max);
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        heapSampler.setDaemon(true);
+        heapSampler.start();
+
+        System.out.println("Running " + conversions + " conversions with " + concurrency +
+            " workers against " + String.join(", ", baseUrls));
+
+        long startedAt = System.nanoTime();
+        // The whole process, so OkHttp's dispatcher and writer threads and the SDK's pools count too
+        long processCpuStart = os.getProcessCpuTime();
+        long simulatorCpuStart = simulator.getCpuNanos();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        for (int w = 0; w < concurrency; w++) {
+            int worker = w;
+            workers.submit(() -> {
+                int n;
+                while ((n = remaining.decrementAndGet()) >= 0) {
+                    long requestStart = System.nanoTime();
+                    try {
+                        client.convertFile(
+                            ConversionOptions.builder()
+                                .inputPath(inputPath)
+                                .targetFormat("webp")
+                                .outputPath(workDir.resolve("output-" + worker + "-" + n + ".webp").toString())
+                                .build()
+                        );
+                        latencies.add(System.nanoTime() - requestStart);
+                    } catch (ConvertorioException e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.DAYS);
+        double elapsedSeconds = (System.nanoTime() - startedAt) / 1e9;
+        long cpuNanos = Math.max(0, os.getProcessCpuTime() - processCpuStart -
+            (simulator.getCpuNanos() - simulatorCpuStart));
+
+        heapSampler.interrupt();
+        simulator.stop();
+        deleteRecursively(workDir.toFile());
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+
+        System.out.println();
+        System.out.println("Completed:   " + sorted.size());
+        System.out.println("Failed:      " + failures.get());
+        System.out.printf("Elapsed:     %.2f s%n", elapsedSeconds);
+        System.out.printf("Throughput:  %.2f conversions/s%n", sorted.size() / elapsedSeconds);
+        System.out.printf("Latency p50: %.0f ms%n", percentile(sorted, 0.50) / 1e6);
+        System.out.printf("Latency p99: %.0f ms%n", percentile(sorted, 0.99) / 1e6);
+        System.out.printf("SDK CPU:     %.2f s (%.2f ms per conversion)%n",
+            cpuNanos / 1e9, sorted.isEmpty() ? 0 : cpuNanos / 1e6 / sorted.size());
+        System.out.printf("Peak heap:   %.1f MB%n", peakHeap.get() / (1024.0 * 1024.0));
+        if (baseUrls.size() > 1) {
+            for (BaseUrlMetrics metrics : client.getBaseUrlMetrics()) {
+                System.out.printf("Base URL:    %s %d requests, %.1f ms%n",
+                    metrics.getBaseUrl(), metrics.getRequests(), metrics.getLatencyMs());
+            }
+        }
+
+        System.exit(failures.get() > 0 ? 1 : 0);
+    }
+
+    private static double percentile(List<Long> sorted, double quantile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+    }
+
+    private static String generateInput(Path workDir) throws Exception {
+        BufferedImage image = new BufferedImage(1024, 768, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, random.nextInt(0xFFFFFF));
+            }
+        }
+        File input = workDir.resolve("input.png").toFile();
+        ImageIO.write(image, "png", input);
+        return input.getPath();
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,160 @@
+import com.sedesoft.convertorio.FormatDetector;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Throughput benchmark for {@link FormatDetector}
+ *
+ * Writes files of every detected format to a temporary directory and measures
+ * how many headers per second are sniffed from memory, and how many files
+ * per second are sniffed from disk on one and on several threads. Reading
+ * each file whole is measured too, as the cost sniffing avoids. The files
+ * stay in the page cache, so disk numbers are system call overhead, not
+ * device speed.
+ *
+ * Options (all optional):
+ *   --files N      Files written (default: 2000)
+ *   --size BYTES   Size of each file (default: 262144)
+ *   --seconds N    Measured time per phase, after as long a warm-up (default: 3)
+ *   --threads N    Threads for the parallel phase (default: available processors)
+ */
+public class SniffBenchmark {
+    private static final int[][] HEADERS = {
+        {0xFF, 0xD8, 0xFF, 0xE0},
+        {0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A},
+        {'G', 'I', 'F', '8', '9', 'a'},
+        {'R', 'I', 'F', 'F', 0, 0, 0, 0, 'W', 'E', 'B', 'P'},
+        {'%', 'P', 'D', 'F', '-', '1', '.', '7'},
+        {'B', 'M', 0x36, 0, 0, 0, 0, 0, 0, 0, 0x36, 0, 0, 0, 40, 0, 0, 0},
+        {'I', 'I', 0x2A, 0x00, 8, 0, 0, 0},
+        {0, 0, 0, 0x1C, 'f', 't', 'y', 'p', 'a', 'v', 'i', 'f'},
+        {0, 0, 0, 0x18, 'f', 't', 'y', 'p', 'h', 'e', 'i', 'c'},
+    };
+    private static final String[] EXTENSIONS = {"jpg", "png", "gif", "webp", "pdf", "bmp", "tiff", "avif", "heic"};
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        int files = Integer.parseInt(options.getOrDefault("files", "2000"));
+        int size = Integer.parseInt(options.getOrDefault("size", "262144"));
+        long measureNanos = Long.parseLong(options.getOrDefault("seconds", "3")) * 1_000_000_000L;
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+            String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+        Path workDir = Files.createTempDirectory("convertorio-sniff");
+        List<Path> paths = new ArrayList<>(files);
+        List<byte[]> headers = new ArrayList<>(files);
+        Random random = new Random(42);
+        for (int i = 0; i < files; i++) {
+            int format = i % HEADERS.length;
+            byte[] content = new byte[size];
+            random.nextBytes(content);
+            for (int j = 0; j < HEADERS[format].length; j++) {
+                content[j] = (byte) HEADERS[format][j];
+            }
+            Path path = workDir.resolve("file-" + i + "." + EXTENSIONS[format]);
+            Files.write(path, content);
+            paths.add(path);
+            headers.add(Arrays.copyOf(content, 32));
+        }
+        System.out.println("Sniffing " + files + " files of " + size + " bytes in " + workDir);
+        System.out.println();
+
+        try {
+            report("Headers in memory", run(measureNanos, 1, i -> {
+                byte[] header = headers.get(i % files);
+                return FormatDetector.detect(header, header.length, null);
+            }), "headers");
+            report("Files, 1 thread", run(measureNanos, 1,
+                i -> FormatDetector.detect(paths.get(i % files), null)), "files");
+            report("Files, " + threads + (threads == 1 ? " thread" : " threads"), run(measureNanos, threads,
+                i -> FormatDetector.detect(paths.get(i % files), null)), "files");
+            report("Whole file read, 1 thread", run(measureNanos, 1,
+                i -> Files.readAllBytes(paths.get(i % files)).length > 0 ? "read" : null), "files");
+        } finally {
+            try (Stream<Path> stream = Files.list(workDir)) {
+                stream.forEach(path -> path.toFile().delete());
+            }
+            Files.delete(workDir);
+        }
+    }
+
+    private interface Operation {
+        String apply(int index) throws IOException;
+    }
+
+    /**
+     * Warm up, then count operations for the measured time
+     *
+     * @return Operations per second and nanoseconds per operation and thread
+     */
+    private static double[] run(long measureNanos, int threads, Operation operation) throws Exception {
+        measure(measureNanos, threads, operation);
+        long[] counted = measure(measureNanos, threads, operation);
+        double seconds = counted[1] / 1e9;
+        return new double[] {counted[0] / seconds, counted[1] * (double) threads / counted[0]};
+    }
+
+    private static long[] measure(long measureNanos, int threads, Operation operation) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            long started = System.nanoTime();
+            long until = started + measureNanos;
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t * 7919;
+                futures.add(executor.submit(() -> {
+                    long count = 0;
+                    int misses = 0;
+                    // Check the clock every 64 operations so it does not dominate the in-memory case
+                    while ((count & 63) != 0 || System.nanoTime() < until) {
+                        if (operation.apply(offset + (int) count) == null) {
+                            misses++;
+                        }
+                        count++;
+                    }
+                    if (misses > 0) {
+                        throw new IllegalStateException(misses + " inputs were not recognized");
+                    }
+                    return count;
+                }));
+            }
+            long total = 0;
+            for (Future<Long> future : futures) {
+                total += future.get();
+            }
+            return new long[] {total, System.nanoTime() - started};
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void report(String label, double[] result, String unit) {
+        System.out.printf("%-28s %,14.0f %s/s  (%,.0f ns each)%n", label + ":", result[0], unit, result[1]);
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+}
@@ -0,0 +1,240 @@
+import com.sedesoft.convertorio.*;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+/**
+ * Cold start benchmark for the Convertorio Java SDK
+ *
+ * Starts a local {@link ApiSimulator} and launches fresh JVMs that create a
+ * client, make one API request and run one conversion. Each milestone is
+ * timed from launching the JVM, and the medians over all runs are reported.
+ *
+ * Options (all optional):
+ *   --runs N          Measured JVM launches (default: 10)
+ *   --median-ms N     Median simulated processing time (default: 0, so the first status check succeeds)
+ *   --cds             Record an AppCDS archive in a training run first and use it for the measured runs
+ *   --classlist FILE  Write the SDK and dependency classes a conversion loads, for AppCDS class lists
+ */
+public class StartupBenchmark {
+    private static final String[] MILESTONES = {"main", "client", "request", "conversion"};
+    private static final String[] LABELS = {"JVM start to main", "Client created", "First request", "First conversion"};
+    private static final String[] LIBRARY_PACKAGES = {"com/sedesoft/convertorio/", "okhttp3/", "okio/", "kotlin/",
+        "com/google/gson/"};
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--probe")) {
+            probe(args[1], args[2], args[3]);
+            return;
+        }
+
+        Map<String, String> options = parseArgs(args);
+        int runs = Integer.parseInt(options.getOrDefault("runs", "10"));
+        boolean cds = options.containsKey("cds");
+
+        ApiSimulator simulator = new ApiSimulator(0,
+            Long.parseLong(options.getOrDefault("median-ms", "0")), 0.1, 0, 0, 0);
+        simulator.start();
+
+        Path workDir = Files.createTempDirectory("convertorio-startup");
+        Path input = workDir.resolve("input.png");
+        ImageIO.write(new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB), "png", input.toFile());
+
+        if (options.containsKey("classlist")) {
+            writeClassList(Paths.get(options.get("classlist")), simulator.getBaseUrl(), workDir);
+        }
+
+        List<String> jvmArgs = new ArrayList<>();
+        String classPath = System.getProperty("java.class.path");
+        if (cds) {
+            // Archives can only be made from JAR files, not class directories
+            classPath = jarClassPath(classPath, workDir);
+            Path archive = workDir.resolve("convertorio.jsa");
+            System.out.println("Training run, recording " + archive);
+            launch(Collections.singletonList("-XX:ArchiveClassesAtExit=" + archive), classPath,
+                simulator.getBaseUrl(), workDir);
+            jvmArgs.add("-XX:SharedArchiveFile=" + archive);
+        }
+
+        System.out.println("Measuring " + runs + " cold starts against " + simulator.getBaseUrl() +
+            (cds ? " with AppCDS" : ""));
+        List<List<Long>> samples = new ArrayList<>();
+        for (String ignored : MILESTONES) {
+            samples.add(new ArrayList<>());
+        }
+        for (int i = 0; i < runs; i++) {
+            long[] timings = launch(jvmArgs, classPath, simulator.getBaseUrl(), workDir);
+            for (int m = 0; m < MILESTONES.length; m++) {
+                samples.get(m).add(timings[m]);
+            }
+        }
+
+        simulator.stop();
+        deleteRecursively(workDir.toFile());
+
+        System.out.println();
+        for (int m = 0; m < MILESTONES.length; m++) {
+            List<Long> sorted = samples.get(m);
+            Collections.sort(sorted);
+            System.out.printf("%-18s %6.0f ms (min %.0f ms)%n", LABELS[m] + ":",
+                sorted.get(sorted.size() / 2) / 1e6, sorted.get(0) / 1e6);
+        }
+    }
+
+    /**
+     * Run one probe JVM
+     *
+     * @return Nanoseconds from launch until each milestone was reported
+     */
+    private static long[] launch(List<String> jvmArgs, String classPath, String baseUrl, Path workDir)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        command.addAll(jvmArgs);
+        command.addAll(Arrays.asList("-cp", classPath, StartupBenchmark.class.getName(),
+            "--probe", baseUrl, workDir.resolve("input.png").toString(), workDir.resolve("output.webp").toString()));
+
+        long[] timings = new long[MILESTONES.length];
+        long launchedAt = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            int next = 0;
+            while ((line = reader.readLine()) != null) {
+                if (next < MILESTONES.length && line.equals(MILESTONES[next])) {
+                    timings[next++] = System.nanoTime() - launchedAt;
+                }
+            }
+            if (process.waitFor() != 0 || next < MILESTONES.length) {
+                throw new IllegalStateException("Probe failed after " + next + " milestones");
+            }
+        }
+        return timings;
+    }
+
+    /**
+     * Body of a probe JVM: reports each milestone on stdout as soon as it is reached
+     */
+    private static void probe(String baseUrl, String input, String output) throws ConvertorioException {
+        System.out.println("main");
+
+        ConvertorioClient client = new ConvertorioClient(
+            ClientConfig.builder()
+                .apiKey("simulated")
+                .baseUrl(baseUrl)
+                .build()
+        );
+        System.out.println("client");
+
+        client.getAccount();
+        System.out.println("request");
+
+        client.convertFile(
+            ConversionOptions.builder()
+                .inputPath(input)
+                .targetFormat("webp")
+                .outputPath(output)
+                .build()
+        );
+        System.out.println("conversion");
+    }
+
+    /**
+     * Record the classes of a probe run and keep those of the SDK and its dependencies
+     */
+    private static void writeClassList(Path output, String baseUrl, Path workDir)
+            throws IOException, InterruptedException {
+        Path loaded = workDir.resolve("loaded.classlist");
+        launch(Collections.singletonList("-XX:DumpLoadedClassList=" + loaded), System.getProperty("java.class.path"),
+            baseUrl, workDir);
+
+        List<String> classes = new ArrayList<>();
+        for (String line : Files.readAllLines(loaded, StandardCharsets.UTF_8)) {
+            // Lambda proxies and classes of other loaders carry extra fields after the name
+            String name = line.split(" ", 2)[0];
+            if (line.startsWith("@") || name.startsWith("com/sedesoft/convertorio/") && name.contains("$$Lambda")) {
+                continue;
+            }
+            for (String prefix : LIBRARY_PACKAGES) {
+                if (name.startsWith(prefix)) {
+                    classes.add(name);
+                    break;
+                }
+            }
+        }
+        Collections.sort(classes);
+        Files.write(output, classes, StandardCharsets.UTF_8);
+        System.out.println("Wrote " + classes.size() + " classes to " + output);
+    }
+
+    /**
+     * Pack every class directory on the class path into a JAR file
+     */
+    private static String jarClassPath(String classPath, Path workDir) throws IOException {
+        List<String> entries = new ArrayList<>();
+        for (String entry : classPath.split(File.pathSeparator)) {
+            Path path = Paths.get(entry);
+            if (!Files.isDirectory(path)) {
+                entries.add(entry);
+                continue;
+            }
+            Path jar = workDir.resolve("classes-" + entries.size() + ".jar");
+            try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar));
+                 Stream<Path> files = Files.walk(path)) {
+                for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                    out.putNextEntry(new JarEntry(path.relativize(file).toString().replace(File.separatorChar, '/')));
+                    Files.copy(file, out);
+                    out.closeEntry();
+                }
+            }
+            entries.add(jar.toString());
+        }
+        return String.join(File.pathSeparator, entries);
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            String name = args[i].substring(2);
+            if (name.equals("cds")) {
+                options.put(name, "true");
+            } else if (i + 1 < args.length) {
+                options.put(name, args[++i]);
+            } else {
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            }
+        }
+        return options;
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}